@@ -33,6 +33,8 @@ public class Activator extends AbstractUIPlugin {
 
 	public static Path STATE_LOCATION;
 	public static String SETTINGS_FILENAME = "settings.xml";
+	public static final String ABBREVIATIONS_FILENAME = "abbreviations.txt";
+	public static final String SYNONYMS_FILENAME = "synonyms.txt";
 
 	public static final IWorkspace WORKSPACE = ResourcesPlugin.getWorkspace();
 	public static final IWorkspaceRoot WORKSPACE_ROOT = WORKSPACE.getRoot();
@@ -93,11 +95,11 @@ public class Activator extends AbstractUIPlugin {
 		SETTINGS_PATH = SETTINGS_FILE.toPath();
 
 		// Create empty files, so doesn't cause error when perform search
-		IPath abbreviationsPath = this.getStateLocation().append("abbreviations.txt");
+		IPath abbreviationsPath = this.getStateLocation().append(ABBREVIATIONS_FILENAME);
 		File abbreviationsFile = abbreviationsPath.toFile();
 		abbreviationsFile.createNewFile();
 
-		IPath synonymsPath = this.getStateLocation().append("synonyms.txt");
+		IPath synonymsPath = this.getStateLocation().append(SYNONYMS_FILENAME);
 		File synonymsFile = synonymsPath.toFile();
 		synonymsFile.createNewFile();
 
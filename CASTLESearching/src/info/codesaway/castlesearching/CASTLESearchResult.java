@@ -1,37 +1,85 @@
 package info.codesaway.castlesearching;
 
-import java.util.List;
-
-import org.apache.lucene.search.ScoreDoc;
 import org.eclipse.jdt.annotation.Nullable;
 
+import info.codesaway.castlesearching.searcher.ResultPager;
+
 public class CASTLESearchResult {
 	private final CASTLESearch search;
-	private final List<CASTLESearchResultEntry> results;
 	private final String message;
 	private final boolean isIndexCreated;
 
 	/**
-	 * Last document returned in search (used to allow search after)
+	 * Loads the results a page at a time (<code>null</code> if there are no
+	 * results, such as if the index wasn't created yet)
 	 */
 	@Nullable
-	private final ScoreDoc lastDocument;
+	private final ResultPager pager;
 
-	public CASTLESearchResult(final CASTLESearch search, final List<CASTLESearchResultEntry> results,
-			final String message, final boolean isIndexCreated, @Nullable final ScoreDoc lastDocument) {
+	public CASTLESearchResult(final CASTLESearch search, final String message, final boolean isIndexCreated,
+			@Nullable final ResultPager pager) {
 		this.search = search;
-		this.results = results;
 		this.message = message;
 		this.isIndexCreated = isIndexCreated;
-		this.lastDocument = lastDocument;
+		this.pager = pager;
 	}
 
 	public CASTLESearch getSearch() {
 		return this.search;
 	}
 
-	public List<CASTLESearchResultEntry> getResults() {
-		return this.results;
+	/**
+	 * Gets the number of results
+	 *
+	 * <p>
+	 * Results which aren't loaded yet are estimated (a block document may have
+	 * more than one result)
+	 * </p>
+	 */
+	public int getResultCount() {
+		return this.pager != null ? this.pager.getResultCount() : 0;
+	}
+
+	/**
+	 * Gets the result at the specified index, loading it if needed
+	 *
+	 * <p>
+	 * Loading a result searches the index, so don't call from the UI thread
+	 * (use {@link #getLoadedResult(int)} instead)
+	 * </p>
+	 *
+	 * @param index
+	 *            the index (starts with 0)
+	 * @return the result; <code>null</code> if there is no result at the index
+	 */
+	@Nullable
+	public CASTLESearchResultEntry getResult(final int index) {
+		return this.pager != null ? this.pager.getResult(index) : null;
+	}
+
+	/**
+	 * Gets the result at the specified index, if it's already loaded
+	 *
+	 * @param index
+	 *            the index (starts with 0)
+	 * @return the result; <code>null</code> if the result isn't loaded yet
+	 *         (or there is no result at the index)
+	 */
+	@Nullable
+	public CASTLESearchResultEntry getLoadedResult(final int index) {
+		return this.pager != null ? this.pager.getLoadedResult(index) : null;
+	}
+
+	/**
+	 * Removes the results at the specified indexes
+	 *
+	 * @param indexes
+	 *            the indexes (starts with 0)
+	 */
+	public void remove(final int[] indexes) {
+		if (this.pager != null) {
+			this.pager.remove(indexes);
+		}
 	}
 
 	public String getMessage() {
@@ -42,8 +90,18 @@ public class CASTLESearchResult {
 		return this.isIndexCreated;
 	}
 
-	@Nullable
-	public ScoreDoc getLastDocument() {
-		return this.lastDocument;
+	/**
+	 * Release the searcher used to load the results
+	 *
+	 * <p>
+	 * Call once the results are no longer shown or kept in the previous
+	 * searches (results and content which weren't loaded yet will then be
+	 * empty)
+	 * </p>
+	 */
+	public void release() {
+		if (this.pager != null) {
+			this.pager.release();
+		}
 	}
 }
@@ -1,16 +1,26 @@
 package info.codesaway.castlesearching;
 
+import java.util.function.Supplier;
+
 public class CASTLESearchResultEntry {
 	private final int resultIndex;
 	private final String resultNumber;
 	private final String file;
 	private final String element;
 	private final String line;
-	private final String content;
+	private volatile String content;
+
+	// Loads the content when it's first needed
+	// (null once the content is loaded)
+	private volatile Supplier<String> contentLoader;
 	private final String type;
 	private final String path;
 	private final String extension;
 
+	// Name of the searcher whose index has the result
+	// (only set when searching multiple indexes)
+	private String searcherName = "";
+
 	/**
 	 *
 	 * @param resultIndex the result index (starts with 1)
@@ -34,6 +44,17 @@ public class CASTLESearchResultEntry {
 		this.extension = extension;
 	}
 
+	/**
+	 *
+	 * @param resultIndex the result index (starts with 1)
+	 * @param contentLoader loads the content the first time it's needed
+	 */
+	public CASTLESearchResultEntry(final int resultIndex, final String file, final String element, final String line,
+			final Supplier<String> contentLoader, final String type, final String path, final String extension) {
+		this(resultIndex, file, element, line, (String) null, type, path, extension);
+		this.contentLoader = contentLoader;
+	}
+
 	public int getResultIndex() {
 		return this.resultIndex;
 	}
@@ -55,6 +76,13 @@ public class CASTLESearchResultEntry {
 	}
 
 	public String getContent() {
+		Supplier<String> contentLoader = this.contentLoader;
+
+		if (contentLoader != null) {
+			this.content = contentLoader.get();
+			this.contentLoader = null;
+		}
+
 		return this.content;
 	}
 
@@ -82,4 +110,12 @@ public class CASTLESearchResultEntry {
 	public String getExtension() {
 		return this.extension;
 	}
+
+	public String getSearcherName() {
+		return this.searcherName;
+	}
+
+	public void setSearcherName(final String searcherName) {
+		this.searcherName = searcherName;
+	}
 }
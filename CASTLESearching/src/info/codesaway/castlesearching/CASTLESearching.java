@@ -1,6 +1,8 @@
 package info.codesaway.castlesearching;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,6 +33,11 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
  */
 // Reference: https://lucene.apache.org/core/8_3_1/index.html
 public class CASTLESearching {
+	/**
+	 * Position increment gap between the values of a field
+	 */
+	public static final int POSITION_INCREMENT_GAP = 100;
+
 	/**
 	 *
 	 *
@@ -40,7 +47,19 @@ public class CASTLESearching {
 	 */
 	public static Analyzer createAnalyzer(final LuceneStep step) throws IOException {
 		// Read files from the state location, so can be modified by user
-		CustomAnalyzer.Builder builder = CustomAnalyzer.builder(Activator.STATE_LOCATION).withTokenizer("standard");
+		return createAnalyzer(step, Activator.STATE_LOCATION);
+	}
+
+	/**
+	 *
+	 *
+	 * @param step Lucene step
+	 * @param configDirectory directory containing the synonym files (such as when running headless)
+	 * @return
+	 * @throws IOException
+	 */
+	public static Analyzer createAnalyzer(final LuceneStep step, final Path configDirectory) throws IOException {
+		CustomAnalyzer.Builder builder = CustomAnalyzer.builder(configDirectory).withTokenizer("standard");
 
 		// Is this required for index analyzer?? flattenGraph
 		// https://lucene.apache.org/solr/guide/6_6/filter-descriptions.html
@@ -86,8 +105,14 @@ public class CASTLESearching {
 			// An added benefit is that I don't need to reindex when adding synonyms
 			// http://blog.vogella.com/2010/07/06/reading-resources-from-plugin/
 			// TODO: add support for user specifying files (and allow editing on the preferences page)
-			builder.addTokenFilter("synonymGraph", "synonyms", "abbreviations.txt");
-			builder.addTokenFilter("synonymGraph", "synonyms", "synonyms.txt", "ignoreCase", "true");
+			// (skip missing files, since only the plugin creates them)
+			if (Files.exists(configDirectory.resolve(Activator.ABBREVIATIONS_FILENAME))) {
+				builder.addTokenFilter("synonymGraph", "synonyms", Activator.ABBREVIATIONS_FILENAME);
+			}
+
+			if (Files.exists(configDirectory.resolve(Activator.SYNONYMS_FILENAME))) {
+				builder.addTokenFilter("synonymGraph", "synonyms", Activator.SYNONYMS_FILENAME, "ignoreCase", "true");
+			}
 		}
 
 		builder.addTokenFilter("englishPossessive").addTokenFilter("lowercase");
@@ -109,6 +134,10 @@ public class CASTLESearching {
 				// (added to reduce index space and possibly improve performance)
 				.addTokenFilter("removeDuplicates");
 
+		// Block documents index each line as a separate value of the content and comment fields
+		// (the gap keeps phrases from matching across lines)
+		builder.withPositionIncrementGap(POSITION_INCREMENT_GAP);
+
 		Analyzer analyzer = builder.build();
 
 		Map<String, Analyzer> analyzerMap = new HashMap<>();
@@ -2,13 +2,19 @@ package info.codesaway.castlesearching;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -19,10 +25,22 @@ import org.apache.lucene.store.FSDirectory;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.swt.widgets.Display;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import info.codesaway.castlesearching.indexer.BlockDocumentBuilder;
 import info.codesaway.castlesearching.indexer.CASTLEIndexer;
+import info.codesaway.castlesearching.indexer.FileDocumentBuilder;
+import info.codesaway.castlesearching.indexer.Indexer;
+import info.codesaway.castlesearching.indexer.Indexers;
 import info.codesaway.castlesearching.linetype.LineType;
+import info.codesaway.castlesearching.linetype.LineTypeClassifier;
 import info.codesaway.castlesearching.linetype.PredicateLineType;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
 import info.codesaway.castlesearching.searcher.CASTLESearcher;
+import info.codesaway.castlesearching.searcher.ConcurrentSearcherFactory;
+import info.codesaway.castlesearching.searcher.QueryTemplate;
+import info.codesaway.castlesearching.searcher.ResultCache;
 import info.codesaway.util.regex.Matcher;
 import info.codesaway.util.regex.Pattern;
 import info.codesaway.util.regex.PatternSyntaxException;
@@ -35,18 +53,115 @@ public class CASTLESearchingSettings {
 	// TODO: when export settings, save this to the configuration file
 	// (that way when user can modify settings, would increment this)
 	// TODO: change to 3 when done
-	// TODO: also support each file type having it's own version
-	// (this way if update settigs for Java files, don't need to reindex JSP for
-	// example)
 	public static long DOCUMENT_VERSION;
 
+	/**
+	 * Document version used to force files to be reindexed when rebuilding
+	 * the entire index (never used as the version for an indexer)
+	 */
+	public static final long REBUILD_DOCUMENT_VERSION = Long.MIN_VALUE;
+
+	// Document version for each indexer, keyed by file extension
+	// (this way if update settings for Java files, don't need to reindex JSP
+	// for example)
+	private static volatile Map<String, Long> DOCUMENT_VERSIONS = new HashMap<>();
+
+	// Indexer for each file extension
+	private static volatile Map<String, Indexer> INDEXERS = new HashMap<>();
+
+	/**
+	 * Maximum number of seconds before indexed documents are visible to
+	 * searches of the workspace index
+	 */
+	public static double NRT_MAX_STALE_SECONDS = 1.0;
+
+	/**
+	 * Minimum number of seconds between reopening the workspace searcher
+	 */
+	public static double NRT_MIN_STALE_SECONDS = 0.025;
+
+	/**
+	 * Number of seconds between commits of the workspace index
+	 *
+	 * <p>
+	 * Commits only affect how much needs to be reindexed if Eclipse crashes,
+	 * since searches use near-real-time readers
+	 * </p>
+	 */
+	public static long COMMIT_INTERVAL_SECONDS = 60;
+
+	/**
+	 * Whether to store a hash of each file's content, so files whose last
+	 * modified changed but content didn't (such as after switching git
+	 * branches) aren't reindexed
+	 */
+	public static boolean CONTENT_HASH = true;
+
+	/**
+	 * How files are split into documents in the index
+	 */
+	public static IndexLayout INDEX_LAYOUT = IndexLayout.LINE;
+
+	/**
+	 * Number of lines in each document when using the
+	 * {@link IndexLayout#BLOCK BLOCK} layout
+	 */
+	public static int BLOCK_LINES = 64;
+
+	/**
+	 * Number of seconds a search may take before it stops and shows the hits
+	 * found so far (0 for no limit)
+	 */
+	public static double SEARCH_TIMEOUT_SECONDS = 10;
+
+	/**
+	 * Number of threads used to search the segments of an index in parallel
+	 * (1 to search using the calling thread)
+	 */
+	public static int SEARCH_THREADS = getDefaultSearchThreads();
+
+	/**
+	 * Maximum number of documents in each slice of segments searched by a
+	 * single thread
+	 */
+	public static int SEARCH_SLICE_MAX_DOCS = 250_000;
+
+	/**
+	 * Maximum number of segments in each slice of segments searched by a
+	 * single thread
+	 */
+	public static int SEARCH_SLICE_MAX_SEGMENTS = 5;
+
+	/**
+	 * Whether to append the indexing and search metrics to a JSON log after
+	 * indexing
+	 */
+	public static boolean METRICS_JSON_LOG = false;
+
+	// Directories which aren't walked when finding files to index
+	// (matched against the directory name)
+	private static final List<String> DEFAULT_IGNORED_DIRECTORIES = Arrays.asList(".git", ".svn", ".hg",
+			".metadata", "bin", "target", "node_modules");
+
+	private static volatile Set<String> IGNORED_DIRECTORIES = new HashSet<>(DEFAULT_IGNORED_DIRECTORIES);
+
 	public static final List<PatternInfo> JAVA_FILENAME_PATTERNS = new ArrayList<>();
 
 	public static final List<LineType> JAVA_LINE_TYPES = new ArrayList<>();
 
+	// Compiled from JAVA_LINE_TYPES when the settings are read
+	// (replaced rather than modified, so indexing threads see a consistent
+	// set of line types)
+	private static volatile LineTypeClassifier JAVA_LINE_TYPE_CLASSIFIER = new LineTypeClassifier(
+			Collections.emptyList());
+
 	// TODO: make use of the hit limit
-	public static final CASTLESearcher SEARCHER_WORKSPACE = new CASTLESearcher("Workspace", CASTLEIndexer.INDEX_PATH,
-			10);
+	// (created when first used, since the workspace index is in the plugin's
+	// state location, so the settings can also be read without Eclipse, such
+	// as by the headless indexer)
+	private static final class WorkspaceSearcher {
+		private static final CASTLESearcher INSTANCE = new CASTLESearcher("Workspace", CASTLEIndexer.INDEX_PATH, 10);
+	}
 	// TODO: how to allow incremental over the custom searchers?
 	// public static final CASTLESearcher SEARCHER_INCREMENTAL = new
 	// CASTLESearcher("Incremental",
@@ -61,6 +176,8 @@ public class CASTLESearchingSettings {
 	// (keeping the same order as defined in the file)
 	private static Map<String, CASTLESearcher> SEARCHERS = new LinkedHashMap<>();
 
+	private static final String DEFAULT_SEARCH_ALL_NAME = "All Searchers";
+
 	// TODO: make setting to list file types to index
 	// TODO: Setting file lists indexers, so read these to determine which
 	// extensions to read
@@ -88,6 +205,11 @@ public class CASTLESearchingSettings {
 		WatchDirectory watchDirectory = new WatchDirectory(Activator.STATE_LOCATION, path -> {
 			// System.out.println("Event occurred on path: " + path);
 
+			if (isQueryTemplateFile(path)) {
+				// Next search creates the analyzer again, reading the changes
+				QueryTemplate.invalidate();
+			}
+
 			if (path.equals(Activator.SETTINGS_PATH)) {
 				Display display = view.getDisplay();
 
@@ -101,12 +223,36 @@ public class CASTLESearchingSettings {
 		WATCH_SETTINGS_THREAD.start();
 	}
 
+	/**
+	 * Indicates whether the file is used to create the query analyzer
+	 *
+	 * @param path
+	 *            the path of the file which changed
+	 * @return <code>true</code> if the settings file or a synonym file
+	 */
+	private static boolean isQueryTemplateFile(final Path path) {
+		if (path.equals(Activator.SETTINGS_PATH)) {
+			return true;
+		}
+
+		Path filename = path.getFileName();
+
+		if (filename == null || !path.getParent().equals(Activator.STATE_LOCATION)) {
+			return false;
+		}
+
+		return filename.toString().equals(Activator.ABBREVIATIONS_FILENAME)
+				|| filename.toString().equals(Activator.SYNONYMS_FILENAME);
+	}
+
 	/**
 	 * <p>
 	 * Note: Run from UI thread
 	 * </p>
 	 */
 	public static void refreshSettings() {
+		QueryTemplate.invalidate();
+
 		if (CASTLESearchingView.INSTANCE == null) {
 			return;
 		}
@@ -162,6 +308,277 @@ public class CASTLESearchingSettings {
 
 		XPathElement rootElement = settings.getRootElement();
 
+		try {
+			readIndexSettings(rootElement);
+		} catch (IllegalArgumentException e) {
+			// Settings file isn't valid (such as an unknown indexer type)
+			view.setStatus(CASTLESearchingView.ERROR_STATUS);
+			view.setMessage("Could not load settings file: " + e.getMessage());
+			return;
+		}
+
+		SEARCHERS = new LinkedHashMap<>();
+		SEARCHERS.put(WorkspaceSearcher.INSTANCE.getName(), WorkspaceSearcher.INSTANCE);
+		// SEARCHERS.put(SEARCHER_INCREMENTAL.getName(), SEARCHER_INCREMENTAL);
+
+		// Read searchers from XML
+		XPathElement searchersElement = rootElement.getChildElement("searchers");
+
+		if (searchersElement != null) {
+			XPathNodeList<XPathElement> searchers = searchersElement.getChildElements("searcher");
+
+			for (XPathElement searcher : searchers) {
+				String name = searcher.getAttribute("name");
+				String indexPathString = searcher.getAttribute("index-path");
+				String hitLimitString = searcher.getAttribute("hit-limit");
+
+				if (!name.isEmpty() && !indexPathString.isEmpty()) {
+					int hitLimit;
+
+					if (hitLimitString.isEmpty()) {
+						hitLimit = CASTLESearchingView.DEFAULT_SMALL_HIT_LIMIT;
+					} else {
+						try {
+							hitLimit = Integer.parseInt(hitLimitString);
+						} catch (NumberFormatException e) {
+							hitLimit = CASTLESearchingView.DEFAULT_SMALL_HIT_LIMIT;
+						}
+					}
+
+					CASTLESearcher castleSearcher = new CASTLESearcher(name, Paths.get(indexPathString), hitLimit);
+					SEARCHERS.put(castleSearcher.getName(), castleSearcher);
+				}
+			}
+
+			// Searcher which searches every other searcher as one index
+			// (added last, so the other searchers keep their shortcuts)
+			if (SEARCHERS.size() > 1 && !searchersElement.getAttribute("search-all").equals("false")) {
+				String name = searchersElement.getAttribute("search-all-name");
+
+				if (name.isEmpty()) {
+					name = DEFAULT_SEARCH_ALL_NAME;
+				}
+
+				if (!SEARCHERS.containsKey(name)) {
+					CASTLESearcher castleSearcher = new CASTLESearcher(name, new ArrayList<>(SEARCHERS.values()),
+							CASTLESearchingView.DEFAULT_SMALL_HIT_LIMIT);
+					SEARCHERS.put(castleSearcher.getName(), castleSearcher);
+				}
+			}
+		}
+
+		// TODO: move to settings file
+		// INDEX_PATHS.put(OPTION_SEARCH_CONTROL_REPORT,
+		// Paths.get("G:\\LogKeepIndexer"));
+		SEARCHER_NAMES = SEARCHERS.keySet().toArray(new String[0]);
+		view.setSearcherNames(SEARCHER_NAMES);
+
+		// TODO: Read last value from settings
+		maybeRefreshSearcherManagers();
+		Activator.refreshStyles();
+
+		if (getSearcher(searcherName) != null) {
+			// Retain combo text since still valid
+			view.setSearcherName(searcherName);
+		} else {
+			// TODO: isn't setting correctly when refresh font on initial view
+			// load
+			// (or more likely it's setting then being cleared)
+
+			// TODO: should load from settings file? (need to add setting)
+			view.setSearcherName(WorkspaceSearcher.INSTANCE.getName());
+		}
+	}
+
+	/**
+	 * Gets the document version for the indexer
+	 *
+	 * <p>
+	 * If the indexer specifies a version, it's used. Otherwise, the version is
+	 * a hash of the indexer's settings, so any change to the settings will
+	 * reindex the files. Either way, changing the version on the
+	 * <code>indexers</code> element still reindexes every file.
+	 * </p>
+	 *
+	 * @param indexerElement
+	 *            the <code>indexer</code> element
+	 * @param indexer
+	 *            the indexer used for the extension
+	 * @return the document version
+	 */
+	private static long getIndexerDocumentVersion(final XPathElement indexerElement, final Indexer indexer) {
+		Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+		hasher.putLong(DOCUMENT_VERSION);
+		hasher.putString(indexerElement.getAttribute("ext"), StandardCharsets.UTF_8);
+
+		// Changing the layout requires reindexing every file
+		hasher.putString(INDEX_LAYOUT.name(), StandardCharsets.UTF_8);
+
+		if (INDEX_LAYOUT == IndexLayout.BLOCK) {
+			hasher.putInt(BLOCK_LINES);
+			hasher.putInt(BlockDocumentBuilder.VERSION);
+		}
+
+		// Changing how files are read requires reindexing every file
+		hasher.putInt(FileDocumentBuilder.VERSION);
+
+		// Changing the indexer (or how it indexes lines) requires reindexing
+		// the files using it
+		hasher.putString(indexer.getClass().getName(), StandardCharsets.UTF_8);
+		hasher.putInt(indexer.getVersion());
+
+		String version = indexerElement.getAttribute("version");
+
+		if (!version.isEmpty()) {
+			hasher.putString(version, StandardCharsets.UTF_8);
+		} else {
+			hasher.putString(indexerElement.getTextContent(), StandardCharsets.UTF_8);
+
+			// Line types specify the type and condition as attributes
+			// (which aren't part of the text content)
+			XPathElement linetypesElement = indexerElement.getChildElement("linetypes");
+
+			if (linetypesElement != null) {
+				for (XPathElement element : linetypesElement.getChildElements("linetype")) {
+					hasher.putString(element.getAttribute("type"), StandardCharsets.UTF_8);
+					hasher.putString(element.getAttribute("condition"), StandardCharsets.UTF_8);
+				}
+			}
+		}
+
+		long documentVersion = hasher.hash().asLong();
+
+		return documentVersion != REBUILD_DOCUMENT_VERSION ? documentVersion : 0;
+	}
+
+	/**
+	 * Gets the version of the indexer used for files with the specified
+	 * extension
+	 *
+	 * <p>
+	 * Stored in the meta document for each file, so files are reindexed when
+	 * their indexer changes
+	 * </p>
+	 *
+	 * @param extension
+	 *            the file extension
+	 * @return the document version
+	 */
+	public static long getDocumentVersion(final String extension) {
+		Long documentVersion = DOCUMENT_VERSIONS.get(extension);
+
+		return documentVersion != null ? documentVersion : DOCUMENT_VERSION;
+	}
+
+	/**
+	 * Gets the indexer used for files with the specified extension
+	 *
+	 * @param extension
+	 *            the file extension
+	 * @return the indexer from the settings (or the default indexer for the
+	 *         extension if the settings don't specify one)
+	 */
+	public static Indexer getIndexer(final String extension) {
+		Indexer indexer = INDEXERS.get(extension);
+
+		return indexer != null ? indexer : Indexers.getDefaultIndexer(extension);
+	}
+
+	/**
+	 * Reads the settings used to index and search (such as the indexers and
+	 * ignored directories) from the settings file
+	 *
+	 * <p>
+	 * Used when running without Eclipse (such as by the headless indexer),
+	 * so doesn't read the searchers or update the view.
+	 * </p>
+	 *
+	 * @param settingsPath
+	 *            the settings file (<code>null</code> to use the default
+	 *            settings)
+	 * @throws IOException
+	 *             if cannot read the settings file
+	 * @throws IllegalArgumentException
+	 *             if cannot parse the settings file or an indexer's type isn't
+	 *             valid
+	 */
+	public static void loadIndexSettings(final Path settingsPath) throws IOException {
+		XPathDocument settings;
+
+		if (settingsPath != null) {
+			settings = new XPathDocument(settingsPath.toFile());
+		} else {
+			settings = new XPathDocument(DEFAULT_SETTINGS_XML);
+		}
+
+		readIndexSettings(settings.getRootElement());
+	}
+
+	/**
+	 * Reads the settings used to index and search
+	 *
+	 * @param rootElement
+	 *            the root element of the settings file
+	 * @throws IllegalArgumentException
+	 *             if an indexer's type isn't valid
+	 */
+	private static void readIndexSettings(final XPathElement rootElement) {
+		XPathElement indexElement = rootElement.getChildElement("index");
+
+		if (indexElement != null) {
+			NRT_MAX_STALE_SECONDS = parseDouble(indexElement.getAttribute("max-stale-seconds"), 1.0);
+			NRT_MIN_STALE_SECONDS = parseDouble(indexElement.getAttribute("min-stale-seconds"), 0.025);
+			COMMIT_INTERVAL_SECONDS = (long) parseDouble(indexElement.getAttribute("commit-interval-seconds"), 60);
+			CONTENT_HASH = !indexElement.getAttribute("content-hash").equals("false");
+			INDEX_LAYOUT = IndexLayout.from(indexElement.getAttribute("layout"), IndexLayout.LINE);
+			BLOCK_LINES = (int) parseDouble(indexElement.getAttribute("block-lines"), 64);
+		} else {
+			NRT_MAX_STALE_SECONDS = 1.0;
+			NRT_MIN_STALE_SECONDS = 0.025;
+			COMMIT_INTERVAL_SECONDS = 60;
+			CONTENT_HASH = true;
+			INDEX_LAYOUT = IndexLayout.LINE;
+			BLOCK_LINES = 64;
+		}
+
+		XPathElement searchElement = rootElement.getChildElement("search");
+
+		if (searchElement != null) {
+			SEARCH_TIMEOUT_SECONDS = parseDouble(searchElement.getAttribute("timeout-seconds"), 10);
+			SEARCH_THREADS = (int) parseDouble(searchElement.getAttribute("threads"), getDefaultSearchThreads());
+			SEARCH_SLICE_MAX_DOCS = Math.max(1,
+					(int) parseDouble(searchElement.getAttribute("slice-max-docs"), 250_000));
+			SEARCH_SLICE_MAX_SEGMENTS = Math.max(1,
+					(int) parseDouble(searchElement.getAttribute("slice-max-segments"), 5));
+		} else {
+			SEARCH_TIMEOUT_SECONDS = 10;
+			SEARCH_THREADS = getDefaultSearchThreads();
+			SEARCH_SLICE_MAX_DOCS = 250_000;
+			SEARCH_SLICE_MAX_SEGMENTS = 5;
+		}
+
+		XPathElement metricsElement = rootElement.getChildElement("metrics");
+
+		METRICS_JSON_LOG = metricsElement != null && metricsElement.getAttribute("json-log").equals("true");
+
+		XPathElement ignoredDirectoriesElement = rootElement.getChildElement("ignored-directories");
+
+		if (ignoredDirectoriesElement != null) {
+			Set<String> ignoredDirectories = new HashSet<>();
+
+			for (XPathElement directoryElement : ignoredDirectoriesElement.getChildElements("directory")) {
+				String directory = directoryElement.getTextContent().trim();
+
+				if (!directory.isEmpty()) {
+					ignoredDirectories.add(directory);
+				}
+			}
+
+			IGNORED_DIRECTORIES = ignoredDirectories;
+		} else {
+			IGNORED_DIRECTORIES = new HashSet<>(DEFAULT_IGNORED_DIRECTORIES);
+		}
+
 		XPathElement indexersElement = rootElement.getChildElement("indexers");
 
 		// Creates the regex to use to match the list of extensions
@@ -185,6 +602,8 @@ public class CASTLESearchingSettings {
 			}
 
 			XPathNodeList<XPathElement> indexerElementss = indexersElement.getChildElements("indexer");
+			Map<String, Long> documentVersions = new HashMap<>();
+			Map<String, Indexer> indexers = new HashMap<>();
 
 			for (XPathElement indexerElement : indexerElementss) {
 				// TODO: also support pattern matching
@@ -197,9 +616,16 @@ public class CASTLESearchingSettings {
 					// Make literal pattern, to handle any special characters in
 					// extension
 					extensionsRegexJoiner.add(Pattern.literal(extension));
+
+					Indexer indexer = Indexers.getIndexer(indexerElement.getAttribute("type"), extension);
+					indexers.put(extension, indexer);
+
+					documentVersions.put(extension, getIndexerDocumentVersion(indexerElement, indexer));
 				}
 			}
 
+			DOCUMENT_VERSIONS = documentVersions;
+			INDEXERS = indexers;
 			extensionsRegex = extensionsRegexJoiner.toString();
 		} else {
 			extensionsRegex = "";
@@ -222,6 +648,11 @@ public class CASTLESearchingSettings {
 		// want to handle certain txt files differently than others)
 		XPathElement javaIndexer = rootElement.xpathElement("indexers/indexer[@ext='java']");
 
+		// Clear the previous settings, so reloading the settings doesn't add
+		// the filename patterns and line types again
+		JAVA_FILENAME_PATTERNS.clear();
+		JAVA_LINE_TYPES.clear();
+
 		// TODO: expand to allow any indexer to specify custom settings
 		if (javaIndexer != null) {
 			XPathNodeList<XPathNode> filenamePatterns = javaIndexer.xpathList("filename-patterns/filename-pattern");
@@ -271,60 +702,28 @@ public class CASTLESearchingSettings {
 			}
 		}
 
-		SEARCHERS = new LinkedHashMap<>();
-		SEARCHERS.put(SEARCHER_WORKSPACE.getName(), SEARCHER_WORKSPACE);
-		// SEARCHERS.put(SEARCHER_INCREMENTAL.getName(), SEARCHER_INCREMENTAL);
-
-		// Read searchers from XML
-		XPathElement searchersElement = rootElement.getChildElement("searchers");
-
-		if (searchersElement != null) {
-			XPathNodeList<XPathElement> searchers = searchersElement.getChildElements("searcher");
-
-			for (XPathElement searcher : searchers) {
-				String name = searcher.getAttribute("name");
-				String indexPathString = searcher.getAttribute("index-path");
-				String hitLimitString = searcher.getAttribute("hit-limit");
-
-				if (!name.isEmpty() && !indexPathString.isEmpty()) {
-					int hitLimit;
+		JAVA_LINE_TYPE_CLASSIFIER = new LineTypeClassifier(JAVA_LINE_TYPES);
+	}
 
-					if (hitLimitString.isEmpty()) {
-						hitLimit = CASTLESearchingView.DEFAULT_SMALL_HIT_LIMIT;
-					} else {
-						try {
-							hitLimit = Integer.parseInt(hitLimitString);
-						} catch (NumberFormatException e) {
-							hitLimit = CASTLESearchingView.DEFAULT_SMALL_HIT_LIMIT;
-						}
-					}
+	/**
+	 * Gets the classifier for the Java line types
+	 *
+	 * @return the classifier, which finds the first of the
+	 *         {@link #JAVA_LINE_TYPES} that matches a line
+	 */
+	public static LineTypeClassifier getJavaLineTypeClassifier() {
+		return JAVA_LINE_TYPE_CLASSIFIER;
+	}
 
-					CASTLESearcher castleSearcher = new CASTLESearcher(name, Paths.get(indexPathString), hitLimit);
-					SEARCHERS.put(castleSearcher.getName(), castleSearcher);
-				}
-			}
+	private static double parseDouble(final String value, final double defaultValue) {
+		if (value.isEmpty()) {
+			return defaultValue;
 		}
 
-		// TODO: move to settings file
-		// INDEX_PATHS.put(OPTION_SEARCH_CONTROL_REPORT,
-		// Paths.get("G:\\LogKeepIndexer"));
-		SEARCHER_NAMES = SEARCHERS.keySet().toArray(new String[0]);
-		view.setSearcherNames(SEARCHER_NAMES);
-
-		// TODO: Read last value from settings
-		maybeRefreshSearcherManagers();
-		Activator.refreshStyles();
-
-		if (getSearcher(searcherName) != null) {
-			// Retain combo text since still valid
-			view.setSearcherName(searcherName);
-		} else {
-			// TODO: isn't setting correctly when refresh font on initial view
-			// load
-			// (or more likely it's setting then being cleared)
-
-			// TODO: should load from settings file? (need to add setting)
-			view.setSearcherName(SEARCHER_WORKSPACE.getName());
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return defaultValue;
 		}
 	}
 
@@ -381,25 +780,45 @@ public class CASTLESearchingSettings {
 	 * @return the searcher or <code>null</code> if the index does not exist
 	 * @throws IOException
 	 */
-	private static SearcherManager createSearcherManager(final Path indexPath) throws IOException {
-		// TODO: see about implement NRT (Near Real Time)
-		// http://blog.mikemccandless.com/2011/11/near-real-time-readers-with-lucenes.html
-
+	private static synchronized SearcherManager createSearcherManager(final Path indexPath) throws IOException {
 		// http://blog.mikemccandless.com/2011/09/lucenes-searchermanager-simplifies.html
 
+		SearcherManager searcherManager = SEARCHER_MANAGERS.get(indexPath);
+
+		if (searcherManager != null) {
+			// Created by another thread
+			return searcherManager;
+		}
+
 		Directory dir = FSDirectory.open(indexPath);
 
 		// If index doesn't already exist, cannot search it
 		if (!DirectoryReader.indexExists(dir)) {
+			dir.close();
 			return null;
 		}
 
-		SearcherManager searcherManager = new SearcherManager(dir, null);
+		if (indexPath.equals(CASTLEIndexer.INDEX_PATH)) {
+			// Search the workspace index using near-real-time readers
+			// (opened from the IndexWriter used to index the workspace)
+			dir.close();
+			searcherManager = CASTLEIndexer.createNearRealTimeSearcherManager();
+		} else {
+			searcherManager = new SearcherManager(dir, new ConcurrentSearcherFactory());
+			searcherManager.addListener(CASTLEMetrics.createRefreshListener());
+		}
+
+		// Remove the cached searches of the index when it changes
+		searcherManager.addListener(ResultCache.createRefreshListener(indexPath));
+
 		SEARCHER_MANAGERS.put(indexPath, searcherManager);
 		return searcherManager;
 	}
 
 	public static void closeSearcherManagers() {
+		// Stop reopening the workspace searcher before closing it
+		CASTLEIndexer.stopNearRealTimeReopen();
+
 		for (SearcherManager searcherManager : SEARCHER_MANAGERS.values()) {
 			try {
 				searcherManager.close();
@@ -408,6 +827,9 @@ public class CASTLESearchingSettings {
 				e.printStackTrace();
 			}
 		}
+
+		SEARCHER_MANAGERS.clear();
+		ResultCache.clear();
 	}
 
 	public static void stopWatchingSettings() {
@@ -422,11 +844,39 @@ public class CASTLESearchingSettings {
 		}
 	}
 
+	// Default number of threads used to search an index
+	// (at most 4, so searching doesn't use every core)
+	private static int getDefaultSearchThreads() {
+		return Math.min(4, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Gets the number of milliseconds a search may take
+	 *
+	 * @return the number of milliseconds (0 for no limit)
+	 */
+	public static long getSearchTimeoutMillis() {
+		return Math.max(0, (long) (SEARCH_TIMEOUT_SECONDS * 1000));
+	}
+
+	/**
+	 * Indicates whether the directory should be skipped when finding files to
+	 * index
+	 *
+	 * @param directory
+	 *            the directory
+	 * @return <code>true</code> if the directory name is one of the ignored
+	 *         directories
+	 */
+	public static boolean shouldIgnoreDirectory(final Path directory) {
+		Path filename = directory.getFileName();
+
+		return filename != null && IGNORED_DIRECTORIES.contains(filename.toString());
+	}
+
 	public static boolean shouldIndexFile(final Path path) {
 		String pathString = path.toString();
 
-		// TODO: support ignoring directories
-
 		if (!FILES_TO_INDEX_MATCHER.get().reset(pathString).find()) {
 			return false;
 		}
@@ -437,6 +887,19 @@ public class CASTLESearchingSettings {
 	private static final String DEFAULT_SETTINGS_XML = "<settings xmlns='https://codesaway.info/CASTLESearching/'\r\n"
 			+ "	xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'\r\n"
 			+ "	xsi:schemaLocation='https://codesaway.info/CASTLESearching/CASTLESearching.xsd'>\r\n"
+			+ "	<index max-stale-seconds='1' min-stale-seconds='0.025' commit-interval-seconds='60'\r\n"
+			+ "		content-hash='true' layout='line' block-lines='64' />\r\n"
+			+ "	<search timeout-seconds='10' slice-max-docs='250000' slice-max-segments='5' />\r\n"
+			+ "	<metrics json-log='false' />\r\n"
+			+ "	<ignored-directories>\r\n"
+			+ "		<directory>.git</directory>\r\n"
+			+ "		<directory>.svn</directory>\r\n"
+			+ "		<directory>.hg</directory>\r\n"
+			+ "		<directory>.metadata</directory>\r\n"
+			+ "		<directory>bin</directory>\r\n"
+			+ "		<directory>target</directory>\r\n"
+			+ "		<directory>node_modules</directory>\r\n"
+			+ "	</ignored-directories>\r\n"
 			+ "	<indexers version='0'>\r\n" + "		<indexer ext='java'>\r\n" + "			<filename-patterns>\r\n"
 			+ "				<filename-pattern>\r\n" + "             	<pattern>(?!)</pattern>\r\n"
 			+ "             	<field>$0</field>\r\n" + "             	<value>$0</value>\r\n"
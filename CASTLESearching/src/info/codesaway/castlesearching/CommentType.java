@@ -1,7 +1,7 @@
 package info.codesaway.castlesearching;
 
 public enum CommentType {
-	NONE("NONE"), SINGLE("comment"), BLOCK("block comment"), JAVADOC("Javadoc"),
+	NONE("NONE"), BLOCK("block comment"), JAVADOC("Javadoc"),
 
 	/**
 	 * Indicates a block comment which starts and ends on the same line
@@ -9,9 +9,9 @@ public enum CommentType {
 	SINGLE_BLOCK("block comment"),
 
 	/**
-	 * Indicates a block comment which started but didn't end and has other content on the same line
+	 * Indicates the line is inside a text block, which continues onto the next line
 	 */
-	BLOCK_START("block start");
+	TEXT_BLOCK("text block");
 
 	private final String type;
 
@@ -7,11 +7,23 @@ public class DocumentInfo {
 	private final long lastModified;
 	private final long documentVersion;
 
+	// File size in bytes (-1 if unknown, such as for documents indexed before
+	// the file state manifest existed)
+	private final long size;
+	private final long contentHash;
+
 	public DocumentInfo(final long lastModified, final long documentVersion) {
 		//	public DocumentInfo(final int documentNumber, final long lastModified) {
 		//		this.documentNumber = documentNumber;
+		this(lastModified, documentVersion, -1, 0);
+	}
+
+	public DocumentInfo(final long lastModified, final long documentVersion, final long size,
+			final long contentHash) {
 		this.lastModified = lastModified;
 		this.documentVersion = documentVersion;
+		this.size = size;
+		this.contentHash = contentHash;
 	}
 
 	//	public int getDocumentNumber() {
@@ -25,4 +37,12 @@ public class DocumentInfo {
 	public long getDocumentVersion() {
 		return this.documentVersion;
 	}
+
+	public long getSize() {
+		return this.size;
+	}
+
+	public long getContentHash() {
+		return this.contentHash;
+	}
 }
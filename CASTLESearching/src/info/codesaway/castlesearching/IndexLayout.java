@@ -0,0 +1,47 @@
+package info.codesaway.castlesearching;
+
+/**
+ * How files are split into documents in the index
+ */
+public enum IndexLayout {
+	/**
+	 * Each line is a separate document
+	 */
+	LINE,
+
+	/**
+	 * Each block of lines is a separate document
+	 *
+	 * <p>
+	 * The lines of the block are stored in the document. When searching, the
+	 * stored lines of the matching blocks are indexed into an in-memory index
+	 * (the same as the line layout indexes them) to determine the matching
+	 * lines.
+	 * </p>
+	 *
+	 * <p>
+	 * The number of hits is the number of matching blocks, rather than the
+	 * number of matching lines.
+	 * </p>
+	 */
+	BLOCK;
+
+	/**
+	 * Gets the layout with the specified name
+	 *
+	 * @param name
+	 *            the name (case-insensitive)
+	 * @param defaultLayout
+	 *            the layout to return if the name doesn't match a layout
+	 * @return the layout
+	 */
+	public static IndexLayout from(final String name, final IndexLayout defaultLayout) {
+		for (IndexLayout layout : values()) {
+			if (layout.name().equalsIgnoreCase(name)) {
+				return layout;
+			}
+		}
+
+		return defaultLayout;
+	}
+}
@@ -0,0 +1,73 @@
+package info.codesaway.castlesearching;
+
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+
+/**
+ * Shows the time spent in each stage of indexing and searching
+ */
+public class StatisticsDialog extends Dialog {
+	private static final int RESET_ID = IDialogConstants.CLIENT_ID + 1;
+
+	private Text statisticsText;
+
+	public StatisticsDialog(final Shell parentShell) {
+		super(parentShell);
+	}
+
+	@Override
+	protected void configureShell(final Shell newShell) {
+		super.configureShell(newShell);
+		newShell.setText("CASTLE Statistics");
+	}
+
+	@Override
+	protected boolean isResizable() {
+		return true;
+	}
+
+	@Override
+	protected Control createDialogArea(final Composite parent) {
+		Composite composite = (Composite) super.createDialogArea(parent);
+
+		this.statisticsText = new Text(composite, SWT.MULTI | SWT.READ_ONLY | SWT.BORDER | SWT.H_SCROLL | SWT.V_SCROLL);
+		// Use a monospace font, so the columns line up
+		this.statisticsText.setFont(JFaceResources.getTextFont());
+
+		GridData gridData = new GridData(SWT.FILL, SWT.FILL, true, true);
+		gridData.widthHint = this.convertWidthInCharsToPixels(120);
+		gridData.heightHint = this.convertHeightInCharsToPixels(24);
+		this.statisticsText.setLayoutData(gridData);
+
+		this.statisticsText.setText(CASTLEMetrics.toText());
+
+		return composite;
+	}
+
+	@Override
+	protected void createButtonsForButtonBar(final Composite parent) {
+		this.createButton(parent, RESET_ID, "Reset", false);
+		this.createButton(parent, IDialogConstants.CLOSE_ID, IDialogConstants.CLOSE_LABEL, true);
+	}
+
+	@Override
+	protected void buttonPressed(final int buttonId) {
+		if (buttonId == RESET_ID) {
+			CASTLEMetrics.reset();
+			this.statisticsText.setText(CASTLEMetrics.toText());
+		} else if (buttonId == IDialogConstants.CLOSE_ID) {
+			this.close();
+		} else {
+			super.buttonPressed(buttonId);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package info.codesaway.castlesearching.handlers;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import info.codesaway.castlesearching.StatisticsDialog;
+
+public class ShowStatisticsHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(final ExecutionEvent event) throws ExecutionException {
+		new StatisticsDialog(HandlerUtil.getActiveShellChecked(event)).open();
+		return null;
+	}
+}
@@ -0,0 +1,183 @@
+package info.codesaway.castlesearching.headless;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler.Operator;
+
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+
+/**
+ * Command-line entry point for indexing and searching without Eclipse
+ *
+ * <pre>
+ * index --root &lt;dir&gt; --index &lt;dir&gt; [--settings &lt;file&gt;] [--threads &lt;n&gt;] [--full] [--metrics]
+ * search --index &lt;dir&gt; [--settings &lt;file&gt;] [--limit &lt;n&gt;] [--or] [--comments] [--metrics] &lt;query&gt;
+ * </pre>
+ *
+ * <p>
+ * <code>--metrics</code> writes the time spent in each stage of indexing or
+ * searching to standard error.
+ * </p>
+ *
+ * <p>
+ * The settings file uses the same format as the plugin's settings.xml; the
+ * synonym files are read from the same directory as the settings file.
+ * </p>
+ */
+public final class CASTLESearchingHeadless {
+	private static final String USAGE = "Usage:\n"
+			+ "  index --root <dir> --index <dir> [--settings <file>] [--threads <n>] [--full] [--metrics]\n"
+			+ "  search --index <dir> [--settings <file>] [--limit <n>] [--or] [--comments] [--metrics] <query>";
+
+	private CASTLESearchingHeadless() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) {
+		try {
+			System.exit(run(args));
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static int run(final String[] args) throws Exception {
+		if (args.length == 0) {
+			throw new IllegalArgumentException("Missing command");
+		}
+
+		String command = args[0];
+
+		Path root = null;
+		Path indexPath = null;
+		Path settingsPath = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean fullRebuild = false;
+		int hitLimit = 100;
+		Operator defaultOperator = Operator.AND;
+		boolean shouldIncludeComments = false;
+		boolean showMetrics = false;
+		List<String> queryParts = new ArrayList<>();
+
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+
+			switch (arg) {
+			case "--root":
+				root = Paths.get(getValue(args, ++i, arg));
+				break;
+			case "--index":
+				indexPath = Paths.get(getValue(args, ++i, arg));
+				break;
+			case "--settings":
+				settingsPath = Paths.get(getValue(args, ++i, arg));
+				break;
+			case "--threads":
+				threads = parseInt(getValue(args, ++i, arg), arg);
+				break;
+			case "--limit":
+				hitLimit = parseInt(getValue(args, ++i, arg), arg);
+				break;
+			case "--full":
+				fullRebuild = true;
+				break;
+			case "--or":
+				defaultOperator = Operator.OR;
+				break;
+			case "--comments":
+				shouldIncludeComments = true;
+				break;
+			case "--metrics":
+				showMetrics = true;
+				break;
+			default:
+				if (arg.startsWith("--")) {
+					throw new IllegalArgumentException("Unknown option: " + arg);
+				}
+
+				queryParts.add(arg);
+			}
+		}
+
+		if (indexPath == null) {
+			throw new IllegalArgumentException("Missing --index");
+		}
+
+		indexPath = indexPath.toAbsolutePath().normalize();
+
+		CASTLESearchingSettings.loadIndexSettings(settingsPath);
+
+		// Synonym files are next to the settings file (like in the state location)
+		Path configDirectory = settingsPath != null ? settingsPath.toAbsolutePath().getParent() : Paths.get(".");
+
+		switch (command) {
+		case "index":
+			if (root == null) {
+				throw new IllegalArgumentException("Missing --root");
+			}
+
+			return index(root.toAbsolutePath().normalize(), indexPath, configDirectory, threads, fullRebuild,
+					showMetrics);
+		case "search":
+			if (queryParts.isEmpty()) {
+				throw new IllegalArgumentException("Missing query");
+			}
+
+			new HeadlessSearcher(indexPath, configDirectory).search(String.join(" ", queryParts), hitLimit,
+					defaultOperator, shouldIncludeComments, System.out);
+
+			if (showMetrics) {
+				System.err.print(CASTLEMetrics.toText());
+			}
+
+			return 0;
+		default:
+			throw new IllegalArgumentException("Unknown command: " + command);
+		}
+	}
+
+	private static int index(final Path root, final Path indexPath, final Path configDirectory, final int threads,
+			final boolean fullRebuild, final boolean showMetrics) throws IOException {
+		HeadlessIndexer indexer = new HeadlessIndexer(root, indexPath, configDirectory, threads);
+		IndexStats stats = indexer.index(fullRebuild);
+
+		System.out.println(stats);
+
+		if (showMetrics) {
+			System.err.print(CASTLEMetrics.toText());
+		}
+
+		// Same as the plugin, the log is next to the index
+		if (CASTLESearchingSettings.METRICS_JSON_LOG && indexPath.getParent() != null) {
+			CASTLEMetrics.logJson(indexPath.getParent(), "index", stats.toString());
+		}
+
+		return stats.getFailedFileCount() == 0 ? 0 : 1;
+	}
+
+	private static String getValue(final String[] args, final int index, final String option) {
+		if (index >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+
+		return args[index];
+	}
+
+	private static int parseInt(final String value, final String option) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package info.codesaway.castlesearching.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.FSDirectory;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import com.google.common.collect.ImmutableRangeMap;
+import com.google.common.collect.RangeMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.DocumentInfo;
+import info.codesaway.castlesearching.LuceneStep;
+import info.codesaway.castlesearching.indexer.FileDocumentBuilder;
+import info.codesaway.castlesearching.indexer.FileStateManifest;
+import info.codesaway.castlesearching.indexer.LineReader;
+import info.codesaway.castlesearching.indexer.WorkspaceWalker;
+import info.codesaway.castlesearching.indexer.java.JavaElementRanges;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+import info.codesaway.castlesearching.util.PathWithLastModified;
+import info.codesaway.castlesearching.util.PathWithTerm;
+
+/**
+ * Indexes a directory without Eclipse (such as on a build server)
+ *
+ * <p>
+ * Creates the same documents as the plugin, using the settings from
+ * {@link CASTLESearchingSettings#loadIndexSettings(Path)}. The files are
+ * tracked using a file state manifest, so later runs only reindex the files
+ * which changed.
+ * </p>
+ */
+@NonNullByDefault
+public class HeadlessIndexer {
+	private final Path root;
+	private final Path indexPath;
+	private final Path configDirectory;
+
+	private final int threadCount;
+
+	private final AtomicInteger indexedFileCount = new AtomicInteger();
+	private final AtomicInteger unchangedFileCount = new AtomicInteger();
+	private final AtomicInteger failedFileCount = new AtomicInteger();
+	private final AtomicLong indexedByteCount = new AtomicLong();
+	private final AtomicLong documentCount = new AtomicLong();
+
+	/**
+	 *
+	 * @param root
+	 *            the directory to index (each directory directly under the
+	 *            root is a project)
+	 * @param indexPath
+	 *            the index directory
+	 * @param configDirectory
+	 *            the directory containing the analyzer files (such as the
+	 *            synonym files)
+	 * @param threadCount
+	 *            the number of threads used to read, parse, and analyze files
+	 */
+	public HeadlessIndexer(final Path root, final Path indexPath, final Path configDirectory, final int threadCount) {
+		this.root = root;
+		this.indexPath = indexPath;
+		this.configDirectory = configDirectory;
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	/**
+	 * Gets the directory containing the file state manifest for the index
+	 *
+	 * <p>
+	 * Same layout as the plugin (for example, WorkspaceIndex and
+	 * WorkspaceIndexManifest), so an index built headless can be copied to
+	 * the plugin's state location.
+	 * </p>
+	 */
+	public static Path getManifestPath(final Path indexPath) {
+		return Paths.get(indexPath.toString() + "Manifest");
+	}
+
+	/**
+	 * Indexes the files under the root
+	 *
+	 * @param fullRebuild
+	 *            <code>true</code> to reindex every file;
+	 *            <code>false</code> to only index the files which changed
+	 * @return the statistics for the run
+	 * @throws IOException
+	 */
+	public IndexStats index(final boolean fullRebuild) throws IOException {
+		long startTime = System.nanoTime();
+
+		IndexWriterConfig config = new IndexWriterConfig(
+				CASTLESearching.createAnalyzer(LuceneStep.INDEX, this.configDirectory));
+
+		try (FSDirectory directory = FSDirectory.open(this.indexPath);
+				IndexWriter writer = new IndexWriter(directory, config)) {
+			FileStateManifest manifest = FileStateManifest.load(getManifestPath(this.indexPath), writer);
+
+			Map<String, DocumentInfo> documents;
+
+			if (fullRebuild || !manifest.isValid()) {
+				// Without a manifest, don't know which files are indexed
+				// (such as if indexed by an older version), so rebuild
+				writer.deleteAll();
+				documents = new HashMap<>();
+				manifest.reset(documents);
+			} else {
+				documents = new HashMap<>(manifest.getFiles());
+			}
+
+			Set<String> walkedPathnames = ConcurrentHashMap.newKeySet();
+			List<PathWithLastModified> modifiedPaths = new ArrayList<>();
+
+			WorkspaceWalker walker = new WorkspaceWalker(this.root, p -> {
+				walkedPathnames.add(p.getPathname());
+				CASTLEMetrics.INDEX_FILES_WALKED.increment();
+
+				long statStartTime = System.nanoTime();
+				boolean shouldIndex = this.shouldIndex(p, documents, manifest);
+				CASTLEMetrics.INDEX_STAT.recordSince(statStartTime);
+
+				if (shouldIndex) {
+					synchronized (modifiedPaths) {
+						modifiedPaths.add(p);
+					}
+				}
+			});
+
+			long walkStartTime = System.nanoTime();
+			walker.walk();
+			CASTLEMetrics.INDEX_WALK.recordSince(walkStartTime);
+
+			// Index the most recently modified files first (same as the plugin)
+			modifiedPaths.sort(Comparator.comparing(PathWithLastModified::getLastModified).reversed());
+
+			this.index(writer, manifest, modifiedPaths);
+
+			// Delete the documents for files which no longer exist or are
+			// skipped by the walk (such as files in a directory which is now
+			// ignored)
+			int deletedFileCount = 0;
+
+			for (String pathname : documents.keySet()) {
+				if (!walkedPathnames.contains(pathname)
+						&& (walker.isSkipped(Paths.get(pathname)) || !new File(pathname).exists())) {
+					writer.deleteDocuments(PathWithTerm.getTerm(pathname));
+					manifest.remove(pathname);
+					deletedFileCount++;
+				}
+			}
+
+			long commitStartTime = System.nanoTime();
+			manifest.commit(writer);
+			CASTLEMetrics.INDEX_COMMIT.recordSince(commitStartTime);
+
+			long elapsedNanos = System.nanoTime() - startTime;
+
+			return new IndexStats(walkedPathnames.size(), this.indexedFileCount.get(),
+					this.unchangedFileCount.get(), deletedFileCount, this.failedFileCount.get(),
+					this.indexedByteCount.get(), this.documentCount.get(), elapsedNanos);
+		}
+	}
+
+	private boolean shouldIndex(final PathWithLastModified path, final Map<String, DocumentInfo> documents,
+			final FileStateManifest manifest) {
+		DocumentInfo doc = documents.get(path.getPathname());
+
+		if (doc == null) {
+			// Newly added file
+			return true;
+		}
+
+		String extension = FileDocumentBuilder.getExtension(path.getPath().getFileName().toString());
+
+		// Reindex if the indexer for the file type changed
+		if (CASTLESearchingSettings.getDocumentVersion(extension) != doc.getDocumentVersion()) {
+			return true;
+		}
+
+		if (path.getLastModified() == doc.getLastModified()) {
+			return false;
+		}
+
+		// Last modified changed, but the content may not have
+		// (such as after checking out a different branch)
+		if (FileDocumentBuilder.isContentUnchanged(path, doc)) {
+			this.unchangedFileCount.incrementAndGet();
+			CASTLEMetrics.INDEX_FILES_UNCHANGED.increment();
+			manifest.put(path.getPathname(), new DocumentInfo(path.getLastModified(), doc.getDocumentVersion(),
+					doc.getSize(), doc.getContentHash()));
+
+			return false;
+		}
+
+		return true;
+	}
+
+	private void index(final IndexWriter writer, final FileStateManifest manifest,
+			final List<PathWithLastModified> paths) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.threadCount,
+				new ThreadFactoryBuilder().setNameFormat("CASTLE Headless Indexer %d").setDaemon(true).build());
+
+		// Keeps memory bounded, since each task holds the file's documents
+		int queueSize = 2 * this.threadCount;
+		ArrayDeque<Future<?>> tasks = new ArrayDeque<>(queueSize);
+
+		try {
+			for (PathWithLastModified path : paths) {
+				tasks.add(executor.submit(() -> {
+					long startTime = System.nanoTime();
+
+					try {
+						this.addDocuments(writer, manifest, path);
+					} finally {
+						CASTLEMetrics.INDEX_ADD_DOCUMENT.recordSince(startTime);
+					}
+
+					return null;
+				}));
+
+				while (tasks.size() >= queueSize) {
+					this.completeTask(tasks.remove());
+				}
+			}
+
+			while (!tasks.isEmpty()) {
+				this.completeTask(tasks.remove());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void completeTask(final Future<?> task) throws IOException {
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while indexing", e);
+		} catch (ExecutionException e) {
+			// Skip the file, but keep indexing the other files
+			this.failedFileCount.incrementAndGet();
+			e.getCause().printStackTrace();
+		}
+	}
+
+	private void addDocuments(final IndexWriter writer, final FileStateManifest manifest,
+			final PathWithLastModified path) throws IOException {
+		Path file = path.getPath();
+		Term term = path.getTerm();
+
+		if (!Files.isRegularFile(file)) {
+			// Deleted since walking
+			writer.deleteDocuments(term);
+			manifest.remove(path.getPathname());
+			return;
+		}
+
+		// Indicate which project in
+		Path relative = this.root.relativize(file);
+		String project = relative.getNameCount() > 0 ? relative.getName(0).toString() : "";
+
+		String extension = FileDocumentBuilder.getExtension(file.getFileName().toString());
+
+		long readStartTime = System.nanoTime();
+		byte[] bytes = Files.readAllBytes(file);
+		CASTLEMetrics.INDEX_READ.recordSince(readStartTime);
+		CASTLEMetrics.INDEX_BYTES_READ.add(bytes.length);
+
+		long contentHash = CASTLESearchingSettings.CONTENT_HASH ? FileDocumentBuilder.getContentHash(bytes) : 0;
+		long documentVersion = CASTLESearchingSettings.getDocumentVersion(extension);
+
+		// There's no Eclipse encoding, so files which aren't UTF-8 use the
+		// default charset
+		Charset charset = LineReader.detectCharset(bytes, () -> LineReader.DEFAULT_CHARSET);
+
+		RangeMap<Integer, String> javaElements = extension.equals("java")
+				? JavaElementRanges.getJavaElements(bytes, charset, contentHash)
+				: ImmutableRangeMap.of();
+
+		List<Document> documents = FileDocumentBuilder.build(file, project, path.getLastModified(), bytes, charset,
+				javaElements);
+
+		long analysisStartTime = System.nanoTime();
+		writer.updateDocuments(term, documents);
+		CASTLEMetrics.INDEX_ANALYSIS.recordSince(analysisStartTime);
+
+		manifest.put(path.getPathname(),
+				new DocumentInfo(path.getLastModified(), documentVersion, bytes.length, contentHash));
+
+		this.indexedFileCount.incrementAndGet();
+		this.indexedByteCount.addAndGet(bytes.length);
+		this.documentCount.addAndGet(documents.size());
+
+		CASTLEMetrics.INDEX_FILES_INDEXED.increment();
+		CASTLEMetrics.INDEX_DOCUMENTS_ADDED.add(documents.size());
+	}
+}
@@ -0,0 +1,143 @@
+package info.codesaway.castlesearching.headless;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler.Operator;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.FSDirectory;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.CASTLESearch;
+import info.codesaway.castlesearching.CASTLESearchResultEntry;
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.LuceneStep;
+import info.codesaway.castlesearching.searcher.CASTLESearcher;
+import info.codesaway.castlesearching.searcher.ConcurrentSearcherFactory;
+import info.codesaway.castlesearching.searcher.PinnedSearcher;
+import info.codesaway.castlesearching.searcher.QueryTemplate;
+import info.codesaway.castlesearching.searcher.ResultPager;
+import info.codesaway.castlesearching.util.JsonUtilities;
+
+/**
+ * Searches an index without Eclipse, writing each result as a line of JSON
+ *
+ * <p>
+ * Uses the same query parsing and ranking as searching from the view.
+ * </p>
+ */
+@NonNullByDefault
+public class HeadlessSearcher {
+	private final Path indexPath;
+	private final Path configDirectory;
+
+	/**
+	 *
+	 * @param indexPath
+	 *            the index directory
+	 * @param configDirectory
+	 *            the directory containing the analyzer files (such as the
+	 *            synonym files)
+	 */
+	public HeadlessSearcher(final Path indexPath, final Path configDirectory) {
+		this.indexPath = indexPath;
+		this.configDirectory = configDirectory;
+	}
+
+	/**
+	 * Searches the index
+	 *
+	 * @param text
+	 *            the search text
+	 * @param hitLimit
+	 *            the maximum number of hits
+	 * @param defaultOperator
+	 *            the operator used between terms
+	 * @param shouldIncludeComments
+	 *            whether to also search comments
+	 * @param out
+	 *            where to write the results (one JSON object per line)
+	 * @return the number of results written
+	 * @throws IOException
+	 * @throws QueryNodeException
+	 * @throws ParseException
+	 */
+	public int search(final String text, final int hitLimit, final Operator defaultOperator,
+			final boolean shouldIncludeComments, final PrintStream out)
+			throws IOException, QueryNodeException, ParseException {
+		CASTLESearcher searcher = new CASTLESearcher("Headless", this.indexPath, hitLimit);
+		CASTLESearch search = new CASTLESearch(text, 0, false, hitLimit, Optional.empty(), searcher,
+				defaultOperator, shouldIncludeComments);
+
+		// Not cached, since the analyzer files are in the config directory
+		// (rather than the plugin's state location)
+		QueryTemplate queryTemplate = QueryTemplate.create(
+				CASTLESearching.createAnalyzer(LuceneStep.QUERY, this.configDirectory),
+				CASTLESearching.createAnalyzer(LuceneStep.INDEX, this.configDirectory));
+		Query query = queryTemplate.parseQuery(search);
+		BooleanQuery booleanQuery = queryTemplate.createBooleanQuery(search, query);
+
+		try (FSDirectory directory = FSDirectory.open(this.indexPath)) {
+			SearcherManager searcherManager = new SearcherManager(directory, new ConcurrentSearcherFactory());
+
+			try {
+				PinnedSearcher pinnedSearcher = PinnedSearcher.acquire(searcherManager);
+				ResultPager pager = ResultPager.search(pinnedSearcher, booleanQuery, queryTemplate.getIndexAnalyzer(),
+						hitLimit, CASTLESearchingSettings.getSearchTimeoutMillis());
+
+				try {
+					int written = 0;
+
+					// The result count changes as hits are loaded (a block
+					// document has a result for each matching line)
+					for (int i = 0; i < pager.getResultCount(); i++) {
+						CASTLESearchResultEntry entry = pager.getResult(i);
+
+						if (entry == null) {
+							break;
+						}
+
+						out.println(toJson(entry));
+						written++;
+					}
+
+					if (pager.isPartial()) {
+						System.err.println("Search timed out; showing partial results");
+					}
+
+					return written;
+				} finally {
+					pager.release();
+				}
+			} finally {
+				searcherManager.close();
+			}
+		}
+	}
+
+	private static String toJson(final CASTLESearchResultEntry entry) {
+		StringBuilder json = new StringBuilder("{");
+
+		appendField(json, "result", entry.getResultNumber());
+		appendField(json, "file", entry.getFile());
+		appendField(json, "element", entry.getElement());
+		appendField(json, "line", entry.getLine());
+		appendField(json, "type", entry.getType());
+		appendField(json, "content", entry.getContent());
+		appendField(json, "path", entry.getPath());
+
+		return json.append('}').toString();
+	}
+
+	private static void appendField(final StringBuilder json, final String name, final String value) {
+		JsonUtilities.appendFieldName(json, name);
+		JsonUtilities.appendString(json, value);
+	}
+}
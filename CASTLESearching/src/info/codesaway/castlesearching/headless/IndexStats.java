@@ -0,0 +1,96 @@
+package info.codesaway.castlesearching.headless;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics from running the headless indexer
+ */
+public class IndexStats {
+	private final int walkedFileCount;
+	private final int indexedFileCount;
+	private final int unchangedFileCount;
+	private final int deletedFileCount;
+	private final int failedFileCount;
+	private final long indexedByteCount;
+	private final long documentCount;
+	private final long elapsedNanos;
+
+	public IndexStats(final int walkedFileCount, final int indexedFileCount, final int unchangedFileCount,
+			final int deletedFileCount, final int failedFileCount, final long indexedByteCount,
+			final long documentCount, final long elapsedNanos) {
+		this.walkedFileCount = walkedFileCount;
+		this.indexedFileCount = indexedFileCount;
+		this.unchangedFileCount = unchangedFileCount;
+		this.deletedFileCount = deletedFileCount;
+		this.failedFileCount = failedFileCount;
+		this.indexedByteCount = indexedByteCount;
+		this.documentCount = documentCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Gets the number of files walked (including files which didn't change)
+	 */
+	public int getWalkedFileCount() {
+		return this.walkedFileCount;
+	}
+
+	public int getIndexedFileCount() {
+		return this.indexedFileCount;
+	}
+
+	/**
+	 * Gets the number of files whose last modified changed, but whose content
+	 * didn't (so weren't reindexed)
+	 */
+	public int getUnchangedFileCount() {
+		return this.unchangedFileCount;
+	}
+
+	public int getDeletedFileCount() {
+		return this.deletedFileCount;
+	}
+
+	public int getFailedFileCount() {
+		return this.failedFileCount;
+	}
+
+	public long getIndexedByteCount() {
+		return this.indexedByteCount;
+	}
+
+	/**
+	 * Gets the number of documents added (including block documents)
+	 */
+	public long getDocumentCount() {
+		return this.documentCount;
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	public double getFilesPerSecond() {
+		return this.indexedFileCount / this.getElapsedSeconds();
+	}
+
+	public double getMegabytesPerSecond() {
+		return this.indexedByteCount / (1024.0 * 1024.0) / this.getElapsedSeconds();
+	}
+
+	private double getElapsedSeconds() {
+		return Math.max(1, this.elapsedNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT,
+				"Walked %d files; indexed %d files (%d documents, %.1f MB); %d unchanged; %d deleted; %d failed%n"
+						+ "Took %.2f s (%.1f files/s, %.2f MB/s)",
+				this.walkedFileCount, this.indexedFileCount, this.documentCount,
+				this.indexedByteCount / (1024.0 * 1024.0), this.unchangedFileCount, this.deletedFileCount,
+				this.failedFileCount, this.getElapsedSeconds(), this.getFilesPerSecond(),
+				this.getMegabytesPerSecond());
+	}
+}
@@ -0,0 +1,362 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexableField;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Combines the line documents for a file into block documents (used by the
+ * {@link info.codesaway.castlesearching.IndexLayout#BLOCK BLOCK} index
+ * layout)
+ *
+ * <p>
+ * The file related fields are only added once per block (instead of once per
+ * line). The content and comment of each line are separate values of the
+ * field (the analyzer's position increment gap keeps phrases from matching
+ * across lines). Other line fields (such as type and element) are indexed
+ * once for the block.
+ * </p>
+ *
+ * <p>
+ * A block document only indicates the block may have matching lines (such as
+ * when each search term is on a different line). The fields for each line are
+ * stored, so {@link #getLineDocuments(Document)} can recreate the line
+ * documents and check which lines match the query.
+ * </p>
+ */
+@NonNullByDefault
+public class BlockDocumentBuilder {
+	/**
+	 * Version of how lines are combined into blocks
+	 *
+	 * <p>
+	 * Incrementing the version causes every file to be reindexed when using
+	 * the block layout
+	 * </p>
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * Stored field with the line number of the first line in the block
+	 */
+	public static final String START_LINE_FIELD = "startLine";
+
+	/**
+	 * Stored field with the fields for each line in the block, other than the
+	 * content and comment (each value is the line's index in the block, the
+	 * field's name, and the field's value, separated by tabs)
+	 */
+	public static final String LINE_FIELDS_FIELD = "lineFields";
+
+	/**
+	 * Stored field with the file related fields (each value is whether the
+	 * field is tokenized, the field's name, and the field's value, separated
+	 * by tabs)
+	 *
+	 * <p>
+	 * Some file related fields aren't stored (such as path), so are stored
+	 * here to recreate the line documents
+	 * </p>
+	 */
+	public static final String FILE_FIELDS_FIELD = "blockFileFields";
+
+	/**
+	 * Fields with a value for each line in the block (stored and indexed)
+	 */
+	public static final String[] LINE_TEXT_FIELDS = { "content", "comment" };
+
+	private static final String SEPARATOR = "\t";
+
+	private final List<Field> fileFields;
+	private final int blockLines;
+
+	private int startLine;
+	private int lineCount;
+
+	private final List<Field> lineTextFields = new ArrayList<>();
+	private final List<Field> lineFields = new ArrayList<>();
+	private final List<Integer> lineNumbers = new ArrayList<>();
+
+	// Other fields from the lines (indexed once per block)
+	private final Set<List<String>> otherFields = new LinkedHashSet<>();
+
+	/**
+	 *
+	 * @param fileFields
+	 *            the fields related to the file (added to each block)
+	 * @param blockLines
+	 *            the number of lines in each block
+	 */
+	public BlockDocumentBuilder(final List<Field> fileFields, final int blockLines) {
+		this.fileFields = fileFields;
+		this.blockLines = Math.max(1, blockLines);
+		this.reset();
+	}
+
+	private void reset() {
+		this.startLine = 0;
+		this.lineCount = 0;
+		this.lineTextFields.clear();
+		this.lineFields.clear();
+		this.lineNumbers.clear();
+		this.otherFields.clear();
+	}
+
+	/**
+	 * Add the line to the current block
+	 *
+	 * @param lineNumber
+	 *            the line number
+	 * @param lineDocument
+	 *            document with the fields for the line (without the file
+	 *            related fields)
+	 * @return the block document, if the block is full; otherwise,
+	 *         <code>null</code>
+	 */
+	@Nullable
+	public Document addLine(final int lineNumber, final Document lineDocument) {
+		if (this.lineCount == 0) {
+			this.startLine = lineNumber;
+		}
+
+		// Add a value for each line, even if empty
+		// (so the values line up with the lines)
+		for (String field : LINE_TEXT_FIELDS) {
+			String value = lineDocument.get(field);
+			this.lineTextFields.add(new TextField(field, value != null ? value : "", Field.Store.YES));
+		}
+
+		this.lineNumbers.add(lineNumber);
+
+		for (IndexableField field : lineDocument.getFields()) {
+			String name = field.name();
+			String value = field.stringValue();
+
+			if (value != null && !isLineTextField(name) && !name.equals("line")) {
+				this.lineFields.add(
+						new StoredField(LINE_FIELDS_FIELD, this.lineCount + SEPARATOR + name + SEPARATOR + value));
+
+				List<String> nameValue = new ArrayList<>(2);
+				nameValue.add(name);
+				nameValue.add(value);
+				this.otherFields.add(nameValue);
+			}
+		}
+
+		this.lineCount++;
+
+		if (this.lineCount >= this.blockLines) {
+			return this.finish();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates the document for the lines added since the last block
+	 *
+	 * @return the block document; <code>null</code> if no lines were added
+	 */
+	@Nullable
+	public Document finish() {
+		if (this.lineCount == 0) {
+			return null;
+		}
+
+		Document document = new Document();
+
+		for (Field field : this.fileFields) {
+			document.add(field);
+
+			String value = field.stringValue();
+
+			if (value != null) {
+				boolean isTokenized = field.fieldType().tokenized();
+				document.add(new StoredField(FILE_FIELDS_FIELD,
+						isTokenized + SEPARATOR + field.name() + SEPARATOR + value));
+			}
+		}
+
+		document.add(new StoredField(START_LINE_FIELD, this.startLine));
+
+		// Index each line number, so can still filter by line
+		for (int lineNumber : this.lineNumbers) {
+			document.add(new IntPoint("line", lineNumber));
+		}
+
+		for (Field field : this.lineTextFields) {
+			document.add(field);
+		}
+
+		for (Field field : this.lineFields) {
+			document.add(field);
+		}
+
+		for (List<String> nameValue : this.otherFields) {
+			document.add(new TextField(nameValue.get(0), nameValue.get(1), Field.Store.NO));
+		}
+
+		this.reset();
+
+		return document;
+	}
+
+	private static boolean isLineTextField(final String name) {
+		for (String field : LINE_TEXT_FIELDS) {
+			if (field.equals(name)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the line number of the first line in the block
+	 *
+	 * @param blockDocument
+	 *            the stored fields of the block document
+	 * @return the line number
+	 */
+	public static int getStartLine(final Document blockDocument) {
+		IndexableField field = blockDocument.getField(START_LINE_FIELD);
+
+		return field != null ? field.numericValue().intValue() : 0;
+	}
+
+	/**
+	 * Gets the number of lines in the block
+	 *
+	 * @param blockDocument
+	 *            the stored fields of the block document
+	 * @return the number of lines
+	 */
+	public static int getLineCount(final Document blockDocument) {
+		// Each line has a content value (empty if the line has no content)
+		return blockDocument.getValues(LINE_TEXT_FIELDS[0]).length;
+	}
+
+	/**
+	 * Recreates the documents for each line in the block, with the fields
+	 * indexed the same as when using the
+	 * {@link info.codesaway.castlesearching.IndexLayout#LINE LINE} layout
+	 * (other than doc values)
+	 *
+	 * <p>
+	 * Only the content and comment are stored in the line documents
+	 * </p>
+	 *
+	 * @param blockDocument
+	 *            the stored fields of the block document
+	 * @return the line documents (the first is for the first line in the
+	 *         block)
+	 */
+	public static List<Document> getLineDocuments(final Document blockDocument) {
+		int startLine = getStartLine(blockDocument);
+		int lineCount = getLineCount(blockDocument);
+		List<Document> lineDocuments = new ArrayList<>(lineCount);
+
+		for (int i = 0; i < lineCount; i++) {
+			Document lineDocument = new Document();
+			lineDocument.add(new IntPoint("line", startLine + i));
+			lineDocuments.add(lineDocument);
+		}
+
+		for (String field : LINE_TEXT_FIELDS) {
+			String[] values = blockDocument.getValues(field);
+
+			for (int i = 0; i < values.length && i < lineDocuments.size(); i++) {
+				lineDocuments.get(i).add(new TextField(field, values[i], Field.Store.YES));
+			}
+		}
+
+		for (String value : blockDocument.getValues(LINE_FIELDS_FIELD)) {
+			int nameStart = value.indexOf(SEPARATOR);
+			int valueStart = value.indexOf(SEPARATOR, nameStart + 1);
+
+			if (nameStart == -1 || valueStart == -1) {
+				continue;
+			}
+
+			int lineIndex = Integer.parseInt(value.substring(0, nameStart));
+
+			if (lineIndex < lineDocuments.size()) {
+				lineDocuments.get(lineIndex).add(new TextField(value.substring(nameStart + 1, valueStart),
+						value.substring(valueStart + 1), Field.Store.NO));
+			}
+		}
+
+		for (String value : blockDocument.getValues(FILE_FIELDS_FIELD)) {
+			int nameStart = value.indexOf(SEPARATOR);
+			int valueStart = value.indexOf(SEPARATOR, nameStart + 1);
+
+			if (nameStart == -1 || valueStart == -1) {
+				continue;
+			}
+
+			boolean isTokenized = Boolean.parseBoolean(value.substring(0, nameStart));
+			String name = value.substring(nameStart + 1, valueStart);
+			String fieldValue = value.substring(valueStart + 1);
+
+			for (Document lineDocument : lineDocuments) {
+				lineDocument.add(isTokenized ? new TextField(name, fieldValue, Field.Store.NO)
+						: new StringField(name, fieldValue, Field.Store.NO));
+			}
+		}
+
+		return lineDocuments;
+	}
+
+	/**
+	 * Gets the first value of the field for each line in the block (such as
+	 * the type or element shown in the results)
+	 *
+	 * @param blockDocument
+	 *            the stored fields of the block document
+	 * @param field
+	 *            the field
+	 * @param lineCount
+	 *            the number of lines in the block
+	 * @return the value for each line (empty string if the line doesn't have
+	 *         the field)
+	 */
+	public static String[] getLineValues(final Document blockDocument, final String field, final int lineCount) {
+		String[] lineValues = new String[lineCount];
+		String prefix = SEPARATOR + field + SEPARATOR;
+
+		for (String value : blockDocument.getValues(LINE_FIELDS_FIELD)) {
+			int nameStart = value.indexOf(SEPARATOR);
+
+			if (nameStart == -1 || !value.startsWith(prefix, nameStart)) {
+				continue;
+			}
+
+			int lineIndex = Integer.parseInt(value.substring(0, nameStart));
+
+			if (lineIndex < lineCount && lineValues[lineIndex] == null) {
+				lineValues[lineIndex] = value.substring(nameStart + prefix.length());
+			}
+		}
+
+		for (int i = 0; i < lineCount; i++) {
+			if (lineValues[i] == null) {
+				lineValues[i] = "";
+			}
+		}
+
+		@SuppressWarnings("null")
+		String[] result = lineValues;
+		return result;
+	}
+}
@@ -1,34 +1,38 @@
 package info.codesaway.castlesearching.indexer;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.BinaryDocValuesField;
-import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.IntPoint;
-import org.apache.lucene.document.NumericDocValuesField;
-import org.apache.lucene.document.StoredField;
-import org.apache.lucene.document.StringField;
-import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -38,56 +42,55 @@ import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Bits;
-import org.apache.lucene.util.BytesRef;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.jdt.core.ICompilationUnit;
-import org.eclipse.jdt.core.IField;
-import org.eclipse.jdt.core.IMethod;
-import org.eclipse.jdt.core.ISourceRange;
-import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jface.text.DefaultLineTracker;
 
+import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import info.codesaway.castlesearching.Activator;
 import info.codesaway.castlesearching.CASTLESearching;
 import info.codesaway.castlesearching.CASTLESearchingSettings;
 import info.codesaway.castlesearching.CASTLESearchingView;
-import info.codesaway.castlesearching.CommentType;
 import info.codesaway.castlesearching.DocumentInfo;
 import info.codesaway.castlesearching.LuceneStep;
-import info.codesaway.castlesearching.indexer.java.CASTLEJavaIndexer;
-import info.codesaway.castlesearching.indexer.java.JavaIndexerRequest;
-import info.codesaway.castlesearching.indexer.java.JavaIndexerReturn;
+import info.codesaway.castlesearching.indexer.java.JavaElementRanges;
 import info.codesaway.castlesearching.jobs.CASTLEIndexJob;
-import info.codesaway.castlesearching.util.DateUtilities;
-import info.codesaway.castlesearching.util.JDTUtilities;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+import info.codesaway.castlesearching.searcher.ConcurrentSearcherFactory;
 import info.codesaway.castlesearching.util.PathWithLastModified;
 import info.codesaway.castlesearching.util.PathWithTerm;
-import info.codesaway.util.regex.Matcher;
 
 public class CASTLEIndexer {
 	// private static final List<Path> DIRECTORIES =
 	// Arrays.asList(Activator.WORKSPACE_PATH);
 	private static SearcherManager SEARCHER_MANAGER;
 
+	/**
+	 * Reopens the near-real-time searcher, so newly indexed documents are
+	 * visible to searches without needing to commit
+	 */
+	private static ControlledRealTimeReopenThread<IndexSearcher> REOPEN_THREAD;
+
 	public static final Path INDEX_PATH = Activator.STATE_LOCATION.resolve("WorkspaceIndex");
 
-	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	/**
+	 * Directory containing the file state manifest for the workspace index
+	 */
+	public static final Path MANIFEST_PATH = Activator.STATE_LOCATION.resolve("WorkspaceIndexManifest");
 
 	/**
 	 * Match metadocuments which store the document_version
@@ -99,6 +102,9 @@ public class CASTLEIndexer {
 
 	private static IndexWriter INDEX_WRITER;
 
+	// Files in the workspace index (loaded when the IndexWriter is created)
+	private static FileStateManifest MANIFEST;
+
 	// TODO: make settings
 	// Number of files to index at once before committing
 	// (especially needed to handle initial indexing when all documents need to
@@ -108,13 +114,44 @@ public class CASTLEIndexer {
 	// https://stackoverflow.com/questions/32269632/writing-to-lucene-index-one-document-at-a-time-slows-down-over-time
 	private static int INDEX_GROUP_COUNT = 100;
 
+	// Time of the last commit (from System.nanoTime)
+	// (searches use near-real-time readers, so committing is only needed so
+	// the indexed files aren't reindexed after Eclipse is restarted)
+	private static long LAST_COMMIT_TIME = System.nanoTime();
+
 	private static int CANCEL_CHECK_COUNT = 200;
 
+	// Number of files not reindexed, since only the last modified changed
+	private static final AtomicInteger UNCHANGED_FILE_COUNT = new AtomicInteger();
+
 	// Number of documents to read on first pass before commiting
 	// (keep this number low to see quick results when perform full rebuid of
 	// index)
 	private static int INITIALLY_READ_COUNT = 10;
 
+	// Number of threads used to read, parse, and analyze files while indexing
+	// (IndexWriter is thread-safe, so each thread adds its own documents)
+	// (leave a core free, so Eclipse stays responsive while indexing)
+	private static int INDEX_THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+	// Number of files which can be submitted ahead of the oldest file still
+	// being indexed
+	// (keeps memory bounded and keeps the order close to "most recently
+	// modified first", since files are submitted in order)
+	private static int INDEX_QUEUE_SIZE = 2 * INDEX_THREAD_COUNT;
+
+	private static ExecutorService INDEX_EXECUTOR;
+
+	// Dedicated thread which walks the workspace while files are indexed
+	// (walking blocks once the prioritized queue is full, so doesn't use the
+	// common fork-join pool)
+	private static ExecutorService WALK_EXECUTOR;
+
+	// Maximum number of modified files waiting to be indexed while walking the
+	// workspace
+	// (once full, walking waits for files to be indexed)
+	private static int PRIORITIZED_QUEUE_SIZE = 10_000;
+
 	private static final int SECONDS_PER_MINUTE = 60;
 	private static final int SECONDS_PER_HOUR = 60 * SECONDS_PER_MINUTE;
 
@@ -145,17 +182,109 @@ public class CASTLEIndexer {
 		return writer;
 	}
 
-	private static IndexWriter getWriter() throws IOException {
+	private static synchronized IndexWriter getWriter() throws IOException {
 		if (INDEX_WRITER != null) {
 			return INDEX_WRITER;
 		}
 
-		return INDEX_WRITER = createWriter();
+		INDEX_WRITER = createWriter();
+		MANIFEST = FileStateManifest.load(MANIFEST_PATH, INDEX_WRITER);
+
+		return INDEX_WRITER;
+	}
+
+	/**
+	 * Create the SearcherManager used to search the workspace index
+	 *
+	 * <p>
+	 * The searchers are opened from the IndexWriter (near-real-time), so
+	 * indexed documents are visible within
+	 * {@link CASTLESearchingSettings#NRT_MAX_STALE_SECONDS} seconds, even
+	 * though the changes haven't been committed yet
+	 * </p>
+	 *
+	 * @return the SearcherManager
+	 * @throws IOException
+	 */
+	// http://blog.mikemccandless.com/2011/11/near-real-time-readers-with-lucenes.html
+	public static synchronized SearcherManager createNearRealTimeSearcherManager() throws IOException {
+		stopNearRealTimeReopen();
+
+		IndexWriter writer = getWriter();
+		SearcherManager searcherManager = new SearcherManager(writer, new ConcurrentSearcherFactory());
+		searcherManager.addListener(CASTLEMetrics.createRefreshListener());
+
+		// Reopen at least every max stale seconds
+		// (and within min stale seconds if a search is waiting for a change)
+		double maxStaleSeconds = CASTLESearchingSettings.NRT_MAX_STALE_SECONDS;
+		double minStaleSeconds = Math.min(CASTLESearchingSettings.NRT_MIN_STALE_SECONDS, maxStaleSeconds);
+
+		REOPEN_THREAD = new ControlledRealTimeReopenThread<>(writer, searcherManager, maxStaleSeconds,
+				minStaleSeconds);
+		REOPEN_THREAD.setName("CASTLE NRT Reopen");
+		REOPEN_THREAD.setDaemon(true);
+		REOPEN_THREAD.start();
+
+		SEARCHER_MANAGER = searcherManager;
+
+		return searcherManager;
+	}
+
+	/**
+	 * Stop reopening the near-real-time searcher
+	 *
+	 * <p>
+	 * Must be called before closing the workspace SearcherManager
+	 * </p>
+	 */
+	public static synchronized void stopNearRealTimeReopen() {
+		if (REOPEN_THREAD != null) {
+			REOPEN_THREAD.close();
+			REOPEN_THREAD = null;
+		}
+
+		SEARCHER_MANAGER = null;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (INDEX_EXECUTOR == null || INDEX_EXECUTOR.isShutdown()) {
+			INDEX_EXECUTOR = Executors.newFixedThreadPool(INDEX_THREAD_COUNT,
+					new ThreadFactoryBuilder().setNameFormat("CASTLE Indexer %d").setDaemon(true).build());
+		}
+
+		return INDEX_EXECUTOR;
+	}
+
+	private static synchronized ExecutorService getWalkExecutor() {
+		if (WALK_EXECUTOR == null || WALK_EXECUTOR.isShutdown()) {
+			WALK_EXECUTOR = Executors.newSingleThreadExecutor(
+					new ThreadFactoryBuilder().setNameFormat("CASTLE Walker %d").setDaemon(true).build());
+		}
+
+		return WALK_EXECUTOR;
 	}
 
 	public static void closeWriter() {
+		stopNearRealTimeReopen();
+
+		synchronized (CASTLEIndexer.class) {
+			if (INDEX_EXECUTOR != null) {
+				INDEX_EXECUTOR.shutdownNow();
+			}
+
+			if (WALK_EXECUTOR != null) {
+				WALK_EXECUTOR.shutdownNow();
+			}
+		}
+
 		if (INDEX_WRITER != null) {
 			try {
+				if (INDEX_WRITER.isOpen()) {
+					// Commit along with the manifest
+					// (otherwise, closing would commit without it)
+					commit(INDEX_WRITER);
+				}
+
 				INDEX_WRITER.close();
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
@@ -164,37 +293,20 @@ public class CASTLEIndexer {
 		}
 	}
 
-	private static Stream<Path> walkDirectories() {
-		// System.out.println("Walk directories: " + directories);
+	private static boolean shouldIndex(final PathWithLastModified path, final Map<String, DocumentInfo> documents,
+			final AtomicInteger unchangedCount) {
+
+		long startTime = System.nanoTime();
 
 		try {
-			return Files.walk(Activator.WORKSPACE_PATH).parallel().filter(CASTLESearchingSettings::shouldIndexFile);
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			// Return empty stream if have error
-			return Stream.empty();
-		}
-
-		// return DIRECTORIES
-		// // Multi-threaded
-		// .parallelStream()
-		// .flatMap(t -> {
-		// try {
-		// return Files.walk(t);
-		// } catch (IOException e1) {
-		// // TODO Auto-generated catch block
-		// e1.printStackTrace();
-		// // Return empty stream if have error
-		// return Stream.empty();
-		// }
-		// })
+			return shouldIndex(path, documents.get(path.getPathname()), unchangedCount);
+		} finally {
+			CASTLEMetrics.INDEX_STAT.recordSince(startTime);
+		}
 	}
 
-	private static boolean shouldIndex(final PathWithLastModified path, final Map<String, DocumentInfo> documents) {
-
-		DocumentInfo doc = documents.get(path.getPathname());
-
+	private static boolean shouldIndex(final PathWithLastModified path, @Nullable final DocumentInfo doc,
+			final AtomicInteger unchangedCount) {
 		if (doc == null) {
 			// Newly added file, should index
 			return true;
@@ -205,12 +317,45 @@ public class CASTLEIndexer {
 
 		long documentVersion = doc.getDocumentVersion();
 
-		boolean isModified = fileLastModified != lastModifiedValue
-				// TODO: change to have version per indexer (based on file
-				// extension)
-				|| CASTLESearchingSettings.DOCUMENT_VERSION != documentVersion;
+		// Reindex if the indexer for the file type changed
+		@NonNull
+		@SuppressWarnings("null")
+		String extension = FileDocumentBuilder.getExtension(path.getPath().getFileName().toString());
+
+		if (CASTLESearchingSettings.getDocumentVersion(extension) != documentVersion) {
+			return true;
+		}
+
+		if (fileLastModified == lastModifiedValue) {
+			return false;
+		}
+
+		// Last modified changed, but the content may not have
+		// (such as after switching git branches)
+		if (FileDocumentBuilder.isContentUnchanged(path, doc)) {
+			unchangedCount.incrementAndGet();
+			UNCHANGED_FILE_COUNT.incrementAndGet();
+			CASTLEMetrics.INDEX_FILES_UNCHANGED.increment();
+
+			// Record the new last modified, so don't need to check the content
+			// again
+			MANIFEST.put(path.getPathname(),
+					new DocumentInfo(fileLastModified, documentVersion, doc.getSize(), doc.getContentHash()));
+
+			return false;
+		}
 
-		return isModified;
+		return true;
+	}
+
+	/**
+	 * Gets the number of files (since Eclipse started) which were not
+	 * reindexed since the last modified changed but the content didn't
+	 *
+	 * @return the number of reindexes avoided
+	 */
+	public static int getUnchangedFileCount() {
+		return UNCHANGED_FILE_COUNT.get();
 	}
 
 	public static void rebuildEntireIndex() {
@@ -227,11 +372,11 @@ public class CASTLEIndexer {
 			//			System.out.println("Created writer");
 			// Set all metadocuments to have the same document version
 			// Will then index, which should be a different value
-			long documentVersion = (CASTLESearchingSettings.DOCUMENT_VERSION != Long.MIN_VALUE ? Long.MIN_VALUE
-					: Long.MAX_VALUE);
+			long documentVersion = CASTLESearchingSettings.REBUILD_DOCUMENT_VERSION;
 
 			//			System.out.println("Update document version");
 			writer.updateNumericDocValue(METADOCUMENT_TERM, "documentVersion", documentVersion);
+			MANIFEST.setDocumentVersion(documentVersion);
 			//			System.out.println("Done updating document version");
 
 			commit(writer);
@@ -247,14 +392,129 @@ public class CASTLEIndexer {
 
 	public static String incrementalRebuildIndex(final CASTLEIndexJob castleIndexJob, final IProgressMonitor monitor)
 			throws IOException {
-		IndexSearcher searcher = getSearcher();
-
 		LocalDateTime startTime = LocalDateTime.now();
 
-		Map<String, DocumentInfo> documents = new HashMap<>();
+		getWriter();
+		FileStateManifest manifest = MANIFEST;
+
+		Map<String, DocumentInfo> documents;
+
+		if (manifest.isValid()) {
+			// Use the manifest, so don't need to scan the index
+			documents = manifest.getFiles();
+		} else {
+			// Scan the index, then use the manifest going forward
+			documents = scanIndex();
+			manifest.reset(documents);
+		}
+
+		if (monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+
+		// Determine files need to index and start with the latest modified
+		// (since it more likely to want to search more recently modified files)
+		// (files are indexed while the workspace is still being walked, so
+		// the most recently modified files found so far are indexed first)
+		Set<String> walkedPathnames = ConcurrentHashMap.newKeySet();
+		AtomicInteger unchangedCount = new AtomicInteger();
+
+		PrioritizedQueue<PathWithLastModified> modifiedPaths = new PrioritizedQueue<>(PRIORITIZED_QUEUE_SIZE,
+				Comparator.comparing(PathWithLastModified::getLastModified).reversed());
+
+		WorkspaceWalker walker = new WorkspaceWalker(Activator.WORKSPACE_PATH, p -> {
+			walkedPathnames.add(p.getPathname());
+			CASTLEMetrics.INDEX_FILES_WALKED.increment();
+
+			if (shouldIndex(p, documents, unchangedCount)) {
+				modifiedPaths.add(p);
+			}
+		});
+
+		CompletableFuture<Void> walk = CompletableFuture.runAsync(() -> {
+			long walkStartTime = System.nanoTime();
+
+			try {
+				walker.walk();
+			} finally {
+				modifiedPaths.finish();
+				CASTLEMetrics.INDEX_WALK.recordSince(walkStartTime);
+			}
+		}, getWalkExecutor());
+
+		int indexedFiles;
+
+		try {
+			@SuppressWarnings("null")
+			Stream<PathWithLastModified> stream = StreamSupport
+					.stream(Spliterators.spliteratorUnknownSize(modifiedPaths, Spliterator.ORDERED), false);
+
+			indexedFiles = index(stream, castleIndexJob, monitor, false, new Term[0]);
+
+			walk.join();
+		} finally {
+			// If canceled, stop walking
+			walker.stop();
+			modifiedPaths.close();
+		}
+
+		// Check if indexed files which weren't walked still exist and are
+		// still walked (if not, delete the associated documents)
+		// (such as files in a directory which is now ignored)
+		// (done after the walk, since need to know every file that was walked)
 		List<Term> deleteDocuments = new ArrayList<>();
 
-		if (searcher != null) {
+		for (String pathname : documents.keySet()) {
+			if (!walkedPathnames.contains(pathname)
+					&& (walker.isSkipped(Paths.get(pathname)) || !new File(pathname).exists())) {
+				deleteDocuments.add(PathWithTerm.getTerm(pathname));
+			}
+		}
+
+		if (!deleteDocuments.isEmpty()) {
+			deleteDocuments(getWriter(), deleteDocuments.toArray(new Term[0]));
+		}
+
+		LocalDateTime endTime = LocalDateTime.now();
+
+		Duration duration = Duration.between(startTime, endTime);
+
+		String message = createIndexDoneMessage(indexedFiles, unchangedCount.get(), duration);
+
+		if (CASTLESearchingSettings.METRICS_JSON_LOG) {
+			try {
+				CASTLEMetrics.logJson(Activator.STATE_LOCATION, "index", message);
+			} catch (IOException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+		}
+
+		return message;
+	}
+
+	/**
+	 * Scan the meta documents in the index to determine which files are
+	 * indexed
+	 *
+	 * <p>
+	 * Only needed if the file state manifest doesn't match the index (such as
+	 * the first time indexing after upgrading)
+	 * </p>
+	 *
+	 * @return map from pathname to the DocumentInfo
+	 */
+	private static Map<String, DocumentInfo> scanIndex() throws IOException {
+		Map<String, DocumentInfo> documents = new HashMap<>();
+
+		IndexSearcher searcher = getSearcher();
+		SearcherManager searcherManager = SEARCHER_MANAGER;
+
+		if (searcher == null || searcherManager == null) {
+			return documents;
+		}
+
+		try {
 			// Determine when last modified file
 			// (to allow incremental reindexing)
 			for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
@@ -309,40 +569,15 @@ public class CASTLEIndexer {
 						@SuppressWarnings("null")
 						String pathname = pathnameDocValues.binaryValue().utf8ToString();
 
-						// Check if pathname still exists
-						// (if not, delete the associated documents)
-						if (new File(pathname).exists()) {
-							documents.put(pathname, new DocumentInfo(lastModified, documentVersion));
-						} else {
-							// Path no longer exists
-							deleteDocuments.add(PathWithTerm.getTerm(pathname));
-						}
+						documents.put(pathname, new DocumentInfo(lastModified, documentVersion));
 					}
 				}
 			}
+		} finally {
+			searcherManager.release(searcher);
 		}
 
-		if (monitor.isCanceled()) {
-			throw new OperationCanceledException();
-		}
-
-		// Determine files need to index and start with the latest modified
-		// (since it more likely to want to search more recently modified files)
-
-		@SuppressWarnings("null")
-		Stream<PathWithLastModified> stream = walkDirectories().map(PathWithLastModified::new)
-				.filter(p -> searcher == null ? true : shouldIndex(p, documents))
-				// Sort by last modified descending
-				// (since want to index recently modified files first
-				.sorted(Comparator.comparing(PathWithLastModified::getLastModified).reversed());
-
-		int indexedFiles = index(stream, castleIndexJob, monitor, false, deleteDocuments.toArray(new Term[0]));
-
-		LocalDateTime endTime = LocalDateTime.now();
-
-		Duration duration = Duration.between(startTime, endTime);
-
-		return createIndexDoneMessage(indexedFiles, duration);
+		return documents;
 	}
 
 	public static <T extends PathWithTerm> int index(final Stream<T> paths, final CASTLEIndexJob castleIndexJob,
@@ -356,21 +591,11 @@ public class CASTLEIndexer {
 			initiallyReadCount = INDEX_GROUP_COUNT;
 		}
 
-		// Introduced to make lambda happy
-		int initiallyReadCountFinal = initiallyReadCount;
-
-		AtomicInteger filesModifiedCount = new AtomicInteger();
-
 		//		try (IndexWriter writer = createWriter()) {
 		IndexWriter writer = getWriter();
 
 		if (deleteDocuments.length > 0) {
-			writer.deleteDocuments(deleteDocuments);
-			writer.commit();
-
-			if (SEARCHER_MANAGER != null) {
-				SEARCHER_MANAGER.maybeRefreshBlocking();
-			}
+			deleteDocuments(writer, deleteDocuments);
 		}
 
 		// Delete documents which don't have the fullpath field (older
@@ -385,7 +610,7 @@ public class CASTLEIndexer {
 			long count = writer.deleteDocuments(query);
 
 			if (count > 0) {
-				writer.commit();
+				commit(writer);
 				// Must merge deletes, otherwise cannot change path field
 				// from StringField to TextField
 				writer.forceMergeDeletes();
@@ -399,18 +624,26 @@ public class CASTLEIndexer {
 			e1.printStackTrace();
 		}
 
-		// Iterate in order (so index newly modified files first)
-		paths.forEachOrdered(path -> {
-			if (path == null) {
-				return;
-			}
+		int modifiedCount = 0;
 
-			// Index files
+		// Files are submitted in order (so index newly modified files first)
+		// Each file is read, parsed, and analyzed on one of the indexer threads
+		// Files are then completed in the same order they were submitted, so
+		// the counts used to commit in groups behave the same as when indexing
+		// on a single thread
+		ExecutorService executor = getExecutor();
+		ArrayDeque<IndexTask<T>> tasks = new ArrayDeque<>(INDEX_QUEUE_SIZE);
+
+		try {
+			Iterator<T> iterator = paths.iterator();
+
+			while (iterator.hasNext()) {
+				T path = iterator.next();
+
+				if (path == null) {
+					continue;
+				}
 
-			// First delete any documents, in case file was partially
-			// indexed and interrupted
-			// (want to start fresh and reindex file)
-			try {
 				if (!writer.isOpen()) {
 					// Handle case such as user deleting the index directory
 					// in the middle of indexing
@@ -418,98 +651,166 @@ public class CASTLEIndexer {
 					throw new OperationCanceledException();
 				}
 
-				writer.deleteDocuments(path.getTerm());
+				tasks.add(new IndexTask<>(path, executor.submit(() -> {
+					long startTime = System.nanoTime();
 
-				addDocument(writer, path.getPath(), path.getFile());
-
-				int count = filesModifiedCount.addAndGet(1);
-
-				if (count % CANCEL_CHECK_COUNT == 0 && monitor.isCanceled()) {
-					throw new OperationCanceledException();
-				}
-
-				if (count % INDEX_GROUP_COUNT == 0) {
-					if (!writer.isOpen()) {
-						// Handle case such as user deleting the index
-						// directory in the middle of indexing
-						monitor.setCanceled(true);
-						throw new OperationCanceledException();
+					try {
+						addDocument(writer, path.getPath(), path.getFile(), path.getTerm());
+					} finally {
+						CASTLEMetrics.INDEX_ADD_DOCUMENT.recordSince(startTime);
 					}
 
-					// Commit changes in groups, so can start querying even
-					// as rest of files index
-					commit(writer);
-				}
-
-				if (count == initiallyReadCountFinal) {
-					if (count < INDEX_GROUP_COUNT) {
-						if (!writer.isOpen()) {
-							// Handle case such as user deleting the index
-							// directory in the middle of indexing
-							monitor.setCanceled(true);
-							throw new OperationCanceledException();
-						}
-
-						if (monitor.isCanceled()) {
-							throw new OperationCanceledException();
-						}
-
-						// Commit changes so can then search quickly
-						commit(writer);
-					}
+					return null;
+				})));
 
-					castleIndexJob.setIndexCreated(true);
+				while (tasks.size() >= INDEX_QUEUE_SIZE) {
+					modifiedCount = completeTask(tasks.remove(), modifiedCount, initiallyReadCount, writer,
+							castleIndexJob, monitor, removeWhenDone);
 				}
+			}
 
-				if (removeWhenDone) {
-					castleIndexJob.removePath(path.getPath());
+			while (!tasks.isEmpty()) {
+				modifiedCount = completeTask(tasks.remove(), modifiedCount, initiallyReadCount, writer, castleIndexJob,
+						monitor, removeWhenDone);
+			}
+		} finally {
+			// If canceled, don't start indexing any of the remaining files
+			// Wait for files already being indexed, so no indexing is still
+			// running once this method returns
+			for (IndexTask<T> task : tasks) {
+				task.getFuture().cancel(false);
+			}
+
+			for (IndexTask<T> task : tasks) {
+				try {
+					task.getFuture().get();
+				} catch (Exception e) {
+					// Ignore, since already stopping
 				}
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
 			}
-		});
+		}
 		//		}
 
-		int modifiedCount = filesModifiedCount.get();
-
 		if (modifiedCount > 0) {
-			commit(writer);
+			refresh(writer);
 		}
 
 		return modifiedCount;
 	}
 
-	@NonNullByDefault
-	private static Map<String, String> getFileRelatedFields(final Path path, final String filename,
-			final String extension) {
+	private static void deleteDocuments(final IndexWriter writer, final Term[] deleteDocuments) throws IOException {
+		writer.deleteDocuments(deleteDocuments);
 
-		switch (extension) {
-		case "java":
-			return CASTLEJavaIndexer.getJavaFileRelatedFields(path, filename);
-		default:
-			@SuppressWarnings("null")
-			@NonNull
-			Map<String, String> emptyMap = Collections.emptyMap();
+		for (Term term : deleteDocuments) {
+			MANIFEST.remove(term.text());
+		}
+
+		refresh(writer);
+	}
+
+	/**
+	 * Waits for the file to finish indexing then handles committing in groups
+	 *
+	 * @return the number of files indexed so far
+	 */
+	private static <T extends PathWithTerm> int completeTask(final IndexTask<T> task, final int modifiedCount,
+			final int initiallyReadCount, final IndexWriter writer, final CASTLEIndexJob castleIndexJob,
+			final IProgressMonitor monitor, final boolean removeWhenDone) throws IOException {
+		try {
+			task.getFuture().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			if (!writer.isOpen()) {
+				// Handle case such as user deleting the index directory
+				// in the middle of indexing
+				monitor.setCanceled(true);
+				throw new OperationCanceledException();
+			}
 
-			return emptyMap;
+			// TODO Auto-generated catch block
+			e.getCause().printStackTrace();
+			return modifiedCount;
+		}
+
+		int count = modifiedCount + 1;
 
+		if (count % CANCEL_CHECK_COUNT == 0 && monitor.isCanceled()) {
+			throw new OperationCanceledException();
 		}
+
+		if (count % INDEX_GROUP_COUNT == 0) {
+			if (!writer.isOpen()) {
+				// Handle case such as user deleting the index
+				// directory in the middle of indexing
+				monitor.setCanceled(true);
+				throw new OperationCanceledException();
+			}
+
+			// Refresh in groups, so can start querying even
+			// as rest of files index
+			refresh(writer);
+		}
+
+		if (count == initiallyReadCount) {
+			if (count < INDEX_GROUP_COUNT) {
+				if (!writer.isOpen()) {
+					// Handle case such as user deleting the index
+					// directory in the middle of indexing
+					monitor.setCanceled(true);
+					throw new OperationCanceledException();
+				}
+
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+
+				if (DirectoryReader.indexExists(writer.getDirectory())) {
+					// Refresh so can then search quickly
+					refresh(writer);
+				} else {
+					// Commit changes so can then search quickly
+					// (the first commit creates the index, which allows
+					// searching)
+					commit(writer);
+				}
+			}
+
+			castleIndexJob.setIndexCreated(true);
+		}
+
+		if (removeWhenDone) {
+			castleIndexJob.removePath(task.getPath().getPath());
+		}
+
+		return count;
 	}
 
 	/**
 	 * Index file with each line being a separate document
 	 *
+	 * <p>
+	 * The documents for the file are added as a single block, which replaces
+	 * any existing documents for the file. This way, searchers never see a
+	 * partially indexed file.
+	 * </p>
+	 *
 	 * @param indexWriter
 	 * @param path
+	 * @param term
+	 *            the term matching the existing documents for the file
 	 */
 	@NonNullByDefault
-	private static void addDocument(final IndexWriter indexWriter, final Path path, final File file)
-			throws IOException {
+	private static void addDocument(final IndexWriter indexWriter, final Path path, final File file,
+			final Term term) throws IOException {
 		boolean isFile = file.isFile();
 
 		if (!isFile) {
 			// Don't need to index directories
+			// (delete any documents, such as if file was deleted)
+			indexWriter.deleteDocuments(term);
+			MANIFEST.remove(term.text());
 			return;
 		}
 
@@ -526,206 +827,96 @@ public class CASTLEIndexer {
 
 		long fileLastModified = file.lastModified();
 
-		String extension = getExtension(filename);
+		String extension = FileDocumentBuilder.getExtension(filename);
 
-		Map<String, String> fileRelatedFields = getFileRelatedFields(path, filename, extension);
+		// Read the file once, so can hash the same content that's indexed
+		// (and parse the same content for the Java elements)
+		long readStartTime = System.nanoTime();
+		byte[] bytes = Files.readAllBytes(path);
+		CASTLEMetrics.INDEX_READ.recordSince(readStartTime);
+		CASTLEMetrics.INDEX_BYTES_READ.add(bytes.length);
 
-		CommentType commentType = CommentType.NONE;
-		String previousLine = "";
-		String previousLineType = "";
+		long fileSize = bytes.length;
+		long contentHash = CASTLESearchingSettings.CONTENT_HASH ? FileDocumentBuilder.getContentHash(bytes) : 0;
+		long documentVersion = CASTLESearchingSettings.getDocumentVersion(extension);
 
-		// https://www.vogella.com/tutorials/EclipseJDT/article.html
-		// https://stackoverflow.com/a/11168301
-		RangeMap<Integer, String> javaElements = TreeRangeMap.create();
+		// Files which aren't UTF-8 use the Eclipse encoding for the file
+		Charset charset = LineReader.detectCharset(bytes, () -> getWorkspaceCharset(file));
 
-		IFile[] files = Activator.WORKSPACE.getRoot().findFilesForLocationURI(file.toURI());
+		RangeMap<Integer, String> javaElements = extension.equals("java")
+				? JavaElementRanges.getJavaElements(bytes, charset, contentHash)
+				: ImmutableRangeMap.of();
 
-		if (files.length > 0) {
-			ICompilationUnit compilationUnit = JavaCore.createCompilationUnitFrom(files[0]);
-			//			System.out.println("Parse: " + file);
+		List<Document> documents = FileDocumentBuilder.build(path, project, fileLastModified, bytes, charset,
+				javaElements);
 
-			try {
-				// Note: offset 0 is line 0
-				// (so add 1 to line number to match what would show on the screen)
-				DefaultLineTracker lineTracker = new DefaultLineTracker();
-				lineTracker.set(compilationUnit.getSource());
-
-				IType[] types = compilationUnit.getTypes();
-				for (IType type : types) {
-					IField[] fields = type.getFields();
-					for (IField field : fields) {
-						String elementName = field.getElementName();
-						ISourceRange sourceRange = field.getSourceRange();
-						JDTUtilities.addRange(sourceRange, elementName, javaElements, lineTracker);
-					}
-
-					IMethod[] methods = type.getMethods();
-					for (IMethod method : methods) {
-						@NonNull
-						@SuppressWarnings("null")
-						String elementName = method.getElementName();
-						//						System.out.println("Method name " + method.getElementName());
-						//						System.out.println("Signature " + method.getSignature());
-						//						System.out.println("Return Type " + method.getReturnType());
-
-						ISourceRange sourceRange = method.getSourceRange();
-						JDTUtilities.addRange(sourceRange, elementName, javaElements, lineTracker);
-					}
-				}
-			} catch (JavaModelException e) {
-				// Do nothing
-				// (if there's an error, just don't index line info
-			}
+		if (!indexWriter.isOpen()) {
+			return;
 		}
 
-		// Read input line by line
-		// TODO: select a better charset
-		try (BufferedReader reader = Files.newBufferedReader(path, ISO_8859_1)) {
-			String line;
-			int lineNumber = 0;
-
-			while ((line = reader.readLine()) != null) {
-				lineNumber++;
+		// Atomically delete the existing documents and add the new ones
+		// (also avoids the per call overhead of adding each line separately)
+		long analysisStartTime = System.nanoTime();
+		indexWriter.updateDocuments(term, documents);
+		CASTLEMetrics.INDEX_ANALYSIS.recordSince(analysisStartTime);
 
-				Document document = new Document();
+		CASTLEMetrics.INDEX_FILES_INDEXED.increment();
+		CASTLEMetrics.INDEX_DOCUMENTS_ADDED.add(documents.size());
 
-				document.add(new StringField(FULL_PATH_FIELD, pathString, Field.Store.YES));
-
-				// Index path with normal parser, so can search path
-				// (don't store, since value is already stored as part of
-				// fullpath)
-				document.add(new TextField(PATH_FIELD, pathString, Field.Store.NO));
-				document.add(new TextField("file", filename, Field.Store.YES));
-
-				@Nullable
-				String element = javaElements.get(lineNumber);
-
-				if (element != null) {
-					document.add(new TextField("element", element, Field.Store.YES));
-				}
-
-				// Store line as int instead of as String
-				document.add(new IntPoint("line", lineNumber));
-
-				document.add(new StoredField("line", lineNumber));
-				// document.add(new StringField("line",
-				// String.valueOf(lineNumber), Field.Store.YES));
-
-				// Add fields based on file itself
-				for (Map.Entry<String, String> entry : fileRelatedFields.entrySet()) {
-					@SuppressWarnings("null")
-					String key = entry.getKey();
-					@SuppressWarnings("null")
-					String value = entry.getValue();
-
-					document.add(new TextField(key, value, Field.Store.NO));
-				}
-
-				// Add project
-				if (!project.isEmpty()) {
-					document.add(new TextField("proj", project, Field.Store.YES));
-				}
-
-				// Add date
-				Matcher dateMatcher = DateUtilities.DATE_MATCHER.get().reset(line);
-
-				// TODO: should this be a while loop, so can have multiple dates
-				// on same line?
-				if (dateMatcher.find()) {
-					String date = dateMatcher.group();
-
-					boolean isLocalDate = dateMatcher.matched("localDate");
-
-					LocalDate localDate = DateUtilities.parseLocalDate(date, isLocalDate);
-
-					if (localDate != null) {
-						// TODO: verify this doesn't break anything
-						document.add(new TextField("date",
-								DateTools.dateToString(DateUtilities.asDate(localDate), DateTools.Resolution.DAY),
-								Field.Store.YES));
-					}
-				}
-
-				if (!extension.isEmpty()) {
-					document.add(new StringField("ext", extension, Field.Store.YES));
-				}
-
-				// Handle data specific to file extension
-				if (extension.equals("java")) {
-					// Don't index entire line as content
-					// (instead, will index content and comment separately (so
-					// can filter out comments in results if desired)
-					JavaIndexerReturn javaIndexerReturn = CASTLEJavaIndexer.indexJavaLine(
-							new JavaIndexerRequest(line, document, commentType, previousLineType, previousLine));
-
-					commentType = javaIndexerReturn.getCommentType();
-					previousLineType = javaIndexerReturn.getPreviousLineType();
-					previousLine = javaIndexerReturn.getPreviousLine();
-				} else {
-					// For other files, treat entire line as content
-					// TODO: add support for recognizing comments in other files
-					// (such as XML, HTML, SQL, JSP)
-					document.add(new TextField("content", line, Field.Store.YES));
-				}
+		// Record in the manifest after adding the documents
+		// (so the next commit includes them)
+		MANIFEST.put(pathString,
+				new DocumentInfo(fileLastModified, documentVersion, fileSize, contentHash));
+	}
 
-				if (!indexWriter.isOpen()) {
-					return;
-				}
+	/**
+	 * Gets the Eclipse encoding for the file
+	 *
+	 * @return the charset; {@link LineReader#DEFAULT_CHARSET} if the file isn't
+	 *         in the workspace or its charset isn't supported
+	 */
+	@NonNullByDefault
+	private static Charset getWorkspaceCharset(final File file) {
+		IFile[] files = Activator.WORKSPACE.getRoot().findFilesForLocationURI(file.toURI());
 
-				indexWriter.addDocument(document);
+		if (files.length > 0) {
+			try {
+				@NonNull
+				@SuppressWarnings("null")
+				Charset charset = Charset.forName(files[0].getCharset());
+				return charset;
+			} catch (CoreException | IllegalArgumentException e) {
+				// Use the default charset
 			}
 		}
 
-		// Store information about the file itself
-		// (stores last modified so can do incremental reindexing, when files
-		// are added or modified)
-		// (done last in case indexing was interupted in middle of file)
-		// (in this case, the document would not show as indexed in full and
-		// would be reindexed)
-		// TODO: should also delete documents when corresponding file is deleted
-		Document metaDocument = new Document();
-
-		// Indicate this is a meta document, so it can be ignored when searching
-		metaDocument.add(new StringField("metadocument", "meta", Field.Store.NO));
-
-		metaDocument.add(new StringField(FULL_PATH_FIELD, pathString, Field.Store.YES));
-
-		// Put pathname as a docvalue, so can quickly retrieve
-		// (used to determine which files were modified when incremental
-		// indexing)
-		metaDocument.add(new BinaryDocValuesField(PATHNAME_FIELD, new BytesRef(pathString)));
-
-		// Store data to help know when to reindex
-		metaDocument.add(new NumericDocValuesField("fileLastModified", fileLastModified));
-
-		// Track the version of the code that was used to write the document
-		// (this way, can incrementally update files as the logic changes)
-		// (it will essentially be a full rebuild of the index)
-		// TODO: allow different document version for each indexer
-		// (index based on files listed which have indexers)
-		// (store attribution for version on the indexer instead of on the
-		// parent indexers XML field)
-		metaDocument.add(new NumericDocValuesField("documentVersion", CASTLESearchingSettings.DOCUMENT_VERSION));
-
-		if (!indexWriter.isOpen()) {
-			return;
-		}
-
-		indexWriter.addDocument(metaDocument);
+		return LineReader.DEFAULT_CHARSET;
 	}
 
-	@NonNullByDefault
-	private static String getExtension(final String filename) {
-		int lastPeriod = filename.lastIndexOf('.');
+	/**
+	 * Makes the indexed documents visible to searches
+	 *
+	 * <p>
+	 * Searches use near-real-time readers, so the changes are only committed
+	 * if haven't committed within {@link CASTLESearchingSettings#COMMIT_INTERVAL_SECONDS}
+	 * (the IndexWriter also commits when it's closed)
+	 * </p>
+	 */
+	private static void refresh(final IndexWriter writer) throws IOException {
+		long sinceLastCommit = System.nanoTime() - LAST_COMMIT_TIME;
 
-		@NonNull
-		@SuppressWarnings("null")
-		String extension = lastPeriod > 0 ? filename.substring(lastPeriod + 1) : "";
-		return extension;
+		if (sinceLastCommit >= TimeUnit.SECONDS.toNanos(CASTLESearchingSettings.COMMIT_INTERVAL_SECONDS)) {
+			commit(writer);
+		} else if (SEARCHER_MANAGER != null) {
+			SEARCHER_MANAGER.maybeRefresh();
+		}
 	}
 
 	private static void commit(final IndexWriter writer) throws IOException {
-		writer.commit();
+		long startTime = System.nanoTime();
+		MANIFEST.commit(writer);
+		LAST_COMMIT_TIME = System.nanoTime();
+		CASTLEMetrics.INDEX_COMMIT.record(LAST_COMMIT_TIME - startTime);
 
 		// Reset the searcher, so will create a new one
 		// (since want to refresh with new documents)
@@ -746,9 +937,15 @@ public class CASTLEIndexer {
 		}
 	}
 
-	private static String createIndexDoneMessage(final int indexedFiles, final Duration duration) {
+	private static String createIndexDoneMessage(final int indexedFiles, final int unchangedFiles,
+			final Duration duration) {
 		String indexMessage = indexedFiles == 1 ? "1 file" : indexedFiles + " files";
 
+		if (unchangedFiles > 0) {
+			String unchangedMessage = unchangedFiles == 1 ? "1 unchanged file" : unchangedFiles + " unchanged files";
+			indexMessage += " (skipped " + unchangedMessage + ")";
+		}
+
 		return String.format("Indexed %s. It took %s.", indexMessage, formatDuration(duration));
 	}
 
@@ -801,4 +998,25 @@ public class CASTLEIndexer {
 
 		return durationStringBuilder.toString();
 	}
+
+	/**
+	 * File which was submitted to be indexed by one of the indexer threads
+	 */
+	private static class IndexTask<T extends PathWithTerm> {
+		private final T path;
+		private final Future<?> future;
+
+		public IndexTask(final T path, final Future<?> future) {
+			this.path = path;
+			this.future = future;
+		}
+
+		public T getPath() {
+			return this.path;
+		}
+
+		public Future<?> getFuture() {
+			return this.future;
+		}
+	}
 }
@@ -0,0 +1,193 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Finds the comments in a line
+ *
+ * <p>
+ * Subclasses scan the line for a specific language and record the comments
+ * and the content (the rest of the line) as spans (offsets into the line), so
+ * strings are only created when asked for.
+ * </p>
+ *
+ * <p>
+ * Reused for each line, so isn't thread-safe
+ * </p>
+ */
+@NonNullByDefault
+public abstract class CommentScanner {
+	private String line = "";
+
+	// Start / end offset pairs
+	private int[] contentSpans = new int[8];
+	private int contentSpanCount;
+	private int[] commentSpans = new int[8];
+	private int commentSpanCount;
+
+	private boolean isStartedInBlockComment;
+	private int blockCommentEnd;
+	private int openBlockCommentTextStart;
+
+	/**
+	 * Starts scanning the line
+	 *
+	 * @param line
+	 *            the line
+	 * @param isStartedInBlockComment
+	 *            whether the line starts in a block comment, which continues
+	 *            from the previous line
+	 */
+	protected void reset(final String line, final boolean isStartedInBlockComment) {
+		this.line = line;
+		this.contentSpanCount = 0;
+		this.commentSpanCount = 0;
+		this.isStartedInBlockComment = isStartedInBlockComment;
+		this.blockCommentEnd = -1;
+		this.openBlockCommentTextStart = isStartedInBlockComment ? 0 : -1;
+	}
+
+	/**
+	 * Indicates a block comment starts on the line
+	 *
+	 * @param textStart
+	 *            the offset of the comment's text (after the comment start,
+	 *            such as "/*")
+	 */
+	protected void startBlockComment(final int textStart) {
+		this.openBlockCommentTextStart = textStart;
+	}
+
+	/**
+	 * Indicates a block comment ends on the line
+	 *
+	 * @param end
+	 *            the offset after the end of the comment
+	 */
+	protected void endBlockComment(final int end) {
+		if (this.isStartedInBlockComment && this.blockCommentEnd == -1) {
+			this.blockCommentEnd = end;
+		}
+
+		this.openBlockCommentTextStart = -1;
+	}
+
+	protected void addContent(final int start, final int end) {
+		if (start < end) {
+			this.contentSpans = addSpan(this.contentSpans, this.contentSpanCount++, start, end);
+		}
+	}
+
+	protected void addComment(final int start, final int end) {
+		if (start < end) {
+			this.commentSpans = addSpan(this.commentSpans, this.commentSpanCount++, start, end);
+		}
+	}
+
+	/**
+	 * Indicates whether the line has any comments
+	 */
+	public boolean hasComment() {
+		return this.commentSpanCount > 0;
+	}
+
+	/**
+	 * Indicates whether the line started in a block comment
+	 */
+	public boolean isStartedInBlockComment() {
+		return this.isStartedInBlockComment;
+	}
+
+	/**
+	 * Indicates whether the line started in a block comment, which ended on
+	 * the line
+	 */
+	public boolean isBlockCommentEnded() {
+		return this.blockCommentEnd != -1;
+	}
+
+	/**
+	 * Indicates whether the line ends in a block comment, which continues onto
+	 * the next line
+	 */
+	public boolean isEndedInBlockComment() {
+		return this.openBlockCommentTextStart != -1;
+	}
+
+	/**
+	 * Gets the content (the line without its comments)
+	 *
+	 * @return the content, trimmed
+	 */
+	public String getContent() {
+		@SuppressWarnings("null")
+		String result = this.join(this.contentSpans, this.contentSpanCount).trim();
+		return result;
+	}
+
+	/**
+	 * Gets the comments (including the comment start / end, such as "//" or
+	 * "/*")
+	 *
+	 * @return the comments, joined together
+	 */
+	public String getComment() {
+		return this.join(this.commentSpans, this.commentSpanCount);
+	}
+
+	/**
+	 * Gets the text of the block comment which continues onto the next line
+	 * (after the comment start, such as "/*")
+	 *
+	 * @return the text; empty if the line doesn't end in a block comment
+	 */
+	public String getOpenBlockCommentText() {
+		if (this.openBlockCommentTextStart == -1) {
+			return "";
+		}
+
+		@SuppressWarnings("null")
+		String result = this.line.substring(Math.min(this.openBlockCommentTextStart, this.line.length()));
+		return result;
+	}
+
+	private static int[] addSpan(final int[] spans, final int index, final int start, final int end) {
+		int[] result = spans;
+
+		if (2 * index + 1 >= result.length) {
+			result = Arrays.copyOf(result, 2 * result.length);
+		}
+
+		result[2 * index] = start;
+		result[2 * index + 1] = end;
+
+		return result;
+	}
+
+	private String join(final int[] spans, final int count) {
+		if (count == 0) {
+			return "";
+		}
+
+		if (count == 1) {
+			// Common case, such as code followed by a comment
+			// (returns the line itself if the span is the entire line)
+			@SuppressWarnings("null")
+			String result = spans[0] == 0 && spans[1] == this.line.length() ? this.line
+					: this.line.substring(spans[0], spans[1]);
+			return result;
+		}
+
+		StringBuilder result = new StringBuilder();
+
+		for (int i = 0; i < count; i++) {
+			result.append(this.line, spans[2 * i], spans[2 * i + 1]);
+		}
+
+		@SuppressWarnings("null")
+		String joined = result.toString();
+		return joined;
+	}
+}
@@ -0,0 +1,108 @@
+package info.codesaway.castlesearching.indexer;
+
+import static info.codesaway.castlesearching.linetype.LineType.addType;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Indexes the lines of a file whose comments are found using a
+ * {@link CommentScanner}
+ *
+ * <p>
+ * The comments are indexed as the <b>comment</b> field and the rest of the
+ * line as the <b>content</b> field (so searches can exclude the comments).
+ * Lines which are only comments get a comment type (such as "comment" or "In
+ * block comment"), so commented out lines are ranked lower. Subclasses find
+ * the type for the content of the other lines.
+ * </p>
+ */
+@NonNullByDefault
+public abstract class CommentedLineIndexer implements LineIndexer {
+	private final String blockCommentName;
+
+	/**
+	 *
+	 * @param blockCommentName
+	 *            the name used in the type for lines in a block comment (such
+	 *            as "block comment" for "In block comment")
+	 */
+	protected CommentedLineIndexer(final String blockCommentName) {
+		this.blockCommentName = blockCommentName;
+	}
+
+	/**
+	 * Scans the line for comments
+	 *
+	 * @param trimmedLine
+	 *            the trimmed line
+	 * @return the scanner, with the comments and content for the line
+	 */
+	protected abstract CommentScanner scan(String trimmedLine);
+
+	/**
+	 * Adds the type (and any other fields) for the content of the line
+	 *
+	 * @param document
+	 *            the document for the line
+	 * @param content
+	 *            the content (the trimmed line without its comments; not
+	 *            empty)
+	 */
+	protected abstract void addContentType(Document document, String content);
+
+	@Override
+	public void indexLine(final String line, final Document document) {
+		String trimmedLine = line.trim();
+		CommentScanner scanner = this.scan(trimmedLine);
+
+		String content = scanner.getContent();
+		// If the entire line is a comment, keep the spacing between comments
+		String comment = content.isEmpty() ? trimmedLine : scanner.getComment();
+
+		document.add(new TextField("content", content, Field.Store.YES));
+
+		if (!comment.isEmpty()) {
+			document.add(new TextField("comment", comment, Field.Store.YES));
+		}
+
+		if (scanner.isStartedInBlockComment() && !scanner.isBlockCommentEnded()) {
+			// Entire line is part of the block comment
+			addBlockCommentType(document, this.blockCommentName, trimmedLine);
+		} else if (scanner.isStartedInBlockComment() && content.isEmpty()) {
+			addType(document, "End " + this.blockCommentName);
+		} else if (content.isEmpty() && scanner.hasComment()) {
+			if (scanner.isEndedInBlockComment()) {
+				addBlockCommentType(document, this.blockCommentName, scanner.getOpenBlockCommentText());
+			} else {
+				addType(document, CASTLEIndexer.COMMENT);
+			}
+		} else if (content.isEmpty()) {
+			addType(document, "empty line");
+		} else {
+			this.addContentType(document, content);
+		}
+	}
+
+	/**
+	 * Adds the type for a line in a block comment
+	 *
+	 * @param blockCommentName
+	 *            the name of the block comment (such as "block comment" or
+	 *            "Javadoc")
+	 * @param text
+	 *            the text of the comment on the line
+	 */
+	public static void addBlockCommentType(final Document document, final String blockCommentName,
+			final String text) {
+		if (text.isEmpty() || text.equals("*")) {
+			// Indicate blank lines within block comments
+			// (this way they show up later in search results)
+			addType(document, "In " + blockCommentName + " (empty line)");
+		} else {
+			addType(document, "In " + blockCommentName);
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.DateTools;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.util.BytesRef;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.RangeMap;
+import com.google.common.hash.Hashing;
+
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.DocumentInfo;
+import info.codesaway.castlesearching.IndexLayout;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+import info.codesaway.castlesearching.util.DateUtilities;
+import info.codesaway.castlesearching.util.PathWithLastModified;
+import info.codesaway.util.regex.Matcher;
+
+/**
+ * Creates the documents indexed for a file
+ *
+ * <p>
+ * Doesn't depend on the Eclipse workspace, so the same documents are created
+ * by the plugin and by the headless indexer. The caller provides the charset
+ * and the Java element for each line, if any.
+ * </p>
+ */
+public final class FileDocumentBuilder {
+	/**
+	 * Version of how files are read and indexed
+	 *
+	 * <p>
+	 * Incrementing the version causes every file to be reindexed
+	 * </p>
+	 */
+	public static final int VERSION = 2;
+
+	private FileDocumentBuilder() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Creates the documents for the file
+	 *
+	 * <p>
+	 * Each line is a separate document (or lines are combined into blocks when
+	 * using the {@link IndexLayout#BLOCK BLOCK} layout), followed by a meta
+	 * document which stores the information used to know when to reindex.
+	 * </p>
+	 *
+	 * @param path
+	 *            the file's path
+	 * @param project
+	 *            the project containing the file (empty if none)
+	 * @param fileLastModified
+	 *            the file's last modified
+	 * @param bytes
+	 *            the file's content
+	 * @param charset
+	 *            the file's charset, from
+	 *            {@link LineReader#detectCharset(byte[], java.util.function.Supplier)}
+	 * @param javaElements
+	 *            the Java element for each line number (empty if none)
+	 * @return the documents to add for the file
+	 * @throws IOException
+	 */
+	@NonNullByDefault
+	public static List<Document> build(final Path path, final String project, final long fileLastModified,
+			final byte[] bytes, final Charset charset, final RangeMap<Integer, String> javaElements)
+			throws IOException {
+		String pathString = path.toString();
+
+		@NonNull
+		@SuppressWarnings("null")
+		String filename = path.getFileName().toString();
+
+		String extension = getExtension(filename);
+
+		Indexer indexer = CASTLESearchingSettings.getIndexer(extension);
+		Map<String, String> fileRelatedFields = indexer.getFileRelatedFields(path, filename);
+		LineIndexer lineIndexer = indexer.newLineIndexer();
+
+		List<Document> documents = new ArrayList<>();
+
+		// Time spent classifying the lines
+		// (recorded once for the file, rather than for each line)
+		long lineClassificationNanos = 0;
+
+		// Fields related to the file itself
+		// (the same fields are added to each document for the file)
+		List<Field> fileFields = getFileFields(pathString, filename, project, extension, fileRelatedFields);
+
+		// Doc values for the file related fields shown in the search results
+		// (this way, searching doesn't need to load the stored fields for
+		// every hit)
+		List<Field> fileDocValues = getFileDocValues(pathString, filename, project, extension);
+
+		// When using the block layout, combine lines into block documents
+		@Nullable
+		BlockDocumentBuilder blockBuilder = CASTLESearchingSettings.INDEX_LAYOUT == IndexLayout.BLOCK
+				? new BlockDocumentBuilder(fileFields, CASTLESearchingSettings.BLOCK_LINES)
+				: null;
+
+		// Read input line by line
+		LineReader reader = new LineReader(bytes, charset);
+		String line;
+		int lineNumber = 0;
+
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+
+			Document document = new Document();
+
+			if (blockBuilder == null) {
+				for (Field field : fileFields) {
+					document.add(field);
+				}
+
+				for (Field field : fileDocValues) {
+					document.add(field);
+				}
+
+				document.add(new NumericDocValuesField("line", lineNumber));
+			}
+
+			@Nullable
+			String element = javaElements.get(lineNumber);
+
+			if (element != null) {
+				document.add(new TextField("element", element, Field.Store.YES));
+
+				if (blockBuilder == null) {
+					document.add(new SortedDocValuesField("element", new BytesRef(element)));
+				}
+			}
+
+			// Store line as int instead of as String
+			document.add(new IntPoint("line", lineNumber));
+
+			document.add(new StoredField("line", lineNumber));
+			// document.add(new StringField("line",
+			// String.valueOf(lineNumber), Field.Store.YES));
+
+			// Add date
+			Matcher dateMatcher = DateUtilities.DATE_MATCHER.get().reset(line);
+
+			// TODO: should this be a while loop, so can have multiple dates
+			// on same line?
+			if (dateMatcher.find()) {
+				String date = dateMatcher.group();
+
+				boolean isLocalDate = dateMatcher.matched("localDate");
+
+				LocalDate localDate = DateUtilities.parseLocalDate(date, isLocalDate);
+
+				if (localDate != null) {
+					// TODO: verify this doesn't break anything
+					document.add(new TextField("date",
+							DateTools.dateToString(DateUtilities.asDate(localDate), DateTools.Resolution.DAY),
+							Field.Store.YES));
+				}
+			}
+
+			// Handle data specific to file extension
+			// (such as indexing the content and comment separately, so can
+			// filter out comments in results if desired)
+			long lineClassificationStart = System.nanoTime();
+			lineIndexer.indexLine(line, document);
+			lineClassificationNanos += System.nanoTime() - lineClassificationStart;
+
+			if (blockBuilder == null) {
+				// Doc values can only have one type, so use the first
+				// (same type as shown when loading the stored field)
+				String type = document.get("type");
+
+				if (type != null) {
+					document.add(new SortedDocValuesField("type", new BytesRef(type)));
+				}
+
+				documents.add(document);
+			} else {
+				Document blockDocument = blockBuilder.addLine(lineNumber, document);
+
+				if (blockDocument != null) {
+					documents.add(blockDocument);
+				}
+			}
+		}
+
+		if (blockBuilder != null) {
+			Document blockDocument = blockBuilder.finish();
+
+			if (blockDocument != null) {
+				documents.add(blockDocument);
+			}
+		}
+
+		CASTLEMetrics.INDEX_LINE_CLASSIFICATION.record(lineClassificationNanos);
+
+		// Store information about the file itself
+		// (stores last modified so can do incremental reindexing, when files
+		// are added or modified)
+		Document metaDocument = new Document();
+
+		// Indicate this is a meta document, so it can be ignored when searching
+		metaDocument.add(new StringField("metadocument", "meta", Field.Store.NO));
+
+		metaDocument.add(new StringField(CASTLEIndexer.FULL_PATH_FIELD, pathString, Field.Store.YES));
+
+		// Put pathname as a docvalue, so can quickly retrieve
+		// (used to determine which files were modified when incremental
+		// indexing)
+		metaDocument.add(new BinaryDocValuesField(CASTLEIndexer.PATHNAME_FIELD, new BytesRef(pathString)));
+
+		// Store data to help know when to reindex
+		metaDocument.add(new NumericDocValuesField("fileLastModified", fileLastModified));
+
+		// Track the version of the indexer that was used to write the document
+		// (this way, can incrementally update files as the logic changes)
+		// (each file extension has its own version, so only files using the
+		// changed indexer are reindexed)
+		long documentVersion = CASTLESearchingSettings.getDocumentVersion(extension);
+		metaDocument.add(new NumericDocValuesField("documentVersion", documentVersion));
+
+		documents.add(metaDocument);
+
+		return documents;
+	}
+
+	/**
+	 * Indicates whether the file's content matches the content hash stored
+	 * when the file was indexed
+	 */
+	public static boolean isContentUnchanged(final PathWithLastModified path, final DocumentInfo doc) {
+		if (!CASTLESearchingSettings.CONTENT_HASH || doc.getContentHash() == 0) {
+			return false;
+		}
+
+		// Different size means different content, so don't need to read the
+		// file
+		if (path.getSize() != doc.getSize()) {
+			return false;
+		}
+
+		try {
+			byte[] bytes = Files.readAllBytes(path.getPath());
+			return getContentHash(bytes) == doc.getContentHash();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets a fingerprint of the file content
+	 *
+	 * @param bytes
+	 *            the file content
+	 * @return the fingerprint (never 0, since 0 indicates no content hash)
+	 */
+	public static long getContentHash(final byte[] bytes) {
+		long contentHash = Hashing.farmHashFingerprint64().hashBytes(bytes).asLong();
+
+		return contentHash != 0 ? contentHash : 1;
+	}
+
+	/**
+	 * Gets the fields related to the file itself (such as the path and
+	 * project)
+	 */
+	@NonNullByDefault
+	private static List<Field> getFileFields(final String pathString, final String filename, final String project,
+			final String extension, final Map<String, String> fileRelatedFields) {
+		List<Field> fields = new ArrayList<>();
+
+		fields.add(new StringField(CASTLEIndexer.FULL_PATH_FIELD, pathString, Field.Store.YES));
+
+		// Index path with normal parser, so can search path
+		// (don't store, since value is already stored as part of
+		// fullpath)
+		fields.add(new TextField(CASTLEIndexer.PATH_FIELD, pathString, Field.Store.NO));
+		fields.add(new TextField("file", filename, Field.Store.YES));
+
+		// Add fields based on file itself
+		for (Map.Entry<String, String> entry : fileRelatedFields.entrySet()) {
+			@SuppressWarnings("null")
+			String key = entry.getKey();
+			@SuppressWarnings("null")
+			String value = entry.getValue();
+
+			fields.add(new TextField(key, value, Field.Store.NO));
+		}
+
+		// Add project
+		if (!project.isEmpty()) {
+			fields.add(new TextField("proj", project, Field.Store.YES));
+		}
+
+		if (!extension.isEmpty()) {
+			fields.add(new StringField("ext", extension, Field.Store.YES));
+		}
+
+		return fields;
+	}
+
+	@NonNullByDefault
+	private static List<Field> getFileDocValues(final String pathString, final String filename,
+			final String project, final String extension) {
+		List<Field> fields = new ArrayList<>();
+
+		fields.add(new SortedDocValuesField(CASTLEIndexer.FULL_PATH_FIELD, new BytesRef(pathString)));
+		fields.add(new SortedDocValuesField("file", new BytesRef(filename)));
+
+		if (!project.isEmpty()) {
+			fields.add(new SortedDocValuesField("proj", new BytesRef(project)));
+		}
+
+		if (!extension.isEmpty()) {
+			fields.add(new SortedDocValuesField("ext", new BytesRef(extension)));
+		}
+
+		return fields;
+	}
+
+	@NonNullByDefault
+	public static String getExtension(final String filename) {
+		int lastPeriod = filename.lastIndexOf('.');
+
+		@NonNull
+		@SuppressWarnings("null")
+		String extension = lastPeriod > 0 ? filename.substring(lastPeriod + 1) : "";
+		return extension;
+	}
+}
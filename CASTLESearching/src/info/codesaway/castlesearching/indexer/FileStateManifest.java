@@ -0,0 +1,317 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.index.IndexWriter;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import info.codesaway.castlesearching.DocumentInfo;
+
+/**
+ * Manifest of the files in an index (path, last modified, size, content hash,
+ * and indexer version)
+ *
+ * <p>
+ * Used when incrementally indexing to determine which files were modified,
+ * without needing to read the doc values for every meta document in the
+ * index.
+ * </p>
+ *
+ * <p>
+ * Each commit writes a new manifest file named after its generation, and
+ * stores the generation in the commit's user data. The manifest is only used
+ * if its generation matches the last commit (otherwise, such as if Eclipse
+ * crashed after writing the manifest but before committing, the index is
+ * scanned instead).
+ * </p>
+ */
+@NonNullByDefault
+public class FileStateManifest {
+	// "CASM" - CASTLE Searching Manifest
+	private static final int MAGIC = 0x4341534D;
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String FILENAME_PREFIX = "manifest_";
+
+	/**
+	 * Key in the index commit's user data which stores the manifest generation
+	 */
+	public static final String GENERATION_KEY = "manifestGeneration";
+
+	private final Path directory;
+	private final Map<String, DocumentInfo> files = new ConcurrentHashMap<>();
+
+	// Whether the files match the documents in the index
+	private volatile boolean isValid;
+	private long generation;
+
+	private FileStateManifest(final Path directory, final long generation) {
+		this.directory = directory;
+		this.generation = generation;
+	}
+
+	/**
+	 * Load the manifest which corresponds to the last commit of the specified
+	 * IndexWriter
+	 *
+	 * <p>
+	 * If there's no matching manifest, returns an empty manifest which isn't
+	 * {@link #isValid() valid}
+	 * </p>
+	 *
+	 * @param directory
+	 *            directory containing the manifest files
+	 * @param writer
+	 *            the IndexWriter for the index
+	 * @return the manifest
+	 */
+	public static FileStateManifest load(final Path directory, final IndexWriter writer) {
+		long generation = getGeneration(writer);
+		FileStateManifest manifest = new FileStateManifest(directory, generation);
+
+		if (generation == 0) {
+			// Index was committed without a manifest
+			return manifest;
+		}
+
+		Path path = manifest.getPath(generation);
+
+		if (!Files.isRegularFile(path)) {
+			return manifest;
+		}
+
+		try {
+			manifest.read(path);
+			manifest.isValid = true;
+		} catch (IOException | RuntimeException e) {
+			// Manifest is corrupt, so scan the index instead
+			manifest.files.clear();
+		}
+
+		return manifest;
+	}
+
+	private static long getGeneration(final IndexWriter writer) {
+		Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+
+		if (commitData == null) {
+			return 0;
+		}
+
+		for (Map.Entry<String, String> entry : commitData) {
+			if (entry.getKey().equals(GENERATION_KEY)) {
+				try {
+					return Long.parseLong(entry.getValue());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+
+		return 0;
+	}
+
+	private Path getPath(final long generation) {
+		@SuppressWarnings("null")
+		Path path = this.directory.resolve(FILENAME_PREFIX + generation);
+		return path;
+	}
+
+	private void read(final Path path) throws IOException {
+		// Memory map the file, since it's read once from start to end
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				throw new IOException("Unexpected manifest format: " + path);
+			}
+
+			int count = buffer.getInt();
+			byte[] pathnameBytes = new byte[256];
+
+			for (int i = 0; i < count; i++) {
+				int length = buffer.getInt();
+
+				if (length > pathnameBytes.length) {
+					pathnameBytes = new byte[Math.max(length, 2 * pathnameBytes.length)];
+				}
+
+				buffer.get(pathnameBytes, 0, length);
+				String pathname = new String(pathnameBytes, 0, length, StandardCharsets.UTF_8);
+
+				long lastModified = buffer.getLong();
+				long size = buffer.getLong();
+				long contentHash = buffer.getLong();
+				long documentVersion = buffer.getLong();
+
+				this.files.put(pathname, new DocumentInfo(lastModified, documentVersion, size, contentHash));
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether the manifest matches the documents in the index
+	 *
+	 * @return <code>true</code> if can use the manifest instead of scanning
+	 *         the index
+	 */
+	public boolean isValid() {
+		return this.isValid;
+	}
+
+	/**
+	 * Replace the files in the manifest, such as after scanning the index
+	 *
+	 * @param files
+	 *            the files in the index
+	 */
+	public void reset(final Map<String, DocumentInfo> files) {
+		this.files.clear();
+		this.files.putAll(files);
+		this.isValid = true;
+	}
+
+	/**
+	 * Gets the files in the manifest, keyed by pathname
+	 *
+	 * <p>
+	 * Includes files indexed since the last commit
+	 * </p>
+	 *
+	 * @return unmodifiable view of the files
+	 */
+	public Map<String, DocumentInfo> getFiles() {
+		@SuppressWarnings("null")
+		Map<String, DocumentInfo> files = Collections.unmodifiableMap(this.files);
+		return files;
+	}
+
+	@Nullable
+	public DocumentInfo get(final String pathname) {
+		return this.files.get(pathname);
+	}
+
+	/**
+	 * Records that the file was indexed
+	 *
+	 * <p>
+	 * Must be called after the documents are added to the IndexWriter, so the
+	 * next commit includes the documents before the manifest says they're
+	 * indexed
+	 * </p>
+	 */
+	public void put(final String pathname, final DocumentInfo documentInfo) {
+		this.files.put(pathname, documentInfo);
+	}
+
+	public void remove(final String pathname) {
+		this.files.remove(pathname);
+	}
+
+	/**
+	 * Changes the document version for every file
+	 *
+	 * @param documentVersion
+	 *            the document version
+	 */
+	public void setDocumentVersion(final long documentVersion) {
+		this.files.replaceAll((k, v) -> new DocumentInfo(v.getLastModified(), documentVersion, v.getSize(),
+				v.getContentHash()));
+	}
+
+	/**
+	 * Commit the IndexWriter along with the manifest
+	 *
+	 * @param writer
+	 *            the IndexWriter
+	 * @throws IOException
+	 */
+	public synchronized void commit(final IndexWriter writer) throws IOException {
+		if (!this.isValid) {
+			// Don't know which files are in the index yet
+			// (will be valid after the index is scanned)
+			writer.commit();
+			return;
+		}
+
+		// Copy files before committing
+		// (this way, every file in the copy was added to the IndexWriter
+		// before the commit, so the manifest never says a file is indexed
+		// when the commit doesn't include it)
+		Map<String, DocumentInfo> files = new HashMap<>(this.files);
+
+		long generation = this.generation + 1;
+		Path path = this.getPath(generation);
+
+		Files.createDirectories(this.directory);
+		this.write(path, files);
+
+		try {
+			writer.setLiveCommitData(
+					Collections.singletonMap(GENERATION_KEY, String.valueOf(generation)).entrySet());
+			writer.commit();
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(path);
+			throw e;
+		}
+
+		this.generation = generation;
+		this.deleteOldManifests();
+	}
+
+	private void write(final Path path, final Map<String, DocumentInfo> files) throws IOException {
+		try (OutputStream outputStream = Files.newOutputStream(path);
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16))) {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.writeInt(files.size());
+
+			for (Map.Entry<String, DocumentInfo> entry : files.entrySet()) {
+				byte[] pathnameBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				DocumentInfo documentInfo = entry.getValue();
+
+				output.writeInt(pathnameBytes.length);
+				output.write(pathnameBytes);
+				output.writeLong(documentInfo.getLastModified());
+				output.writeLong(documentInfo.getSize());
+				output.writeLong(documentInfo.getContentHash());
+				output.writeLong(documentInfo.getDocumentVersion());
+			}
+		}
+	}
+
+	private void deleteOldManifests() {
+		Path current = this.getPath(this.generation);
+
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(this.directory, FILENAME_PREFIX + "*")) {
+			for (Path path : paths) {
+				if (!path.equals(current)) {
+					try {
+						Files.deleteIfExists(path);
+					} catch (IOException e) {
+						// Ignore (such as if still memory mapped on Windows)
+						// (will try again after the next commit)
+					}
+				}
+			}
+		} catch (IOException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Indexes the files with an extension
+ *
+ * <p>
+ * Each <b>indexer</b> element in settings.xml uses an indexer, chosen by its
+ * <b>type</b> attribute or by the extension (see {@link Indexers}).
+ * </p>
+ *
+ * <p>
+ * Files are indexed using multiple threads, so an indexer is shared by the
+ * threads. The state for indexing a file (such as whether a line is in a
+ * block comment) is kept by its {@link LineIndexer}.
+ * </p>
+ */
+@NonNullByDefault
+public interface Indexer {
+	/**
+	 * Gets the version of how the lines are indexed
+	 *
+	 * <p>
+	 * Incrementing the version causes the files using this indexer to be
+	 * reindexed
+	 * </p>
+	 *
+	 * @return the version
+	 */
+	int getVersion();
+
+	/**
+	 * Gets the fields related to the file itself (such as from the filename)
+	 *
+	 * @param path
+	 *            the file's path
+	 * @param filename
+	 *            the file's name
+	 * @return the field names and their values (empty if none)
+	 */
+	default Map<String, String> getFileRelatedFields(final Path path, final String filename) {
+		@NonNull
+		@SuppressWarnings("null")
+		Map<String, String> emptyMap = Collections.emptyMap();
+
+		return emptyMap;
+	}
+
+	/**
+	 * Creates the line indexer used to index a file
+	 *
+	 * @return the line indexer (only used for one file)
+	 */
+	LineIndexer newLineIndexer();
+}
@@ -0,0 +1,100 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.util.Locale;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.indexer.java.JavaIndexer;
+import info.codesaway.castlesearching.indexer.markup.MarkupIndexer;
+import info.codesaway.castlesearching.indexer.properties.PropertiesIndexer;
+import info.codesaway.castlesearching.indexer.sql.SqlIndexer;
+
+/**
+ * Finds the {@link Indexer} to use for an <b>indexer</b> element in
+ * settings.xml
+ *
+ * <p>
+ * The <b>type</b> attribute is either the name of a built-in indexer (java,
+ * markup, sql, properties, or text) or the class name of an {@link Indexer}
+ * with a public no-argument constructor. If the type isn't specified, the
+ * indexer is chosen by the extension.
+ * </p>
+ */
+@NonNullByDefault
+public class Indexers {
+	/**
+	 * Gets the indexer for the type
+	 *
+	 * @param type
+	 *            the <b>type</b> attribute (empty to choose by the extension)
+	 * @param extension
+	 *            the file extension
+	 * @return the indexer
+	 * @throws IllegalArgumentException
+	 *             if the type isn't a built-in indexer or the class name of an
+	 *             {@link Indexer}
+	 */
+	public static Indexer getIndexer(final String type, final String extension) {
+		if (type.isEmpty()) {
+			return getDefaultIndexer(extension);
+		}
+
+		switch (type) {
+		case "java":
+			return new JavaIndexer();
+		case "markup":
+			return new MarkupIndexer();
+		case "sql":
+			return new SqlIndexer();
+		case "properties":
+			return new PropertiesIndexer();
+		case "text":
+			return new PlainTextIndexer();
+		default:
+			try {
+				@SuppressWarnings("null")
+				Indexer indexer = Class.forName(type).asSubclass(Indexer.class).getDeclaredConstructor()
+						.newInstance();
+				return indexer;
+			} catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+				throw new IllegalArgumentException(
+						"Unknown indexer type \"" + type + "\" for extension \"" + extension + "\"", e);
+			}
+		}
+	}
+
+	/**
+	 * Gets the indexer used for the extension, if the type isn't specified
+	 *
+	 * @param extension
+	 *            the file extension
+	 * @return the indexer ({@link PlainTextIndexer} if no other indexer
+	 *         handles the extension)
+	 */
+	public static Indexer getDefaultIndexer(final String extension) {
+		switch (extension.toLowerCase(Locale.ROOT)) {
+		case "java":
+			return new JavaIndexer();
+		case "xml":
+		case "xsd":
+		case "xsl":
+		case "xslt":
+		case "wsdl":
+		case "html":
+		case "htm":
+		case "xhtml":
+		case "jsp":
+		case "jspf":
+		case "tag":
+		case "tld":
+			return new MarkupIndexer();
+		case "sql":
+		case "ddl":
+			return new SqlIndexer();
+		case "properties":
+			return new PropertiesIndexer();
+		default:
+			return new PlainTextIndexer();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package info.codesaway.castlesearching.indexer;
+
+import org.apache.lucene.document.Document;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Indexes the lines of a file, in order
+ *
+ * <p>
+ * Keeps the state carried from one line to the next (such as whether in a
+ * block comment), so is only used for one file.
+ * </p>
+ */
+@NonNullByDefault
+public interface LineIndexer {
+	/**
+	 * Adds the fields for the line (such as the content, comment, and type)
+	 *
+	 * @param line
+	 *            the line (without the line break)
+	 * @param document
+	 *            the document for the line
+	 */
+	void indexLine(String line, Document document);
+}
@@ -0,0 +1,294 @@
+package info.codesaway.castlesearching.indexer;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.charset.Charset;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Reads the lines of a file's content
+ *
+ * <p>
+ * The line breaks are found in the bytes and each line is decoded directly,
+ * instead of decoding the content using a {@link java.io.BufferedReader}
+ * (which copies the characters through its buffers). Lines end with \n, \r,
+ * or \r\n, the same as {@link java.io.BufferedReader#readLine()}.
+ * </p>
+ */
+@NonNullByDefault
+public final class LineReader {
+	/**
+	 * Charset used when the content isn't UTF-8 and no other charset is
+	 * specified
+	 */
+	public static final Charset DEFAULT_CHARSET = ISO_8859_1;
+
+	private final byte[] bytes;
+	private final Charset charset;
+
+	// Content decoded all at once, for charsets where a byte with the value of
+	// \r or \n may be part of another character (such as UTF-16)
+	@Nullable
+	private final String text;
+
+	private int position;
+
+	/**
+	 * Creates a reader for the content
+	 *
+	 * @param bytes
+	 *            the file's content
+	 * @param charset
+	 *            the charset, from {@link #detectCharset(byte[], Supplier)}
+	 *            (a byte order mark, if any, is skipped)
+	 */
+	public LineReader(final byte[] bytes, final Charset charset) {
+		this.bytes = bytes;
+		this.charset = charset;
+
+		if (isLineBreakSafe(charset)) {
+			this.text = null;
+			this.position = getByteOrderMarkLength(bytes, charset);
+		} else {
+			this.text = decode(bytes, charset);
+			this.position = 0;
+		}
+	}
+
+	/**
+	 * Reads the next line
+	 *
+	 * @return the line (without the line break); <code>null</code> if there
+	 *         are no more lines
+	 */
+	@Nullable
+	public String readLine() {
+		String text = this.text;
+
+		if (text != null) {
+			return this.readTextLine(text);
+		}
+
+		int start = this.position;
+		int length = this.bytes.length;
+
+		if (start >= length) {
+			return null;
+		}
+
+		int end = start;
+
+		while (end < length && this.bytes[end] != '\n' && this.bytes[end] != '\r') {
+			end++;
+		}
+
+		this.position = this.skipLineBreak(end, length);
+
+		return new String(this.bytes, start, end - start, this.charset);
+	}
+
+	@Nullable
+	private String readTextLine(final String text) {
+		int start = this.position;
+		int length = text.length();
+
+		if (start >= length) {
+			return null;
+		}
+
+		int end = start;
+
+		while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+			end++;
+		}
+
+		if (end < length && text.charAt(end) == '\r' && end + 1 < length && text.charAt(end + 1) == '\n') {
+			this.position = end + 2;
+		} else {
+			this.position = end + 1;
+		}
+
+		@NonNull
+		@SuppressWarnings("null")
+		String line = text.substring(start, end);
+		return line;
+	}
+
+	private int skipLineBreak(final int end, final int length) {
+		if (end < length && this.bytes[end] == '\r' && end + 1 < length && this.bytes[end + 1] == '\n') {
+			return end + 2;
+		}
+
+		return end + 1;
+	}
+
+	/**
+	 * Detects the charset of the file's content
+	 *
+	 * <p>
+	 * A byte order mark determines the charset. Otherwise, content which is
+	 * valid UTF-8 (including ASCII) is read as UTF-8. Other content uses the
+	 * default charset (such as the Eclipse encoding for the file), which is
+	 * only looked up if needed.
+	 * </p>
+	 *
+	 * @param bytes
+	 *            the file's content
+	 * @param defaultCharset
+	 *            gets the charset to use when the content isn't UTF-8
+	 * @return the charset
+	 */
+	public static Charset detectCharset(final byte[] bytes, final Supplier<Charset> defaultCharset) {
+		if (startsWith(bytes, 0xEF, 0xBB, 0xBF)) {
+			return UTF_8;
+		} else if (startsWith(bytes, 0xFE, 0xFF)) {
+			return UTF_16BE;
+		} else if (startsWith(bytes, 0xFF, 0xFE)) {
+			return UTF_16LE;
+		} else if (isValidUtf8(bytes)) {
+			return UTF_8;
+		}
+
+		Charset charset = defaultCharset.get();
+
+		// The content isn't UTF-8, so decoding as UTF-8 would replace the
+		// invalid bytes
+		return charset.equals(UTF_8) ? DEFAULT_CHARSET : charset;
+	}
+
+	/**
+	 * Decodes the file's content (without the byte order mark, if any)
+	 *
+	 * @param bytes
+	 *            the file's content
+	 * @param charset
+	 *            the charset, from {@link #detectCharset(byte[], Supplier)}
+	 * @return the decoded content
+	 */
+	public static String decode(final byte[] bytes, final Charset charset) {
+		int offset = getByteOrderMarkLength(bytes, charset);
+
+		return new String(bytes, offset, bytes.length - offset, charset);
+	}
+
+	private static int getByteOrderMarkLength(final byte[] bytes, final Charset charset) {
+		if (charset.equals(UTF_8)) {
+			return startsWith(bytes, 0xEF, 0xBB, 0xBF) ? 3 : 0;
+		} else if (charset.equals(UTF_16BE)) {
+			return startsWith(bytes, 0xFE, 0xFF) ? 2 : 0;
+		} else if (charset.equals(UTF_16LE)) {
+			return startsWith(bytes, 0xFF, 0xFE) ? 2 : 0;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Indicates whether the bytes for \r and \n are only ever line breaks
+	 * (true for UTF-8 and single byte charsets)
+	 */
+	private static boolean isLineBreakSafe(final Charset charset) {
+		if (charset.equals(UTF_8) || charset.equals(ISO_8859_1) || charset.equals(US_ASCII)) {
+			return true;
+		}
+
+		return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1;
+	}
+
+	private static boolean startsWith(final byte[] bytes, final int... prefix) {
+		if (bytes.length < prefix.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length; i++) {
+			if ((bytes[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Indicates whether the bytes are valid UTF-8
+	 *
+	 * <p>
+	 * Checks the structure of each multibyte sequence, without decoding the
+	 * content. Overlong encodings and surrogates are invalid, the same as when
+	 * decoding.
+	 * </p>
+	 */
+	static boolean isValidUtf8(final byte[] bytes) {
+		int length = bytes.length;
+		int i = 0;
+
+		while (i < length) {
+			int b = bytes[i];
+
+			if (b >= 0) {
+				// ASCII
+				i++;
+				continue;
+			}
+
+			b &= 0xFF;
+
+			int continuationBytes;
+			// Valid range for the second byte
+			// (excludes overlong encodings, surrogates, and values above
+			// U+10FFFF)
+			int min = 0x80;
+			int max = 0xBF;
+
+			if (b >= 0xC2 && b <= 0xDF) {
+				continuationBytes = 1;
+			} else if (b >= 0xE0 && b <= 0xEF) {
+				continuationBytes = 2;
+
+				if (b == 0xE0) {
+					min = 0xA0;
+				} else if (b == 0xED) {
+					max = 0x9F;
+				}
+			} else if (b >= 0xF0 && b <= 0xF4) {
+				continuationBytes = 3;
+
+				if (b == 0xF0) {
+					min = 0x90;
+				} else if (b == 0xF4) {
+					max = 0x8F;
+				}
+			} else {
+				return false;
+			}
+
+			if (i + continuationBytes >= length) {
+				return false;
+			}
+
+			int second = bytes[i + 1] & 0xFF;
+
+			if (second < min || second > max) {
+				return false;
+			}
+
+			for (int j = 2; j <= continuationBytes; j++) {
+				if ((bytes[i + j] & 0xC0) != 0x80) {
+					return false;
+				}
+			}
+
+			i += continuationBytes + 1;
+		}
+
+		return true;
+	}
+}
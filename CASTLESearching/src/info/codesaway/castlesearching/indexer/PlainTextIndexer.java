@@ -0,0 +1,25 @@
+package info.codesaway.castlesearching.indexer;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Indexes each line as content (used for files without a more specific
+ * indexer)
+ */
+@NonNullByDefault
+public class PlainTextIndexer implements Indexer {
+	public static final int VERSION = 1;
+
+	@Override
+	public int getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public LineIndexer newLineIndexer() {
+		// Lines don't depend on the previous lines, so doesn't have any state
+		return (line, document) -> document.add(new TextField("content", line, Field.Store.YES));
+	}
+}
@@ -0,0 +1,156 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Bounded priority queue of files to index, which can be consumed while files
+ * are still being added
+ *
+ * <p>
+ * This way, indexing can start while the workspace is still being walked.
+ * Files are taken highest priority first (such as most recently modified)
+ * among the files found so far, so the order is mostly kept, without waiting
+ * for the entire walk.
+ * </p>
+ *
+ * <p>
+ * When the queue is full, adding a file waits until a file is taken (which
+ * keeps memory bounded on large workspaces).
+ * </p>
+ *
+ * @param <T>
+ *            the type of element
+ */
+@NonNullByDefault
+public class PrioritizedQueue<T> implements Iterator<T> {
+	private static final long POLL_MILLISECONDS = 50;
+
+	private final PriorityBlockingQueue<T> queue;
+	private final Semaphore capacity;
+
+	private volatile boolean isFinished;
+	private volatile boolean isClosed;
+
+	@Nullable
+	private T next;
+
+	/**
+	 *
+	 * @param capacity
+	 *            the maximum number of elements which can be waiting
+	 * @param comparator
+	 *            comparator where the first element has the highest priority
+	 */
+	public PrioritizedQueue(final int capacity, final Comparator<? super T> comparator) {
+		this.queue = new PriorityBlockingQueue<>(Math.min(capacity, 1024), comparator);
+		this.capacity = new Semaphore(capacity);
+	}
+
+	/**
+	 * Add the element, waiting if the queue is full
+	 *
+	 * <p>
+	 * If the queue is closed, the element is ignored
+	 * </p>
+	 *
+	 * @param element
+	 *            the element
+	 */
+	public void add(final T element) {
+		try {
+			while (!this.capacity.tryAcquire(POLL_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+				if (this.isClosed) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		if (this.isClosed) {
+			this.capacity.release();
+			return;
+		}
+
+		this.queue.add(element);
+	}
+
+	/**
+	 * Indicates no more elements will be added
+	 */
+	public void finish() {
+		this.isFinished = true;
+	}
+
+	/**
+	 * Stop accepting elements (such as if indexing was canceled)
+	 */
+	public void close() {
+		this.isClosed = true;
+		this.queue.clear();
+	}
+
+	public boolean isClosed() {
+		return this.isClosed;
+	}
+
+	/**
+	 * Waits until an element is available or no more elements will be added
+	 *
+	 * @throws OperationCanceledException
+	 *             if interrupted while waiting
+	 */
+	@Override
+	public boolean hasNext() {
+		if (this.next != null) {
+			return true;
+		}
+
+		try {
+			while (!this.isClosed) {
+				// Check finished before polling, so elements added before
+				// finishing are still taken
+				boolean isFinished = this.isFinished;
+
+				T element = this.queue.poll(POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+				if (element != null) {
+					this.capacity.release();
+					this.next = element;
+					return true;
+				}
+
+				if (isFinished) {
+					return false;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+
+		return false;
+	}
+
+	@Override
+	public T next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		@SuppressWarnings("null")
+		T element = this.next;
+		this.next = null;
+		return element;
+	}
+}
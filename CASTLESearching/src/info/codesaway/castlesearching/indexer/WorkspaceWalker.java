@@ -0,0 +1,208 @@
+package info.codesaway.castlesearching.indexer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.util.PathWithLastModified;
+
+/**
+ * Walks the workspace to find the files to index
+ *
+ * <p>
+ * Ignored directories (such as <code>.git</code> and <code>target</code>) are
+ * skipped entirely, instead of walking them and then filtering out their
+ * files. The last modified and size come from the attributes read while
+ * walking, so each file is only stat'ed once.
+ * </p>
+ *
+ * <p>
+ * Each project (directory directly under the root) is walked as a separate
+ * fork-join task, so projects are walked in parallel. The tasks run in a
+ * fork-join pool used only for the walk, since the consumer may block (such
+ * as when the queue of files to index is full).
+ * </p>
+ */
+@NonNullByDefault
+public class WorkspaceWalker {
+	private final Path root;
+	private final Consumer<PathWithLastModified> consumer;
+
+	private volatile boolean isStopped;
+
+	/**
+	 *
+	 * @param root
+	 *            the directory to walk
+	 * @param consumer
+	 *            called for each file to index (called from multiple
+	 *            threads)
+	 */
+	public WorkspaceWalker(final Path root, final Consumer<PathWithLastModified> consumer) {
+		this.root = root;
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Walk the files, waiting until every project has been walked
+	 */
+	public void walk() {
+		ForkJoinPool pool = new ForkJoinPool();
+
+		try {
+			pool.invoke(new WalkRootTask());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Stop walking (such as if indexing was canceled)
+	 */
+	public void stop() {
+		this.isStopped = true;
+	}
+
+	/**
+	 * Indicates whether walking skips the file, since it's in an ignored
+	 * directory or isn't a file to index
+	 *
+	 * <p>
+	 * Used to delete the documents for files which were indexed before the
+	 * settings changed (such as files under <code>target</code>, once it's
+	 * ignored), even though the files still exist
+	 * </p>
+	 *
+	 * @param file
+	 *            the file
+	 * @return <code>true</code> if the file is skipped
+	 */
+	public boolean isSkipped(final Path file) {
+		if (!CASTLESearchingSettings.shouldIndexFile(file)) {
+			return true;
+		}
+
+		if (!file.startsWith(this.root)) {
+			// Not under the root, so walking wouldn't find the file either way
+			return false;
+		}
+
+		// Check the directories between the root and the file
+		for (Path directory = file.getParent(); directory != null
+				&& !directory.equals(this.root); directory = directory.getParent()) {
+			if (CASTLESearchingSettings.shouldIgnoreDirectory(directory)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void walk(final Path directory) {
+		try {
+			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+					if (WorkspaceWalker.this.isStopped) {
+						return FileVisitResult.TERMINATE;
+					}
+
+					if (CASTLESearchingSettings.shouldIgnoreDirectory(dir)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+					WorkspaceWalker.this.visitFile(file, attrs);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+					// Ignore files which cannot be read (such as if deleted
+					// while walking)
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+	}
+
+	private void visitFile(final Path file, final BasicFileAttributes attrs) {
+		if (attrs.isRegularFile() && CASTLESearchingSettings.shouldIndexFile(file)) {
+			this.consumer
+					.accept(new PathWithLastModified(file, attrs.lastModifiedTime().toMillis(), attrs.size()));
+		}
+	}
+
+	/**
+	 * Walks the files directly under the root and forks a task for each
+	 * project
+	 */
+	private class WalkRootTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute() {
+			Path root = WorkspaceWalker.this.root;
+			List<WalkProjectTask> tasks = new ArrayList<>();
+
+			try (DirectoryStream<Path> paths = Files.newDirectoryStream(root)) {
+				for (Path path : paths) {
+					BasicFileAttributes attrs;
+
+					try {
+						attrs = Files.readAttributes(path, BasicFileAttributes.class);
+					} catch (IOException e) {
+						continue;
+					}
+
+					if (attrs.isDirectory()) {
+						if (!CASTLESearchingSettings.shouldIgnoreDirectory(path)) {
+							tasks.add(new WalkProjectTask(path));
+						}
+					} else {
+						WorkspaceWalker.this.visitFile(path, attrs);
+					}
+				}
+			} catch (IOException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+
+			invokeAll(tasks);
+		}
+	}
+
+	private class WalkProjectTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Path project;
+
+		public WalkProjectTask(final Path project) {
+			this.project = project;
+		}
+
+		@Override
+		protected void compute() {
+			WorkspaceWalker.this.walk(this.project);
+		}
+	}
+}
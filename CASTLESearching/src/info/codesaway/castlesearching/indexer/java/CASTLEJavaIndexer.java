@@ -23,12 +23,22 @@ import info.codesaway.castlesearching.CASTLESearchingSettings;
 import info.codesaway.castlesearching.CommentType;
 import info.codesaway.castlesearching.PatternInfo;
 import info.codesaway.castlesearching.indexer.CASTLEIndexer;
+import info.codesaway.castlesearching.indexer.CommentedLineIndexer;
 import info.codesaway.castlesearching.linetype.LineType;
 import info.codesaway.castlesearching.util.RegexUtilities;
 import info.codesaway.castlesearching.util.Utilities;
 import info.codesaway.util.regex.Matcher;
 
 public class CASTLEJavaIndexer {
+	/**
+	 * Version of how Java lines are indexed
+	 *
+	 * <p>
+	 * Incrementing the version causes Java files to be reindexed
+	 * </p>
+	 */
+	public static final int VERSION = 2;
+
 	// https://en.wikipedia.org/wiki/List_of_Java_keywords
 	private static final String JAVA_KEYWORD_REGEX = "(?:\\b(?:" + "abstract|assert|" + "boolean|break|byte|"
 			+ "case|catch|char|class|continue|" + "default|do|double|" + "else|enum|extends|"
@@ -49,13 +59,16 @@ public class CASTLEJavaIndexer {
 	private static final String JAVA_IDENTIFIER_REGEX = "[A-Za-z_]\\w*+";
 
 	// TODO: handle comments on same line as other values
-	// (same thing done in CheckForJavaComment)
+	// (same thing done in JavaCommentScanner)
 	private static final ThreadLocal<Matcher> JAVA_CONTENT_MATCHERS = RegexUtilities.getThreadLocalMatcher(
 			"(?<string>" + RegexUtilities.STRING_REGEX + ")|" + "(?<keyword>" + JAVA_KEYWORD_REGEX + ")|"
 			// \\x28 is open parenthesis, use code so parenthesis matching works
 			// as expected
 					+ "(?<method>" + JAVA_IDENTIFIER_REGEX + "(?=\\x28))");
 
+	private static final ThreadLocal<JavaCommentScanner> COMMENT_SCANNERS = ThreadLocal
+			.withInitial(JavaCommentScanner::new);
+
 	private static final Set<String> JAVA_COMMENT_LINE_TYPES = new HashSet<>(
 			Arrays.asList("In block comment (empty line)", "In Javadoc (empty line)", "In block comment", "In Javadoc",
 					"End block comment", "End Javadoc"));
@@ -136,85 +149,14 @@ public class CASTLEJavaIndexer {
 		String previousLineType = request.getPreviousLineType();
 		String previousLine = request.getPreviousLine();
 
-		// Initially set content to be the trimmed line
-		// (will then change if part of the line is a comment)
-		String content = trimmedLine;
-		String comment = "";
-
-		// Handle block comments
-		// TODO: handle if has actual code on same line
-		// (shouldn't since hard to read and code formatter should prevent)
-
-		if (commentType == CommentType.NONE && !trimmedLine.isEmpty()) {
-			int commentIndex = trimmedLine.indexOf("//");
-			// Note: if already found a comment, don't care about checking for a
-			// block comment
-			// (short-circuit)
-			int blockCommentIndex = commentIndex > -1 ? -2 : trimmedLine.indexOf("/*");
-
-			// Short circuit case of single line comment
-			if (commentIndex == 0) {
-				// Entire line is single line comment
-				commentType = CommentType.SINGLE;
-
-				content = "";
-				comment = trimmedLine;
-
-				trimmedLine = "";
-			} else if (blockCommentIndex == 0 && trimmedLine.lastIndexOf('/') == 0) {
-				// Has block comment start and that's the only slash
-				// (so doesn't have block comment end on same line)
-				// Short-circuit to handle common case, so don't need to use
-				// regular expression in CheckForJavaComment.check
-				content = "";
-				comment = trimmedLine;
-
-				// charAt(0) = '/'
-				// charAt(1) = '*'
-
-				boolean isJavadocComment = (trimmedLine.length() > 2 && trimmedLine.charAt(2) == '*');
-
-				// Logic from CheckForJavaComment.check
-
-				if (isJavadocComment) {
-					commentType = CommentType.JAVADOC;
-					trimmedLine = trimmedLine.substring("/**".length());
-				} else {
-					commentType = CommentType.BLOCK;
-					trimmedLine = trimmedLine.substring("/*".length());
-				}
+		// Split the line into the content and the comments
+		// (the rest of the line, after any comments are removed, is the content)
+		JavaCommentScanner scanner = COMMENT_SCANNERS.get();
+		CommentType endCommentType = scanner.scan(trimmedLine, commentType);
 
-				// Logic from below (since part of a block comment)
-				// Line is part of a block comment
-				previousLineType = "";
-				previousLine = "";
-			} else if (commentIndex > -1 || blockCommentIndex > -1) {
-				CheckForJavaComment.Result result = CheckForJavaComment.check(trimmedLine);
-
-				commentType = result.getCommentType();
-				trimmedLine = result.getTrimmedLine();
-				content = result.getContent();
-				comment = result.getComment();
-
-				if (Utilities.in(commentType, CommentType.BLOCK, CommentType.JAVADOC)) {
-					// Line is part of a block comment
-					previousLineType = "";
-					previousLine = "";
-				}
-			}
-		} else if (Utilities.in(commentType, CommentType.BLOCK, CommentType.JAVADOC)) {
-			// Line is part of block comment
-			content = "";
-			comment = trimmedLine;
-		}
-		// Don't need to handle
-		// BLOCK_START (since would be set by CheckForJavaComment.check, which
-		// would correctly set the content / comment)
-		// NONE (since entire line is content and there is no comment;
-		// this is the default)
-		// SINGLE (since entire line is comment and handled by above if
-		// SINGLE_BLOCK (since would be set by CheckForJavaComment.check, which
-		// would correctly set the content / comment)
+		String content = scanner.getContent();
+		// If the entire line is a comment, keep the spacing between comments
+		String comment = content.isEmpty() ? trimmedLine : scanner.getComment();
 
 		// Index comment (even if empty?)
 		document.add(new TextField("content", content, Field.Store.YES));
@@ -224,75 +166,49 @@ public class CASTLEJavaIndexer {
 			document.add(new TextField("comment", comment, Field.Store.YES));
 		}
 
-		switch (commentType) {
-		case BLOCK_START:
-			commentType = CommentType.BLOCK;
-			// Intentional fall through
-			// line has stuff and want to indicate it
-			// Then, next line is part of block comment
-		case NONE:
-			if (trimmedLine.isEmpty()) {
-				// Don't set previousLineType and previousLine
-				// Handle as if blank line doesn't exist
-				// TODO: give option to not index blank lines
-				addType(document, "empty line");
-			} else {
-				previousLineType = addJavaLineInfo(document, trimmedLine, previousLine, previousLineType);
-				// Note: any trailing comments have already been removed
-				previousLine = trimmedLine;
-			}
-			break;
-		case SINGLE:
-			// Entire line was single line comment
-
-			// Note: Don't change previousLineType and previousLine
-			// (treat as if comment line didn't exist)
-			// (this way can mark more line types)
-
-			addType(document, CASTLEIndexer.COMMENT);
-
-			commentType = CommentType.NONE;
-			break;
-		case SINGLE_BLOCK:
-			document.add(new TextField("type", "In " + commentType, Field.Store.YES));
-			commentType = CommentType.NONE;
-
-			break;
-		case BLOCK:
-		case JAVADOC:
-			if (trimmedLine.isEmpty() || trimmedLine.equals("*")) {
-				// Indicate blank lines within block comments
-				// (this way they show up later in search results)
-				String type = "In " + commentType + " (empty line)";
-				document.add(new TextField("type", type, Field.Store.YES));
+		boolean isStartedInBlockComment = Utilities.in(commentType, CommentType.BLOCK, CommentType.JAVADOC);
+
+		if (isStartedInBlockComment && !scanner.isBlockCommentEnded()) {
+			// Entire line is part of the block comment
+			CommentedLineIndexer.addBlockCommentType(document, commentType.toString(), trimmedLine);
+		} else if (isStartedInBlockComment && content.isEmpty()) {
+			// Line ends the block comment
+			// (may also start another block comment, such as "*/ /* comment")
+			addType(document, "End " + commentType);
+		} else if (content.isEmpty() && scanner.hasComment()) {
+			if (Utilities.in(endCommentType, CommentType.BLOCK, CommentType.JAVADOC)) {
+				// Line starts a block comment, which continues onto the next line
+				previousLineType = "";
+				previousLine = "";
+
+				CommentedLineIndexer.addBlockCommentType(document, endCommentType.toString(),
+						scanner.getOpenBlockCommentText());
+			} else if (trimmedLine.startsWith("//")) {
+				// Note: Don't change previousLineType and previousLine
+				// (treat as if comment line didn't exist)
+				// (this way can mark more line types)
+				addType(document, CASTLEIndexer.COMMENT);
 			} else {
-				// Check if line ends the block comment
-				boolean hasBlockCommentEnd = trimmedLine.contains("*/");
-				// int blockCommentEnd = trimmedLine.indexOf("*/");
-
-				String type = hasBlockCommentEnd ? "End " + commentType : "In " + commentType;
-
-				// TODO: need to handle setting content versus comment if block comment ends and has other text on same line
-				// (this case also messes up the idea of putting the comment at the end of the line)
-				// (since in this case, the line would contain a comment end, which must be the beginning)
-				// For example,
-				// /* block start
-				// block end */ other text
-				// In this case, "block end */" would be the comment part, but must be first
-				// (or, could put at end, but would need /* or /** comment start to make comment appear correct)
-				// (might prefer doing this, so that can always put comment at end)
-				// (also, it's a less common case to have a block commend end followed by other text on the same line)
-
-				document.add(new TextField("type", type, Field.Store.YES));
-
-				if (hasBlockCommentEnd) {
-					commentType = CommentType.NONE;
-				}
+				// Block comments which start and end on the line
+				addType(document, "In " + CommentType.SINGLE_BLOCK);
 			}
-			break;
+		} else if (content.isEmpty()) {
+			// Don't set previousLineType and previousLine
+			// Handle as if blank line doesn't exist
+			// TODO: give option to not index blank lines
+			addType(document, "empty line");
+		} else if (commentType == CommentType.TEXT_BLOCK && endCommentType == CommentType.TEXT_BLOCK) {
+			// Entire line is part of a text block (so isn't code)
+			addType(document, "In " + CommentType.TEXT_BLOCK);
+		} else {
+			// Includes code after the end of a block comment
+			// (such as "*/ return;")
+			// Note: any comments have already been removed
+			previousLineType = addJavaLineInfo(document, content, previousLine, previousLineType);
+			previousLine = content;
 		}
 
-		return new JavaIndexerReturn(commentType, previousLineType, previousLine);
+		return new JavaIndexerReturn(endCommentType, previousLineType, previousLine);
 	}
 
 	@NonNullByDefault
@@ -312,17 +228,24 @@ public class CASTLEJavaIndexer {
 			}
 		}
 
-		for (LineType lineType : CASTLESearchingSettings.JAVA_LINE_TYPES) {
-			if (lineType.test(trimmedLine)) {
-				return lineType.addType(document);
-			}
+		LineType lineType = CASTLESearchingSettings.getJavaLineTypeClassifier().classify(trimmedLine);
+
+		if (lineType != null) {
+			return lineType.addType(document);
 		}
 
 		// TODO: convert to PredicateLineType if desired
 
+		// Only run the regexes which could match the line
+		// (checks such as the first character are much cheaper than the regex)
+		// Note: the line is trimmed, so the regexes' leading \s*+ never match
+		char firstChar = trimmedLine.charAt(0);
+		boolean startsWithIdentifier = isIdentifierStart(firstChar);
+
 		Matcher declarationAndAssignmentMatcher = declarationAndAssignmentMatchers.get();
 
-		if (declarationAndAssignmentMatcher.reset(trimmedLine).find()) {
+		if (startsWithIdentifier && (trimmedLine.indexOf('=') != -1 || trimmedLine.indexOf(';') != -1)
+				&& declarationAndAssignmentMatcher.reset(trimmedLine).find()) {
 			// System.out.printf("Assignment on line %s%n", line);
 
 			String clazz = declarationAndAssignmentMatcher.group("class");
@@ -366,7 +289,7 @@ public class CASTLEJavaIndexer {
 			return addType(document, type);
 		}
 
-		if (!trimmedLine.endsWith(";")) {
+		if (startsWithIdentifier && !trimmedLine.endsWith(";") && trimmedLine.indexOf('(') != -1) {
 			Matcher methodDeclarationMatcher = methodDeclarationMatchers.get();
 
 			if (methodDeclarationMatcher.reset(trimmedLine).find()) {
@@ -383,33 +306,35 @@ public class CASTLEJavaIndexer {
 
 		Matcher stringTextMatcher = javaStringTextMatchers.get();
 
-		if (stringTextMatcher.reset(trimmedLine).matches()) {
+		if (firstChar == '"' && stringTextMatcher.reset(trimmedLine).matches()) {
 			return addType(document, "String text");
 		}
 
 		Matcher invokeSpecificMethodMatcher = invokeSpecificMethodMatchers.get();
 
-		if (invokeSpecificMethodMatcher.reset(trimmedLine).find()) {
+		if (trimmedLine.indexOf('.') != -1 && invokeSpecificMethodMatcher.reset(trimmedLine).find()) {
 			@NonNull
 			@SuppressWarnings("null")
 			String method = invokeSpecificMethodMatcher.group("method");
 			return addType(document, method);
 		}
 
-		if (RegexUtilities.justSymbolsAndSpacesMatchers.get().reset(trimmedLine).matches()) {
+		if (!isWordCharacter(firstChar)
+				&& RegexUtilities.justSymbolsAndSpacesMatchers.get().reset(trimmedLine).matches()) {
 			return addType(document, "symbols");
 		}
 
 		Matcher throwExceptionMatcher = throwExceptionMatchers.get();
 
-		if (throwExceptionMatcher.reset(trimmedLine).find()) {
+		if (trimmedLine.startsWith("throw new ") && throwExceptionMatcher.reset(trimmedLine).find()) {
 			String name = throwExceptionMatcher.group("name");
 			return addType(document, "throw " + name);
 		}
 
 		Matcher classDeclarationMatcher = classDeclarationMatchers.get();
 
-		if (classDeclarationMatcher.reset(trimmedLine).find()) {
+		if (startsWithIdentifier && (trimmedLine.contains("class") || trimmedLine.contains("interface")
+				|| trimmedLine.contains("enum")) && classDeclarationMatcher.reset(trimmedLine).find()) {
 			String bodyType = classDeclarationMatcher.group("bodyType");
 			String name = classDeclarationMatcher.group("name");
 
@@ -424,6 +349,22 @@ public class CASTLEJavaIndexer {
 		return "";
 	}
 
+	/**
+	 * Indicates whether the character can start an identifier
+	 * (<code>[A-Za-z_]</code>, same as {@link #JAVA_IDENTIFIER_REGEX})
+	 */
+	private static boolean isIdentifierStart(final char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	/**
+	 * Indicates whether the character is an ASCII word character
+	 * (<code>[A-Za-z0-9_]</code>)
+	 */
+	private static boolean isWordCharacter(final char c) {
+		return isIdentifierStart(c) || (c >= '0' && c <= '9');
+	}
+
 	public static StyledString getJavaStyledContent(final CASTLESearchResultEntry entry) {
 		String content = entry.getContent();
 
@@ -0,0 +1,156 @@
+package info.codesaway.castlesearching.indexer.java;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.CommentType;
+import info.codesaway.castlesearching.indexer.CommentScanner;
+
+/**
+ * Finds the comments in a line of Java code
+ *
+ * <p>
+ * Reads the line once, tracking string / char literals, text blocks, and
+ * line / block / Javadoc comments. Block comments and text blocks can
+ * continue onto the next line, so pass the comment type returned for a line
+ * when scanning the next line.
+ * </p>
+ *
+ * <p>
+ * Reused for each line, so isn't thread-safe (use one scanner per thread)
+ * </p>
+ */
+@NonNullByDefault
+public class JavaCommentScanner extends CommentScanner {
+	private static final int CODE = 0;
+	private static final int STRING = 1;
+	private static final int CHAR = 2;
+	private static final int TEXT_BLOCK = 3;
+	private static final int BLOCK_COMMENT = 4;
+
+	/**
+	 * Scans the line for comments
+	 *
+	 * @param line
+	 *            the line
+	 * @param commentType
+	 *            the comment type returned when scanning the previous line
+	 *            ({@link CommentType#NONE NONE} for the first line)
+	 * @return the comment type at the end of the line
+	 *         ({@link CommentType#BLOCK BLOCK} or {@link CommentType#JAVADOC
+	 *         JAVADOC} if in a block comment, {@link CommentType#TEXT_BLOCK
+	 *         TEXT_BLOCK} if in a text block, otherwise
+	 *         {@link CommentType#NONE NONE})
+	 */
+	public CommentType scan(final String line, final CommentType commentType) {
+		boolean isStartedInBlockComment = commentType == CommentType.BLOCK || commentType == CommentType.JAVADOC;
+		this.reset(line, isStartedInBlockComment);
+
+		int state;
+		boolean isJavadoc = commentType == CommentType.JAVADOC;
+
+		if (isStartedInBlockComment) {
+			state = BLOCK_COMMENT;
+		} else if (commentType == CommentType.TEXT_BLOCK) {
+			state = TEXT_BLOCK;
+		} else {
+			state = CODE;
+		}
+
+		int length = line.length();
+		int spanStart = 0;
+		int i = 0;
+
+		while (i < length) {
+			char c = line.charAt(i);
+
+			switch (state) {
+			case CODE:
+				if (c == '/' && i + 1 < length) {
+					char next = line.charAt(i + 1);
+
+					if (next == '/') {
+						// Rest of line is a line comment
+						this.addContent(spanStart, i);
+						this.addComment(i, length);
+						return CommentType.NONE;
+					} else if (next == '*') {
+						this.addContent(spanStart, i);
+						spanStart = i;
+
+						// "/**/" is an empty block comment, not a Javadoc
+						isJavadoc = line.startsWith("**", i + 1) && !line.startsWith("**/", i + 1);
+						int textStart = isJavadoc ? i + 3 : i + 2;
+						this.startBlockComment(textStart);
+
+						state = BLOCK_COMMENT;
+						i = textStart;
+						continue;
+					}
+				} else if (c == '"') {
+					if (line.startsWith("\"\"\"", i)) {
+						state = TEXT_BLOCK;
+						i += 3;
+						continue;
+					}
+
+					state = STRING;
+				} else if (c == '\'') {
+					state = CHAR;
+				}
+
+				i++;
+				break;
+			case STRING:
+			case CHAR:
+				if (c == '\\') {
+					// Skip the escaped character
+					i += 2;
+					continue;
+				}
+
+				if (c == (state == STRING ? '"' : '\'')) {
+					state = CODE;
+				}
+
+				i++;
+				break;
+			case TEXT_BLOCK:
+				if (c == '\\') {
+					i += 2;
+					continue;
+				}
+
+				if (line.startsWith("\"\"\"", i)) {
+					state = CODE;
+					i += 3;
+					continue;
+				}
+
+				i++;
+				break;
+			default:
+				// Block comment
+				if (c == '*' && i + 1 < length && line.charAt(i + 1) == '/') {
+					this.addComment(spanStart, i + 2);
+					this.endBlockComment(i + 2);
+
+					spanStart = i + 2;
+					state = CODE;
+					i += 2;
+					continue;
+				}
+
+				i++;
+			}
+		}
+
+		if (state == BLOCK_COMMENT) {
+			this.addComment(spanStart, length);
+			return isJavadoc ? CommentType.JAVADOC : CommentType.BLOCK;
+		}
+
+		// Unterminated string / char literals are treated as content
+		this.addContent(spanStart, length);
+		return state == TEXT_BLOCK ? CommentType.TEXT_BLOCK : CommentType.NONE;
+	}
+}
@@ -0,0 +1,247 @@
+package info.codesaway.castlesearching.indexer.java;
+
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeMemberDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import com.google.common.collect.ImmutableRangeMap;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+
+import info.codesaway.castlesearching.indexer.FileDocumentBuilder;
+import info.codesaway.castlesearching.indexer.LineReader;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+
+/**
+ * Finds the Java element (such as the method or field) for each line of a
+ * Java file
+ *
+ * <p>
+ * The file is parsed once using {@link ASTParser} (without bindings), so
+ * doesn't need the Java model or a second read of the file. Elements in
+ * nested, local, and anonymous types are included; lines in lambdas belong
+ * to the element which contains the lambda.
+ * </p>
+ *
+ * <p>
+ * The elements are cached by the file's content hash, so a file whose
+ * content didn't change (such as when rebuilding the index) isn't parsed
+ * again.
+ * </p>
+ */
+@NonNullByDefault
+public class JavaElementRanges {
+	private static final int MAX_CACHED_FILES = 1024;
+
+	// Least recently used entries are removed first
+	private static final Map<Long, RangeMap<Integer, String>> CACHE = new LinkedHashMap<Long, RangeMap<Integer, String>>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Long, RangeMap<Integer, String>> eldest) {
+			return this.size() > MAX_CACHED_FILES;
+		}
+	};
+
+	@Nullable
+	private static volatile Map<String, String> compilerOptions;
+
+	/**
+	 * Gets the Java element for each line of the Java file
+	 *
+	 * @param bytes
+	 *            the file's content
+	 * @param charset
+	 *            the file's charset
+	 * @param contentHash
+	 *            the content hash, from
+	 *            {@link FileDocumentBuilder#getContentHash(byte[])} (0 if
+	 *            wasn't computed)
+	 * @return the Java element for each line number (1-based, the same as
+	 *         shown in Eclipse)
+	 */
+	public static RangeMap<Integer, String> getJavaElements(final byte[] bytes, final Charset charset,
+			final long contentHash) {
+		long key = contentHash != 0 ? contentHash : FileDocumentBuilder.getContentHash(bytes);
+
+		RangeMap<Integer, String> javaElements;
+
+		synchronized (CACHE) {
+			javaElements = CACHE.get(key);
+		}
+
+		if (javaElements != null) {
+			CASTLEMetrics.INDEX_JDT_CACHE_HITS.increment();
+			return javaElements;
+		}
+
+		long parseStartTime = System.nanoTime();
+
+		try {
+			// Decode the same as when reading the lines
+			// (so the line numbers match)
+			@NonNull
+			@SuppressWarnings("null")
+			char[] source = LineReader.decode(bytes, charset).toCharArray();
+
+			javaElements = parse(source);
+		} finally {
+			CASTLEMetrics.INDEX_JDT_PARSE.recordSince(parseStartTime);
+		}
+
+		synchronized (CACHE) {
+			CACHE.put(key, javaElements);
+		}
+
+		return javaElements;
+	}
+
+	/**
+	 * Parses the Java source and finds the Java element for each line
+	 *
+	 * @param source
+	 *            the Java source
+	 * @return the Java element for each line number (1-based)
+	 */
+	public static RangeMap<Integer, String> parse(final char[] source) {
+		// Note: the parser resets its settings after creating the AST
+		// (so a new parser is created each time)
+		ASTParser parser = ASTParser.newParser(AST.JLS14);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setCompilerOptions(getCompilerOptions());
+		parser.setResolveBindings(false);
+		parser.setBindingsRecovery(false);
+		parser.setSource(source);
+
+		CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
+
+		RangeMap<Integer, String> javaElements = TreeRangeMap.create();
+
+		// Visits outer elements before the elements they contain
+		// (so lines in a nested element are replaced by the inner element)
+		compilationUnit.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(final TypeDeclaration node) {
+				this.addType(node);
+				return true;
+			}
+
+			@Override
+			public boolean visit(final EnumDeclaration node) {
+				this.addType(node);
+				return true;
+			}
+
+			@Override
+			public boolean visit(final AnnotationTypeDeclaration node) {
+				this.addType(node);
+				return true;
+			}
+
+			@Override
+			public boolean visit(final FieldDeclaration node) {
+				@SuppressWarnings("unchecked")
+				List<VariableDeclarationFragment> fragments = node.fragments();
+
+				for (int i = 0; i < fragments.size(); i++) {
+					VariableDeclarationFragment fragment = fragments.get(i);
+
+					// The first field includes the type (and any Javadoc)
+					ASTNode rangeNode = i == 0 ? node : fragment;
+					this.addRange(rangeNode, fragment.getName().getIdentifier());
+				}
+
+				return true;
+			}
+
+			@Override
+			public boolean visit(final EnumConstantDeclaration node) {
+				this.addRange(node, node.getName().getIdentifier());
+				return true;
+			}
+
+			@Override
+			public boolean visit(final MethodDeclaration node) {
+				this.addRange(node, node.getName().getIdentifier());
+				return true;
+			}
+
+			@Override
+			public boolean visit(final AnnotationTypeMemberDeclaration node) {
+				this.addRange(node, node.getName().getIdentifier());
+				return true;
+			}
+
+			@Override
+			public boolean visit(final Initializer node) {
+				// Initializers don't have a name, so use what Eclipse shows in
+				// the outline
+				boolean isStatic = Modifier.isStatic(node.getModifiers());
+				this.addRange(node, isStatic ? "static {...}" : "{...}");
+				return true;
+			}
+
+			private void addType(final AbstractTypeDeclaration node) {
+				// Top level types aren't an element
+				// (same as when the elements came from the Java model)
+				if (!node.isPackageMemberTypeDeclaration()) {
+					this.addRange(node, node.getName().getIdentifier());
+				}
+			}
+
+			private void addRange(final ASTNode node, final String value) {
+				int start = node.getStartPosition();
+				int end = start + node.getLength();
+
+				// Line numbers start at 1 (the same as shown in Eclipse)
+				int startLine = compilationUnit.getLineNumber(start);
+				int endLine = compilationUnit.getLineNumber(Math.max(start, end - 1));
+
+				if (startLine > 0 && endLine >= startLine) {
+					javaElements.put(Range.closed(startLine, endLine), value);
+				}
+			}
+		});
+
+		@NonNull
+		@SuppressWarnings("null")
+		RangeMap<Integer, String> result = ImmutableRangeMap.copyOf(javaElements);
+		return result;
+	}
+
+	private static Map<String, String> getCompilerOptions() {
+		Map<String, String> options = compilerOptions;
+
+		if (options == null) {
+			options = JavaCore.getOptions();
+			JavaCore.setComplianceOptions(JavaCore.VERSION_14, options);
+			compilerOptions = options;
+		}
+
+		return options;
+	}
+}
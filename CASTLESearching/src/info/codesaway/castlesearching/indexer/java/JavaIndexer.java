@@ -0,0 +1,48 @@
+package info.codesaway.castlesearching.indexer.java;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.lucene.document.Document;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.CommentType;
+import info.codesaway.castlesearching.indexer.Indexer;
+import info.codesaway.castlesearching.indexer.LineIndexer;
+
+/**
+ * Indexes Java files using {@link CASTLEJavaIndexer}
+ */
+@NonNullByDefault
+public class JavaIndexer implements Indexer {
+	@Override
+	public int getVersion() {
+		return CASTLEJavaIndexer.VERSION;
+	}
+
+	@Override
+	public Map<String, String> getFileRelatedFields(final Path path, final String filename) {
+		return CASTLEJavaIndexer.getJavaFileRelatedFields(path, filename);
+	}
+
+	@Override
+	public LineIndexer newLineIndexer() {
+		return new JavaLineIndexer();
+	}
+
+	private static class JavaLineIndexer implements LineIndexer {
+		private CommentType commentType = CommentType.NONE;
+		private String previousLineType = "";
+		private String previousLine = "";
+
+		@Override
+		public void indexLine(final String line, final Document document) {
+			JavaIndexerReturn javaIndexerReturn = CASTLEJavaIndexer.indexJavaLine(new JavaIndexerRequest(line,
+					document, this.commentType, this.previousLineType, this.previousLine));
+
+			this.commentType = javaIndexerReturn.getCommentType();
+			this.previousLineType = javaIndexerReturn.getPreviousLineType();
+			this.previousLine = javaIndexerReturn.getPreviousLine();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package info.codesaway.castlesearching.indexer.markup;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.indexer.CommentScanner;
+
+/**
+ * Finds the comments in a line of XML, HTML, or JSP
+ *
+ * <p>
+ * Handles XML / HTML comments (&lt;!-- --&gt;) and JSP comments (&lt;%--
+ * --%&gt;), which can continue onto the next lines. CDATA sections are
+ * content, so comment starts within them are ignored.
+ * </p>
+ *
+ * <p>
+ * Keeps whether the previous line ended in a comment or CDATA section, so is
+ * only used for one file.
+ * </p>
+ */
+@NonNullByDefault
+public class MarkupCommentScanner extends CommentScanner {
+	private static final int TEXT = 0;
+	private static final int COMMENT = 1;
+	private static final int JSP_COMMENT = 2;
+	private static final int CDATA = 3;
+
+	private int state = TEXT;
+
+	/**
+	 * Scans the line for comments
+	 *
+	 * @param line
+	 *            the line (lines must be scanned in order)
+	 */
+	public void scan(final String line) {
+		this.reset(line, this.state == COMMENT || this.state == JSP_COMMENT);
+
+		int length = line.length();
+		int spanStart = 0;
+		int i = 0;
+
+		while (i < length) {
+			switch (this.state) {
+			case TEXT:
+				if (line.charAt(i) != '<') {
+					i++;
+				} else if (line.startsWith("<!--", i)) {
+					this.addContent(spanStart, i);
+					spanStart = i;
+					this.state = COMMENT;
+					i += 4;
+					this.startBlockComment(i);
+				} else if (line.startsWith("<%--", i)) {
+					this.addContent(spanStart, i);
+					spanStart = i;
+					this.state = JSP_COMMENT;
+					i += 4;
+					this.startBlockComment(i);
+				} else if (line.startsWith("<![CDATA[", i)) {
+					this.state = CDATA;
+					i += 9;
+				} else {
+					i++;
+				}
+				break;
+			case CDATA:
+				if (line.startsWith("]]>", i)) {
+					this.state = TEXT;
+					i += 3;
+				} else {
+					i++;
+				}
+				break;
+			default:
+				// Comment
+				String commentEnd = this.state == COMMENT ? "-->" : "--%>";
+
+				if (line.startsWith(commentEnd, i)) {
+					i += commentEnd.length();
+					this.addComment(spanStart, i);
+					this.endBlockComment(i);
+					spanStart = i;
+					this.state = TEXT;
+				} else {
+					i++;
+				}
+			}
+		}
+
+		if (this.state == COMMENT || this.state == JSP_COMMENT) {
+			this.addComment(spanStart, length);
+		} else {
+			this.addContent(spanStart, length);
+		}
+	}
+}
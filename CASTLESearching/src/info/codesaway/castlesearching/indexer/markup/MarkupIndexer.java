@@ -0,0 +1,119 @@
+package info.codesaway.castlesearching.indexer.markup;
+
+import static info.codesaway.castlesearching.linetype.LineType.addType;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.indexer.CommentScanner;
+import info.codesaway.castlesearching.indexer.CommentedLineIndexer;
+import info.codesaway.castlesearching.indexer.Indexer;
+import info.codesaway.castlesearching.indexer.LineIndexer;
+
+/**
+ * Indexes XML, HTML, and JSP files
+ *
+ * <p>
+ * Comments are indexed as the <b>comment</b> field. Lines starting with a tag
+ * have the type "tag <i>name</i>" (or "close tag <i>name</i>") and the tag's
+ * name indexed as the <b>tag</b> field. JSP directives, expressions,
+ * declarations, and scriptlets also have their own types.
+ * </p>
+ */
+@NonNullByDefault
+public class MarkupIndexer implements Indexer {
+	public static final int VERSION = 1;
+
+	@Override
+	public int getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public LineIndexer newLineIndexer() {
+		return new MarkupLineIndexer();
+	}
+
+	private static class MarkupLineIndexer extends CommentedLineIndexer {
+		private final MarkupCommentScanner scanner = new MarkupCommentScanner();
+
+		MarkupLineIndexer() {
+			super("comment");
+		}
+
+		@Override
+		protected CommentScanner scan(final String trimmedLine) {
+			this.scanner.scan(trimmedLine);
+			return this.scanner;
+		}
+
+		@Override
+		protected void addContentType(final Document document, final String content) {
+			if (!content.startsWith("<")) {
+				// Text (or the rest of a tag from the previous line)
+				return;
+			}
+
+			if (content.startsWith("<?xml")) {
+				addType(document, "XML declaration");
+			} else if (content.startsWith("<?")) {
+				addType(document, "processing instruction");
+			} else if (content.regionMatches(true, 0, "<!DOCTYPE", 0, 9)) {
+				addType(document, "doctype");
+			} else if (content.startsWith("<![CDATA[")) {
+				addType(document, "CDATA");
+			} else if (content.startsWith("<%@")) {
+				String directive = getName(content, 3);
+				addType(document, directive.isEmpty() ? "directive" : "directive " + directive);
+			} else if (content.startsWith("<%=")) {
+				addType(document, "JSP expression");
+			} else if (content.startsWith("<%!")) {
+				addType(document, "JSP declaration");
+			} else if (content.startsWith("<%")) {
+				addType(document, "scriptlet");
+			} else if (content.startsWith("</")) {
+				addTagType(document, "close tag", getName(content, 2));
+			} else {
+				addTagType(document, "tag", getName(content, 1));
+			}
+		}
+
+		private static void addTagType(final Document document, final String typePrefix, final String tag) {
+			if (tag.isEmpty()) {
+				return;
+			}
+
+			document.add(new TextField("tag", tag, Field.Store.YES));
+			addType(document, typePrefix + " " + tag);
+		}
+
+		/**
+		 * Gets the name starting at the index (such as a tag's name,
+		 * including any prefix, such as "c:forEach")
+		 */
+		private static String getName(final String content, final int start) {
+			int index = start;
+
+			// Skip whitespace, such as in "<%@ page"
+			while (index < content.length() && Character.isWhitespace(content.charAt(index))) {
+				index++;
+			}
+
+			int nameStart = index;
+
+			while (index < content.length() && isNameChar(content.charAt(index))) {
+				index++;
+			}
+
+			@SuppressWarnings("null")
+			String name = content.substring(nameStart, index);
+			return name;
+		}
+
+		private static boolean isNameChar(final char c) {
+			return Character.isLetterOrDigit(c) || c == ':' || c == '-' || c == '_' || c == '.';
+		}
+	}
+}
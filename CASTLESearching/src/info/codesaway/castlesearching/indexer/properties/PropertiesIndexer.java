@@ -0,0 +1,127 @@
+package info.codesaway.castlesearching.indexer.properties;
+
+import static info.codesaway.castlesearching.linetype.LineType.addType;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.indexer.CASTLEIndexer;
+import info.codesaway.castlesearching.indexer.Indexer;
+import info.codesaway.castlesearching.indexer.LineIndexer;
+
+/**
+ * Indexes .properties files
+ *
+ * <p>
+ * Comments (lines starting with # or !) are indexed as the <b>comment</b>
+ * field. Lines which set a property have the type "key <i>name</i>" and the
+ * key indexed as the <b>key</b> field (continuation lines have the same type
+ * as the line they continue).
+ * </p>
+ */
+@NonNullByDefault
+public class PropertiesIndexer implements Indexer {
+	public static final int VERSION = 1;
+
+	@Override
+	public int getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public LineIndexer newLineIndexer() {
+		return new PropertiesLineIndexer();
+	}
+
+	private static class PropertiesLineIndexer implements LineIndexer {
+		private boolean isContinued;
+		private String previousType = "";
+
+		@Override
+		public void indexLine(final String line, final Document document) {
+			String trimmedLine = line.trim();
+			boolean isContinuation = this.isContinued;
+
+			// Comments and blank lines don't continue onto the next line
+			this.isContinued = false;
+
+			if (!isContinuation && (trimmedLine.startsWith("#") || trimmedLine.startsWith("!"))) {
+				document.add(new TextField("content", "", Field.Store.YES));
+				document.add(new TextField("comment", trimmedLine, Field.Store.YES));
+				addType(document, CASTLEIndexer.COMMENT);
+				return;
+			}
+
+			document.add(new TextField("content", trimmedLine, Field.Store.YES));
+
+			if (trimmedLine.isEmpty()) {
+				addType(document, "empty line");
+				return;
+			}
+
+			this.isContinued = isContinued(trimmedLine);
+
+			if (isContinuation) {
+				if (!this.previousType.isEmpty()) {
+					addType(document, this.previousType);
+				}
+
+				return;
+			}
+
+			String key = getKey(trimmedLine);
+
+			if (key.isEmpty()) {
+				this.previousType = "";
+				return;
+			}
+
+			document.add(new TextField("key", key, Field.Store.YES));
+			this.previousType = addType(document, "key " + key);
+		}
+
+		/**
+		 * Gets the key, which ends at the first unescaped '=', ':', or
+		 * whitespace
+		 */
+		private static String getKey(final String trimmedLine) {
+			int i = 0;
+
+			while (i < trimmedLine.length()) {
+				char c = trimmedLine.charAt(i);
+
+				if (c == '\\') {
+					// Skip the escaped character
+					i += 2;
+					continue;
+				}
+
+				if (c == '=' || c == ':' || Character.isWhitespace(c)) {
+					break;
+				}
+
+				i++;
+			}
+
+			@SuppressWarnings("null")
+			String key = trimmedLine.substring(0, Math.min(i, trimmedLine.length()));
+			return key;
+		}
+
+		/**
+		 * Indicates whether the line continues onto the next line (ends with
+		 * an odd number of backslashes)
+		 */
+		private static boolean isContinued(final String trimmedLine) {
+			int backslashes = 0;
+
+			for (int i = trimmedLine.length() - 1; i >= 0 && trimmedLine.charAt(i) == '\\'; i--) {
+				backslashes++;
+			}
+
+			return backslashes % 2 == 1;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package info.codesaway.castlesearching.indexer.sql;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.indexer.CommentScanner;
+
+/**
+ * Finds the comments in a line of SQL
+ *
+ * <p>
+ * Handles line comments (--) and block comments (/* *&#47;), ignoring comment
+ * starts within string literals and quoted identifiers. Block comments and
+ * string literals can continue onto the next lines.
+ * </p>
+ *
+ * <p>
+ * Keeps whether the previous line ended in a block comment or string
+ * literal, so is only used for one file.
+ * </p>
+ */
+@NonNullByDefault
+public class SqlCommentScanner extends CommentScanner {
+	private static final int CODE = 0;
+	private static final int STRING = 1;
+	private static final int QUOTED_IDENTIFIER = 2;
+	private static final int BLOCK_COMMENT = 3;
+
+	private int state = CODE;
+
+	/**
+	 * Scans the line for comments
+	 *
+	 * @param line
+	 *            the line (lines must be scanned in order)
+	 */
+	public void scan(final String line) {
+		this.reset(line, this.state == BLOCK_COMMENT);
+
+		if (this.state == QUOTED_IDENTIFIER) {
+			// Quoted identifiers don't span lines
+			this.state = CODE;
+		}
+
+		int length = line.length();
+		int spanStart = 0;
+		int i = 0;
+
+		while (i < length) {
+			char c = line.charAt(i);
+
+			switch (this.state) {
+			case CODE:
+				if (c == '-' && i + 1 < length && line.charAt(i + 1) == '-') {
+					// Rest of line is a line comment
+					this.addContent(spanStart, i);
+					this.addComment(i, length);
+					return;
+				} else if (c == '/' && i + 1 < length && line.charAt(i + 1) == '*') {
+					this.addContent(spanStart, i);
+					spanStart = i;
+					this.state = BLOCK_COMMENT;
+					i += 2;
+					this.startBlockComment(i);
+					continue;
+				} else if (c == '\'') {
+					this.state = STRING;
+				} else if (c == '"') {
+					this.state = QUOTED_IDENTIFIER;
+				}
+
+				i++;
+				break;
+			case STRING:
+				if (c == '\'') {
+					if (i + 1 < length && line.charAt(i + 1) == '\'') {
+						// Escaped quote ('')
+						i += 2;
+						continue;
+					}
+
+					this.state = CODE;
+				}
+
+				i++;
+				break;
+			case QUOTED_IDENTIFIER:
+				if (c == '"') {
+					this.state = CODE;
+				}
+
+				i++;
+				break;
+			default:
+				// Block comment
+				if (c == '*' && i + 1 < length && line.charAt(i + 1) == '/') {
+					this.addComment(spanStart, i + 2);
+					this.endBlockComment(i + 2);
+					spanStart = i + 2;
+					this.state = CODE;
+					i += 2;
+					continue;
+				}
+
+				i++;
+			}
+		}
+
+		if (this.state == BLOCK_COMMENT) {
+			this.addComment(spanStart, length);
+		} else {
+			this.addContent(spanStart, length);
+		}
+	}
+}
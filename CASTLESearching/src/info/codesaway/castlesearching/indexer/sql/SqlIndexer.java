@@ -0,0 +1,227 @@
+package info.codesaway.castlesearching.indexer.sql;
+
+import static info.codesaway.castlesearching.linetype.LineType.addType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import com.google.common.collect.ImmutableSet;
+
+import info.codesaway.castlesearching.indexer.CommentScanner;
+import info.codesaway.castlesearching.indexer.CommentedLineIndexer;
+import info.codesaway.castlesearching.indexer.Indexer;
+import info.codesaway.castlesearching.indexer.LineIndexer;
+
+/**
+ * Indexes SQL files
+ *
+ * <p>
+ * Comments are indexed as the <b>comment</b> field. Lines starting with a
+ * statement or clause have a type based on the keyword (such as "select" or
+ * "where"). Statements which refer to a table (such as "insert", "update",
+ * "create table", "from", and "join") have the type "<i>keyword table</i>"
+ * and the table indexed as the <b>table</b> field.
+ * </p>
+ */
+@NonNullByDefault
+public class SqlIndexer implements Indexer {
+	public static final int VERSION = 1;
+
+	// Keywords which are the type for the line
+	// (other keywords, which refer to a table, are handled separately)
+	private static final Set<String> KEYWORDS = ImmutableSet.of("select", "where", "having", "with", "values",
+			"set", "union", "intersect", "except", "and", "or", "on", "case", "when", "then", "else", "end", "begin",
+			"commit", "rollback", "declare", "grant", "revoke", "exec", "execute", "call", "return", "limit");
+
+	// Qualifiers before "join" (such as "left outer join")
+	private static final Set<String> JOIN_QUALIFIERS = ImmutableSet.of("left", "right", "full", "inner", "outer",
+			"cross", "natural");
+
+	// Words between "create" and the kind of object (such as "create or
+	// replace view" or "create unique index")
+	private static final Set<String> CREATE_QUALIFIERS = ImmutableSet.of("or", "replace", "unique", "global",
+			"local", "temporary", "temp");
+
+	@Override
+	public int getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public LineIndexer newLineIndexer() {
+		return new SqlLineIndexer();
+	}
+
+	private static class SqlLineIndexer extends CommentedLineIndexer {
+		private final SqlCommentScanner scanner = new SqlCommentScanner();
+
+		SqlLineIndexer() {
+			super("block comment");
+		}
+
+		@Override
+		protected CommentScanner scan(final String trimmedLine) {
+			this.scanner.scan(trimmedLine);
+			return this.scanner;
+		}
+
+		@Override
+		protected void addContentType(final Document document, final String content) {
+			List<String> words = getWords(content);
+
+			if (words.isEmpty()) {
+				return;
+			}
+
+			String keyword = words.get(0).toLowerCase(Locale.ROOT);
+			int index = 1;
+
+			switch (keyword) {
+			case "insert":
+			case "merge":
+				// insert into TABLE / merge into TABLE
+				index = skip(words, index, "into");
+				addTableType(document, keyword, getWord(words, index));
+				break;
+			case "delete":
+				// delete from TABLE
+				index = skip(words, index, "from");
+				addTableType(document, keyword, getWord(words, index));
+				break;
+			case "update":
+			case "from":
+			case "join":
+				addTableType(document, keyword, getWord(words, index));
+				break;
+			case "create":
+			case "alter":
+			case "drop":
+			case "truncate":
+				addDefinitionType(document, keyword, words);
+				break;
+			case "group":
+			case "order":
+				addType(document, keyword + " by");
+				break;
+			default:
+				if (JOIN_QUALIFIERS.contains(keyword)) {
+					while (index < words.size()
+							&& JOIN_QUALIFIERS.contains(words.get(index).toLowerCase(Locale.ROOT))) {
+						index++;
+					}
+
+					if (getWord(words, index).equalsIgnoreCase("join")) {
+						addTableType(document, "join", getWord(words, index + 1));
+					}
+				} else if (KEYWORDS.contains(keyword)) {
+					addType(document, keyword);
+				}
+			}
+		}
+
+		/**
+		 * Adds the type for a statement which defines an object, such as
+		 * "create table NAME" or "drop view NAME"
+		 */
+		private static void addDefinitionType(final Document document, final String keyword,
+				final List<String> words) {
+			int index = 1;
+
+			while (index < words.size() && CREATE_QUALIFIERS.contains(words.get(index).toLowerCase(Locale.ROOT))) {
+				index++;
+			}
+
+			String kind = getWord(words, index).toLowerCase(Locale.ROOT);
+
+			if (kind.isEmpty()) {
+				addType(document, keyword);
+				return;
+			}
+
+			// Skip "if exists" / "if not exists"
+			index = skip(words, index + 1, "if");
+			index = skip(words, index, "not");
+			index = skip(words, index, "exists");
+
+			String name = getWord(words, index);
+
+			if (kind.equals("table") && !name.isEmpty()) {
+				document.add(new TextField("table", name, Field.Store.YES));
+			}
+
+			addType(document, name.isEmpty() ? keyword + " " + kind : keyword + " " + kind + " " + name);
+		}
+
+		private static void addTableType(final Document document, final String keyword, final String table) {
+			if (table.isEmpty() || table.startsWith("(")) {
+				// Such as a subquery
+				addType(document, keyword);
+				return;
+			}
+
+			document.add(new TextField("table", table, Field.Store.YES));
+			addType(document, keyword + " " + table);
+		}
+
+		/**
+		 * Skips the word at the index, if it's the specified word (ignoring
+		 * case)
+		 *
+		 * @return the index after the word, if skipped; otherwise, the index
+		 */
+		private static int skip(final List<String> words, final int index, final String word) {
+			return getWord(words, index).equalsIgnoreCase(word) ? index + 1 : index;
+		}
+
+		private static String getWord(final List<String> words, final int index) {
+			return index < words.size() ? words.get(index) : "";
+		}
+
+		/**
+		 * Gets the words in the content, split on whitespace (table names
+		 * end at a comma, semicolon, or parenthesis, such as in "insert into
+		 * TABLE(COLUMN)")
+		 */
+		private static List<String> getWords(final String content) {
+			List<String> words = new ArrayList<>();
+			int length = content.length();
+			int i = 0;
+
+			while (i < length) {
+				char c = content.charAt(i);
+
+				if (Character.isWhitespace(c)) {
+					i++;
+					continue;
+				}
+
+				int start = i;
+
+				if (c == '(' || c == ')' || c == ',' || c == ';') {
+					i++;
+				} else {
+					while (i < length && !isWordEnd(content.charAt(i))) {
+						i++;
+					}
+				}
+
+				@SuppressWarnings("null")
+				String word = content.substring(start, i);
+				words.add(word);
+			}
+
+			return words;
+		}
+
+		private static boolean isWordEnd(final char c) {
+			return Character.isWhitespace(c) || c == '(' || c == ')' || c == ',' || c == ';';
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package info.codesaway.castlesearching.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Display;
+
+import info.codesaway.castlesearching.CASTLESearchResult;
+import info.codesaway.castlesearching.CASTLESearchingView;
+
+/**
+ * Loads the results shown in the view which aren't loaded yet
+ *
+ * <p>
+ * Loading a page of results searches the index, so the results are loaded in
+ * the background, instead of when the table shows the rows (which is on the
+ * UI thread). The rows are shown once their results are loaded.
+ * </p>
+ *
+ * <p>
+ * Actions which need results that aren't loaded yet (such as copying or
+ * opening the selected results) also run once the results are loaded.
+ * </p>
+ */
+public class CASTLELoadResultsJob extends Job {
+	private final CASTLESearchingView view;
+
+	/**
+	 * The result whose rows are being loaded
+	 */
+	@Nullable
+	private CASTLESearchResult result;
+
+	/**
+	 * Indexes of the rows to show once loaded
+	 */
+	private final Set<Integer> indexes = new TreeSet<>();
+
+	/**
+	 * Actions to run in the UI thread once the rows are loaded
+	 */
+	private final List<Runnable> actions = new ArrayList<>();
+
+	public CASTLELoadResultsJob(final CASTLESearchingView view) {
+		super("CASTLE Loading Results");
+
+		this.view = view;
+		// Set priority as short since typically loads a single page
+		this.setPriority(Job.SHORT);
+	}
+
+	/**
+	 * Loads the result at the index, then shows it in the view
+	 *
+	 * @param result
+	 *            the result shown in the view
+	 * @param index
+	 *            the index (starts with 0)
+	 */
+	public synchronized void load(final CASTLESearchResult result, final int index) {
+		this.setResult(result);
+		this.indexes.add(index);
+
+		// If already running, runs again once done
+		this.schedule();
+	}
+
+	/**
+	 * Loads the results at the indexes, then runs the action in the UI thread
+	 *
+	 * @param result
+	 *            the result shown in the view
+	 * @param indexes
+	 *            the indexes (starts with 0)
+	 * @param action
+	 *            the action to run once the results are loaded (not run if
+	 *            another result is loaded first)
+	 */
+	public synchronized void load(final CASTLESearchResult result, final int[] indexes, final Runnable action) {
+		this.setResult(result);
+
+		for (int index : indexes) {
+			this.indexes.add(index);
+		}
+
+		this.actions.add(action);
+
+		// If already running, runs again once done
+		this.schedule();
+	}
+
+	private void setResult(final CASTLESearchResult result) {
+		if (result != this.result) {
+			// Rows and actions for the previous result are no longer needed
+			this.result = result;
+			this.indexes.clear();
+			this.actions.clear();
+		}
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		CASTLESearchResult result;
+		int[] indexes;
+		List<Runnable> actions;
+
+		synchronized (this) {
+			result = this.result;
+			indexes = this.indexes.stream().mapToInt(Integer::intValue).toArray();
+			this.indexes.clear();
+			actions = new ArrayList<>(this.actions);
+			this.actions.clear();
+		}
+
+		if (result == null || indexes.length == 0) {
+			return Status.OK_STATUS;
+		}
+
+		// Load the pages up to the last index
+		// (which also loads the other indexes)
+		result.getResult(indexes[indexes.length - 1]);
+
+		Display display = this.view.getDisplay();
+
+		if (display != null) {
+			display.asyncExec(() -> {
+				// Run in UI
+				this.view.showLoadedResults(result, indexes);
+				actions.forEach(Runnable::run);
+			});
+		}
+
+		return Status.OK_STATUS;
+	}
+}
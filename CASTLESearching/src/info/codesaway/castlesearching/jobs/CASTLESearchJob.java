@@ -1,27 +1,15 @@
 package info.codesaway.castlesearching.jobs;
 
 import java.io.IOException;
-import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
+import java.util.function.BooleanSupplier;
 
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
-import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
-import org.apache.lucene.queryparser.flexible.standard.config.PointsConfig;
-import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits.Relation;
@@ -29,27 +17,25 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.widgets.Display;
 
 import info.codesaway.castlesearching.CASTLESearch;
 import info.codesaway.castlesearching.CASTLESearchResult;
-import info.codesaway.castlesearching.CASTLESearchResultEntry;
-import info.codesaway.castlesearching.CASTLESearching;
 import info.codesaway.castlesearching.CASTLESearchingSettings;
 import info.codesaway.castlesearching.CASTLESearchingView;
-import info.codesaway.castlesearching.LuceneStep;
-import info.codesaway.castlesearching.indexer.CASTLEIndexer;
+import info.codesaway.castlesearching.searcher.CASTLESearcher;
+import info.codesaway.castlesearching.searcher.PinnedSearcher;
+import info.codesaway.castlesearching.searcher.QueryTemplate;
+import info.codesaway.castlesearching.searcher.ResultCache;
+import info.codesaway.castlesearching.searcher.ResultCache.CachedSearch;
+import info.codesaway.castlesearching.searcher.ResultPager;
+import info.codesaway.castlesearching.searcher.ResultRefiner;
+import info.codesaway.castlesearching.searcher.SearchBudget;
 
 public class CASTLESearchJob extends Job {
 
 	private final CASTLESearchingView view;
 	private CASTLESearch currentSearch;
-	// TODO: implement so when get to end to search after and append these
-	// results to the existing results
-	private ScoreDoc searchAfter;
-
-	private static final String[] CONTENT_AND_COMMENT_FIELDS = { "content", "comment" };
 
 	public CASTLESearchJob(final CASTLESearchingView view) {
 		super("CASTLE Searching");
@@ -177,7 +163,6 @@ public class CASTLESearchJob extends Job {
 
 	private void schedule(final CASTLESearch search) {
 		this.currentSearch = search;
-		this.searchAfter = null;
 
 		this.schedule(search.getDelay());
 	}
@@ -203,11 +188,12 @@ public class CASTLESearchJob extends Job {
 			// });
 
 			// System.out.println("Run: " + this.currentSearch);
-			CASTLESearchResult result = search(this.currentSearch, this.searchAfter);
-			this.searchAfter = result.getLastDocument();
+			// Stop searching if canceled (such as if typed more text)
+			CASTLESearchResult result = search(this.currentSearch, monitor::isCanceled);
 
 			if (monitor.isCanceled()) {
 				// System.out.println("Canceled?!");
+				result.release();
 				return Status.CANCEL_STATUS;
 			}
 
@@ -225,12 +211,10 @@ public class CASTLESearchJob extends Job {
 			if (display != null) {
 				display.syncExec(() -> {
 					// Run in UI
-					List<CASTLESearchResultEntry> resultsList = result.getResults();
-
-					this.view.setResults(resultsList);
+					this.view.setResults(result);
 					this.view.addSearch(result);
 
-					if (!resultsList.isEmpty()) {
+					if (result.getResultCount() > 0) {
 						if (this.currentSearch.shouldSelectFirstResult()) {
 							this.view.selectAndRevealTopResult();
 						} else {
@@ -254,6 +238,8 @@ public class CASTLESearchJob extends Job {
 
 					this.view.setMessage(result.getMessage());
 				});
+			} else {
+				result.release();
 			}
 		} catch (IOException e) {
 			if (display != null) {
@@ -278,7 +264,17 @@ public class CASTLESearchJob extends Job {
 		return Status.OK_STATUS;
 	}
 
-	public static CASTLESearchResult search(final CASTLESearch search, @Nullable final ScoreDoc searchAfter)
+	/**
+	 * Searches the index
+	 *
+	 * @param search
+	 *            the search
+	 * @param isCanceled
+	 *            indicates whether the search was canceled (checked while
+	 *            searching, so a slow query stops once canceled)
+	 * @return the search result
+	 */
+	public static CASTLESearchResult search(final CASTLESearch search, final BooleanSupplier isCanceled)
 			throws IOException, QueryNodeException, ParseException {
 
 		// TODO: add menu option to do full reindex
@@ -286,111 +282,88 @@ public class CASTLESearchJob extends Job {
 		// https://www.baeldung.com/lucene
 		// https://howtodoinjava.com/lucene/lucene-index-search-examples/
 
-		// TODO: make more generic to handle multiple SearchManagers
-		SearcherManager searcherManager = CASTLESearchingSettings
-				.getSearcherManager(search.getSearcher().getIndexPath());
+		// Keep the searcher acquired while the results are used
+		// (so the content can be loaded when it's shown)
+		PinnedSearcher pinnedSearcher = acquireSearcher(search.getSearcher());
 
-		if (searcherManager == null) {
+		if (pinnedSearcher == null) {
 			String message = "Cannot query until index is initialized. Your query will run shortly.";
-			return new CASTLESearchResult(search, Collections.emptyList(), message, false, null);
+			return new CASTLESearchResult(search, message, false, null);
 		}
+		ResultPager pager = null;
 
-		IndexSearcher searcher = searcherManager.acquire();
-
-		List<CASTLESearchResultEntry> results = new ArrayList<>();
 		String message;
-		ScoreDoc lastDocument = null;
 		try {
-			// TODO: Handle abbreviation versus normal (such as esht for
-			// escheat)
-			// Reference: https://www.baeldung.com/lucene-analyzers
-			Analyzer analyzer = CASTLESearching.createAnalyzer(LuceneStep.QUERY);
-
-			// StandardQueryTreeBuilder builder = new
-			// StandardQueryTreeBuilder();
-			// builder.set
-
-			StandardQueryParser standardQueryParser = new StandardQueryParser(analyzer);
-			standardQueryParser.setDefaultOperator(search.getDefaultOperator());
-
-			// TODO: how to support this using Classic parser, which doesn't support this
-
-			// Allow searching for numeric range on "line" field
-			// https://github.com/apache/lucene-solr/blob/master/lucene/queryparser/src/test/org/apache/lucene/queryparser/flexible/standard/TestPointQueryParser.java
-			Map<String, PointsConfig> pointsConfigMap = new HashMap<>();
-			pointsConfigMap.put("line", new PointsConfig(NumberFormat.getIntegerInstance(Locale.ROOT), Integer.class));
-
-			standardQueryParser.setPointsConfigMap(pointsConfigMap);
-
-			Query query;
-			if (search.shouldIncludeComments()) {
-				MultiFieldQueryParser multiFieldQueryParser = new MultiFieldQueryParser(CONTENT_AND_COMMENT_FIELDS,
-						analyzer);
-				multiFieldQueryParser.setDefaultOperator(search.getClassicDefaultOperator());
+			IndexSearcher searcher = pinnedSearcher.getSearcher();
+			long timeoutMillis = CASTLESearchingSettings.getSearchTimeoutMillis();
+
+			// Reuse the query and first page of hits if already searched
+			// (such as pressing ENTER again, if the index hasn't changed)
+			CachedSearch cachedSearch = ResultCache.get(search, searcher);
+
+			if (cachedSearch == null) {
+				// Analyzer and query parsers are cached
+				// (creating the analyzer reads the synonym files)
+				QueryTemplate queryTemplate = QueryTemplate.get();
+				Query query = queryTemplate.parseQuery(search);
+				BooleanQuery booleanQuery = queryTemplate.createBooleanQuery(search, query);
+
+				// While typing, refine the hits of the previous search if the
+				// query can only match those hits
+				// (such as typing another word when the default operator is AND)
+				CachedSearch refinableSearch = ResultCache.findRefinable(search, searcher, query);
+
+				TopDocs firstPage;
+				if (refinableSearch != null) {
+					firstPage = ResultRefiner.refine(searcher, refinableSearch.getFirstPage(), booleanQuery,
+							search.getHitLimit());
+				} else {
+					// Stop the search if it's canceled or takes too long
+					// (such as a regex query which matches many terms)
+					SearchBudget budget = new SearchBudget(timeoutMillis, isCanceled);
+					firstPage = ResultPager.searchFirstPage(searcher, booleanQuery, search.getHitLimit(), budget);
+				}
 
-				query = multiFieldQueryParser.parse(search.getText());
-			} else {
-				query = standardQueryParser.parse(search.getText(), "content");
-			}
+				cachedSearch = new CachedSearch(booleanQuery, query, firstPage);
 
-			// Test queries / searches
-			// * var:test file:compare - get line testingFile assignment in
-			// CompareDirectories
-			// * FABM:MAM get FABMMbrAcctMaint
-			// * pending retirement -DBPendingRetirement (doesn't work when
-			// parse query using camel case)
-			// TODO: likely should give option, since most of the time want
-			// enabled, but sometimes don't
-
-			// Set commented out lines as lower priority
-			// (whereas Javadoc keeps the same priority)
-			String commentedOutQueryText = "*:*" + " AND NOT comment";
-			Query commentedOutQuery = standardQueryParser.parse(commentedOutQueryText, "type");
-
-			// Mark as lower priority for search
-			// (acts as a "not in")
-			// https://stackoverflow.com/a/12109781
-			String lowPriorityQueryText = "*:*" + " AND NOT import" + " AND NOT empty" + " AND NOT \"close brace\""
-					+ " AND NOT symbols" + " AND NOT \"else line\"" + " AND NOT \"return null\""
-					+ " AND NOT \"return void\"";
-			Query lowPriorityQuery = standardQueryParser.parse(lowPriorityQueryText, "type");
-
-			BooleanQuery.Builder builder = new BooleanQuery.Builder()
-					.add(new BoostQuery(query, 1f), BooleanClause.Occur.MUST)
-					.add(new BoostQuery(commentedOutQuery, 0.5f), BooleanClause.Occur.SHOULD)
-					.add(new BoostQuery(lowPriorityQuery, 0.75f), BooleanClause.Occur.SHOULD);
-
-			if (search.getExtraQuery().isPresent()) {
-				builder.add(search.getExtraQuery().get(), BooleanClause.Occur.SHOULD);
+				// Don't cache partial results, so the search runs again
+				if (firstPage.totalHits.relation == Relation.EQUAL_TO) {
+					ResultCache.put(search, searcher, cachedSearch);
+				}
 			}
 
-			BooleanQuery booleanQuery = builder.build();
-
-			TopDocs hits;
-			if (searchAfter != null) {
-				hits = searcher.searchAfter(searchAfter, booleanQuery, search.getHitLimit());
-			} else {
-				hits = searcher.search(booleanQuery, search.getHitLimit());
-			}
+			// Load the first page of results
+			// (the other pages are loaded when the results are shown)
+			pager = ResultPager.create(pinnedSearcher, cachedSearch.getQuery(),
+					QueryTemplate.get().getIndexAnalyzer(), search.getHitLimit(), cachedSearch.getFirstPage(),
+					timeoutMillis);
 
-			long count = hits.totalHits.value;
-			boolean isRelationEqualTo = hits.totalHits.relation == Relation.EQUAL_TO;
+			// Block documents count the matching blocks, rather than the
+			// matching lines
+			long count = pager.getTotalHits();
+			boolean isBlockCount = pager.hasBlockDocuments();
+			String hitUnit = isBlockCount ? "block" : "hit";
 
 			String totalResultsMessage;
 
-			if (isRelationEqualTo) {
+			if (pager.isPartial()) {
 				if (count == 0) {
-					totalResultsMessage = "There are no results";
-				} else if (count == 1) {
-					totalResultsMessage = "Total Results: 1 hit";
-				} else if (count <= search.getHitLimit()) {
-					totalResultsMessage = "Total Results: " + count + " hits";
+					totalResultsMessage = "Search timed out before finding any results";
 				} else {
-					totalResultsMessage = String.format("Showing Results 1-%d of %d hits", search.getHitLimit(), count);
+					totalResultsMessage = String.format("Search timed out, showing the first %d %ss found",
+							pager.getHitCount(), hitUnit);
 				}
+			} else if (count == 0) {
+				totalResultsMessage = "There are no results";
+			} else if (count == 1) {
+				totalResultsMessage = "Total Results: 1 " + hitUnit;
+			} else if (count <= search.getHitLimit()) {
+				totalResultsMessage = "Total Results: " + count + " " + hitUnit + "s";
+			} else if (isBlockCount) {
+				totalResultsMessage = String.format("Showing the lines of the first %d of %d blocks",
+						search.getHitLimit(), count);
 			} else {
-				totalResultsMessage = String.format("Showing Results 1-%d of over %d hits", search.getHitLimit(),
-						count);
+				totalResultsMessage = String.format("Showing Results 1-%d of %d hits", search.getHitLimit(), count);
 			}
 
 			// 1/4/2020 - Don't need to show how long it took (it's fast, we get
@@ -452,65 +425,52 @@ public class CASTLESearchJob extends Job {
 			 * System.out.println("=======================");
 			 * System.out.println(frag); } }
 			 */
-
-			int resultIndex = 0;
-
-			if (hits.scoreDocs.length > 0) {
-				lastDocument = hits.scoreDocs[hits.scoreDocs.length - 1];
+		} finally {
+			if (pager == null) {
+				pinnedSearcher.release();
 			}
+		}
 
-			for (ScoreDoc sd : hits.scoreDocs) {
-				Document d = searcher.doc(sd.doc);
-				String path = d.get(CASTLEIndexer.FULL_PATH_FIELD);
-				String file = d.get("file");
-				String element = d.get("element");
-				String line = d.get("line");
-				String type = d.get("type");
-				// String date = d.get("date");
-				String content = d.get("content");
-				String extension = d.get("ext");
-
-				if (content != null) {
-					content = content.trim();
-				} else {
-					content = "";
-				}
-
-				if (element == null) {
-					element = "";
-				}
-
-				if (type == null) {
-					type = "";
-				}
-
-				String comment = d.get("comment");
-
-				if (comment != null && !comment.isEmpty()) {
-					// Show comment text after the content
-					// (so can focus attention on the content first)
-					content = content + " " + comment;
-				}
+		return new CASTLESearchResult(search, message, true, pager);
+	}
 
-				resultIndex++;
+	/**
+	 * Acquires the searcher to search
+	 *
+	 * <p>
+	 * A federated searcher searches the indexes of its searchers as one index
+	 * (skipping any index which doesn't exist yet)
+	 * </p>
+	 *
+	 * @param castleSearcher
+	 *            the searcher
+	 * @return the pinned searcher; <code>null</code> if no index is available
+	 *         yet
+	 */
+	private static PinnedSearcher acquireSearcher(final CASTLESearcher castleSearcher) throws IOException {
+		if (!castleSearcher.isFederated()) {
+			SearcherManager searcherManager = CASTLESearchingSettings
+					.getSearcherManager(castleSearcher.getIndexPath());
+
+			return searcherManager != null ? PinnedSearcher.acquire(searcherManager) : null;
+		}
 
-				results.add(
-						new CASTLESearchResultEntry(resultIndex, file, element, line, content, type, path, extension));
+		List<SearcherManager> searcherManagers = new ArrayList<>();
+		List<String> searcherNames = new ArrayList<>();
 
-				// if (isTesting && type != null) {
-				// System.out.println("Type: " + type);
-				// }
+		for (CASTLESearcher searcher : castleSearcher.getSearchers()) {
+			SearcherManager searcherManager = CASTLESearchingSettings.getSearcherManager(searcher.getIndexPath());
 
-				// System.out.printf("%sFound match in (%s:%s)%s - %s%n", type
-				// != null ? "(" + type + ") " : "", file, line,
-				// date != null ? " for " + date : "",
-				// path);
+			if (searcherManager != null) {
+				searcherManagers.add(searcherManager);
+				searcherNames.add(searcher.getName());
 			}
-		} finally {
-			searcherManager.release(searcher);
-			searcher = null;
 		}
 
-		return new CASTLESearchResult(search, results, message, true, lastDocument);
+		if (searcherManagers.isEmpty()) {
+			return null;
+		}
+
+		return PinnedSearcher.acquire(searcherManagers, searcherNames);
 	}
 }
@@ -0,0 +1,156 @@
+package info.codesaway.castlesearching.linetype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Finds the first matching line type, without testing each line type
+ *
+ * <p>
+ * The isEqual and startsWith line types (such as the ones from settings.xml)
+ * are compiled into a trie keyed on their text, so the line is only read
+ * once, no matter how many line types there are. Any other line types are
+ * tested in order, but only if they're before the line type found using the
+ * trie.
+ * </p>
+ *
+ * <p>
+ * The result is the same as testing each line type in order.
+ * </p>
+ */
+public class LineTypeClassifier {
+	private static final int NO_MATCH = Integer.MAX_VALUE;
+
+	private final List<LineType> lineTypes;
+	private final Node root = new Node();
+
+	// Indexes of the line types which aren't in the trie
+	private final int[] otherIndexes;
+
+	public LineTypeClassifier(final List<LineType> lineTypes) {
+		this.lineTypes = new ArrayList<>(lineTypes);
+
+		List<Integer> otherIndexes = new ArrayList<>();
+
+		for (int i = 0; i < this.lineTypes.size(); i++) {
+			LineType lineType = this.lineTypes.get(i);
+			String text = lineType instanceof PredicateLineType ? ((PredicateLineType) lineType).getText() : null;
+
+			if (text != null) {
+				this.root.add(text, ((PredicateLineType) lineType).isPrefix(), i);
+			} else {
+				otherIndexes.add(i);
+			}
+		}
+
+		this.otherIndexes = otherIndexes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Gets the line types (in the order they're checked)
+	 */
+	public List<LineType> getLineTypes() {
+		return this.lineTypes;
+	}
+
+	/**
+	 * Gets the first line type which matches the trimmed line
+	 *
+	 * @param trimmedLine
+	 *            the trimmed line
+	 * @return the first matching line type; <code>null</code> if none match
+	 */
+	@Nullable
+	public LineType classify(final String trimmedLine) {
+		int match = this.root.prefixIndex;
+		Node node = this.root;
+		boolean isEntireLine = true;
+
+		for (int i = 0; i < trimmedLine.length(); i++) {
+			Node child = node.getChild(trimmedLine.charAt(i));
+
+			if (child == null) {
+				isEntireLine = false;
+				break;
+			}
+
+			node = child;
+			match = Math.min(match, node.prefixIndex);
+		}
+
+		if (isEntireLine) {
+			// The line equals the node's text
+			match = Math.min(match, node.equalIndex);
+		}
+
+		// Only test the other line types which are checked first
+		for (int index : this.otherIndexes) {
+			if (index > match) {
+				break;
+			}
+
+			LineType lineType = this.lineTypes.get(index);
+
+			if (lineType.test(trimmedLine)) {
+				return lineType;
+			}
+		}
+
+		return match != NO_MATCH ? this.lineTypes.get(match) : null;
+	}
+
+	private static class Node {
+		private char[] keys = new char[0];
+		private Node[] children = new Node[0];
+
+		// Index of the first line type which starts with / equals the text up
+		// to this node
+		private int prefixIndex = NO_MATCH;
+		private int equalIndex = NO_MATCH;
+
+		public void add(final String text, final boolean isPrefix, final int index) {
+			Node node = this;
+
+			for (int i = 0; i < text.length(); i++) {
+				node = node.getOrAddChild(text.charAt(i));
+			}
+
+			// Keep the first line type, since it's checked first
+			if (isPrefix) {
+				node.prefixIndex = Math.min(node.prefixIndex, index);
+			} else {
+				node.equalIndex = Math.min(node.equalIndex, index);
+			}
+		}
+
+		@Nullable
+		public Node getChild(final char c) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] == c) {
+					return this.children[i];
+				}
+			}
+
+			return null;
+		}
+
+		private Node getOrAddChild(final char c) {
+			Node child = this.getChild(c);
+
+			if (child == null) {
+				child = new Node();
+
+				this.keys = Arrays.copyOf(this.keys, this.keys.length + 1);
+				this.keys[this.keys.length - 1] = c;
+
+				this.children = Arrays.copyOf(this.children, this.children.length + 1);
+				this.children[this.children.length - 1] = child;
+			}
+
+			return child;
+		}
+	}
+}
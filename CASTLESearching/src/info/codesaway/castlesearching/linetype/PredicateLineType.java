@@ -3,14 +3,28 @@ package info.codesaway.castlesearching.linetype;
 import java.util.function.Predicate;
 
 import org.apache.lucene.document.Document;
+import org.eclipse.jdt.annotation.Nullable;
 
 public class PredicateLineType implements LineType {
 	private final Predicate<String> predicate;
 	private final String type;
 
+	// Text for the isEqual / startsWith line types
+	// (allows LineTypeClassifier to match them without testing each one)
+	@Nullable
+	private final String text;
+	private final boolean isPrefix;
+
 	public PredicateLineType(final Predicate<String> predicate, final String type) {
+		this(predicate, type, null, false);
+	}
+
+	private PredicateLineType(final Predicate<String> predicate, final String type, @Nullable final String text,
+			final boolean isPrefix) {
 		this.predicate = predicate;
 		this.type = type;
+		this.text = text;
+		this.isPrefix = isPrefix;
 	}
 
 	@Override
@@ -23,11 +37,30 @@ public class PredicateLineType implements LineType {
 		return LineType.addType(document, this.type);
 	}
 
+	/**
+	 * Gets the text the line must equal or start with
+	 *
+	 * @return the text; <code>null</code> if the line type uses another
+	 *         predicate
+	 */
+	@Nullable
+	public String getText() {
+		return this.text;
+	}
+
+	/**
+	 * Indicates whether the line must start with the text, rather than equal
+	 * it
+	 */
+	public boolean isPrefix() {
+		return this.isPrefix;
+	}
+
 	public static PredicateLineType isEqual(final String text, final String type) {
-		return new PredicateLineType(l -> l.equals(text), type);
+		return new PredicateLineType(l -> l.equals(text), type, text, false);
 	}
 
 	public static PredicateLineType startsWith(final String text, final String type) {
-		return new PredicateLineType(l -> l.startsWith(text), type);
+		return new PredicateLineType(l -> l.startsWith(text), type, text, true);
 	}
 }
@@ -0,0 +1,241 @@
+package info.codesaway.castlesearching.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.search.ReferenceManager;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.util.JsonUtilities;
+
+/**
+ * Timings for each stage of indexing and searching, along with counters
+ *
+ * <p>
+ * The metrics are cumulative (since Eclipse started or since they were
+ * reset), so can see where the time goes across many files and searches.
+ * </p>
+ */
+@NonNullByDefault
+public class CASTLEMetrics {
+	private static final List<Timer> TIMERS = new ArrayList<>();
+	private static final List<Counter> COUNTERS = new ArrayList<>();
+
+	/**
+	 * Name of the JSON log (in the same directory as the index)
+	 */
+	public static final String JSON_LOG_FILENAME = "metrics.jsonl";
+
+	// Indexing stages
+	public static final Timer INDEX_WALK = timer("index.walk", "Walking the workspace to find the files to index");
+	public static final Timer INDEX_STAT = timer("index.stat",
+			"Checking whether each walked file changed (including the content hash, if the last modified changed)");
+	public static final Timer INDEX_JDT_PARSE = timer("index.jdt-parse",
+			"Parsing a Java file to find its Java elements (such as methods and fields)");
+	public static final Timer INDEX_READ = timer("index.read", "Reading a file");
+	public static final Timer INDEX_LINE_CLASSIFICATION = timer("index.line-classification",
+			"Classifying the lines of a file (line types and comments)");
+	public static final Timer INDEX_ANALYSIS = timer("index.analysis",
+			"Analyzing a file's documents and adding them to the index writer");
+	public static final Timer INDEX_ADD_DOCUMENT = timer("index.add-document",
+			"Indexing a file (includes the JDT parse, read, line classification, and analysis)");
+	public static final Timer INDEX_COMMIT = timer("index.commit", "Committing the index");
+	public static final Timer INDEX_SEARCHER_REFRESH = timer("index.searcher-refresh",
+			"Reopening the searcher, so searches see the indexed files");
+
+	// Search stages
+	public static final Timer SEARCH_PARSE = timer("search.parse", "Parsing the query");
+	public static final Timer SEARCH_REWRITE = timer("search.rewrite",
+			"Rewriting the query (such as expanding wildcard and regex terms)");
+	public static final Timer SEARCH_SCORE = timer("search.score", "Finding and scoring the hits");
+	public static final Timer SEARCH_FETCH = timer("search.fetch",
+			"Loading the hits' fields (such as the file, line, and content)");
+
+	public static final Counter INDEX_FILES_WALKED = counter("index.files-walked", "Files walked");
+	public static final Counter INDEX_FILES_INDEXED = counter("index.files-indexed", "Files indexed");
+	public static final Counter INDEX_FILES_UNCHANGED = counter("index.files-unchanged",
+			"Files not reindexed, since only the last modified changed");
+	public static final Counter INDEX_JDT_CACHE_HITS = counter("index.jdt-cache-hits",
+			"Java files not parsed, since the Java elements for the same content were cached");
+	public static final Counter INDEX_BYTES_READ = counter("index.bytes-read", "Bytes read from indexed files");
+	public static final Counter INDEX_DOCUMENTS_ADDED = counter("index.documents-added",
+			"Documents added (lines, blocks, and meta documents)");
+
+	private static Timer timer(final String name, final String description) {
+		Timer timer = new Timer(name, description);
+		TIMERS.add(timer);
+		return timer;
+	}
+
+	private static Counter counter(final String name, final String description) {
+		Counter counter = new Counter(name, description);
+		COUNTERS.add(counter);
+		return counter;
+	}
+
+	public static List<Timer> getTimers() {
+		@SuppressWarnings("null")
+		List<Timer> result = Collections.unmodifiableList(TIMERS);
+		return result;
+	}
+
+	public static List<Counter> getCounters() {
+		@SuppressWarnings("null")
+		List<Counter> result = Collections.unmodifiableList(COUNTERS);
+		return result;
+	}
+
+	/**
+	 * Resets the timers and counters
+	 */
+	public static void reset() {
+		TIMERS.forEach(Timer::reset);
+		COUNTERS.forEach(Counter::reset);
+	}
+
+	/**
+	 * Creates a listener which records how long the SearcherManager takes to
+	 * reopen the searcher (when there are changes)
+	 */
+	public static ReferenceManager.RefreshListener createRefreshListener() {
+		return new ReferenceManager.RefreshListener() {
+			// Refreshes don't overlap (the ReferenceManager refreshes under a
+			// lock)
+			private volatile long startNanos;
+
+			@Override
+			public void beforeRefresh() {
+				this.startNanos = System.nanoTime();
+			}
+
+			@Override
+			public void afterRefresh(final boolean didRefresh) {
+				if (didRefresh) {
+					INDEX_SEARCHER_REFRESH.recordSince(this.startNanos);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Formats the metrics as a table
+	 */
+	public static String toText() {
+		StringBuilder text = new StringBuilder();
+
+		text.append(String.format(Locale.ROOT, "%-26s %10s %12s %10s %10s %10s %10s %10s%n", "Stage", "Count",
+				"Total (ms)", "Mean (ms)", "p50 (ms)", "p90 (ms)", "p99 (ms)", "Max (ms)"));
+
+		for (Timer timer : TIMERS) {
+			text.append(String.format(Locale.ROOT, "%-26s %10d %12.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+					timer.getName(), timer.getCount(), toMillis(timer.getTotalNanos()),
+					toMillis(timer.getMeanNanos()), toMillis(timer.getPercentileNanos(0.5)),
+					toMillis(timer.getPercentileNanos(0.9)), toMillis(timer.getPercentileNanos(0.99)),
+					toMillis(timer.getMaxNanos())));
+		}
+
+		text.append(String.format("%n"));
+
+		for (Counter counter : COUNTERS) {
+			text.append(String.format(Locale.ROOT, "%-26s %10d%n", counter.getName(), counter.get()));
+		}
+
+		@SuppressWarnings("null")
+		String result = text.toString();
+		return result;
+	}
+
+	/**
+	 * Formats the metrics as a JSON object
+	 *
+	 * @param event
+	 *            what caused the metrics to be written (such as "index")
+	 * @param message
+	 *            describes the event (such as the indexing done message)
+	 */
+	public static String toJson(final String event, final String message) {
+		StringBuilder json = new StringBuilder("{");
+
+		JsonUtilities.appendFieldName(json, "time");
+		JsonUtilities.appendString(json, LocalDateTime.now().toString());
+
+		JsonUtilities.appendFieldName(json, "event");
+		JsonUtilities.appendString(json, event);
+
+		JsonUtilities.appendFieldName(json, "message");
+		JsonUtilities.appendString(json, message);
+
+		JsonUtilities.appendFieldName(json, "timers");
+		json.append('{');
+
+		for (Timer timer : TIMERS) {
+			JsonUtilities.appendFieldName(json, timer.getName());
+			json.append('{');
+			appendNumber(json, "count", timer.getCount());
+			appendMillis(json, "totalMillis", timer.getTotalNanos());
+			appendMillis(json, "meanMillis", timer.getMeanNanos());
+			appendMillis(json, "p50Millis", timer.getPercentileNanos(0.5));
+			appendMillis(json, "p90Millis", timer.getPercentileNanos(0.9));
+			appendMillis(json, "p99Millis", timer.getPercentileNanos(0.99));
+			appendMillis(json, "maxMillis", timer.getMaxNanos());
+			json.append('}');
+		}
+
+		json.append('}');
+
+		JsonUtilities.appendFieldName(json, "counters");
+		json.append('{');
+
+		for (Counter counter : COUNTERS) {
+			appendNumber(json, counter.getName(), counter.get());
+		}
+
+		json.append("}}");
+
+		@SuppressWarnings("null")
+		String result = json.toString();
+		return result;
+	}
+
+	/**
+	 * Appends the metrics as a line of JSON to the JSON log
+	 *
+	 * @param directory
+	 *            the directory containing the log
+	 * @param event
+	 *            what caused the metrics to be written (such as "index")
+	 * @param message
+	 *            describes the event (such as the indexing done message)
+	 * @throws IOException
+	 */
+	public static void logJson(final Path directory, final String event, final String message)
+			throws IOException {
+		String line = toJson(event, message) + System.lineSeparator();
+
+		Files.write(directory.resolve(JSON_LOG_FILENAME), line.getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private static void appendNumber(final StringBuilder json, final String name, final long value) {
+		JsonUtilities.appendFieldName(json, name);
+		json.append(value);
+	}
+
+	private static void appendMillis(final StringBuilder json, final String name, final long nanos) {
+		JsonUtilities.appendFieldName(json, name);
+		json.append(String.format(Locale.ROOT, "%.3f", toMillis(nanos)));
+	}
+
+	private static double toMillis(final long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,45 @@
+package info.codesaway.castlesearching.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Counts events (such as the number of files indexed)
+ */
+@NonNullByDefault
+public class Counter {
+	private final String name;
+	private final String description;
+
+	private final LongAdder count = new LongAdder();
+
+	Counter(final String name, final String description) {
+		this.name = name;
+		this.description = description;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getDescription() {
+		return this.description;
+	}
+
+	public void increment() {
+		this.count.increment();
+	}
+
+	public void add(final long value) {
+		this.count.add(value);
+	}
+
+	public long get() {
+		return this.count.sum();
+	}
+
+	void reset() {
+		this.count.reset();
+	}
+}
@@ -0,0 +1,161 @@
+package info.codesaway.castlesearching.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Records how long a stage takes (the count, total, maximum, and a histogram
+ * of the durations)
+ *
+ * <p>
+ * Recording is lock-free, so stages running on multiple threads (such as
+ * indexing files) can record to the same timer. The histogram uses 8 buckets
+ * for each power of 2, so the percentiles are within 12.5%.
+ * </p>
+ */
+@NonNullByDefault
+public class Timer {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Durations less than SUB_BUCKETS nanoseconds each have their own bucket
+	// (positive longs have at most 63 bits)
+	private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final String name;
+	private final String description;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	Timer(final String name, final String description) {
+		this.name = name;
+		this.description = description;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getDescription() {
+		return this.description;
+	}
+
+	/**
+	 * Records the duration
+	 *
+	 * @param nanos
+	 *            the duration in nanoseconds
+	 */
+	public void record(final long nanos) {
+		long duration = Math.max(0, nanos);
+
+		this.count.increment();
+		this.totalNanos.add(duration);
+		this.maxNanos.accumulate(duration);
+		this.buckets.incrementAndGet(getBucket(duration));
+	}
+
+	/**
+	 * Records the duration since the specified start time
+	 *
+	 * @param startNanos
+	 *            the start time (from {@link System#nanoTime()})
+	 */
+	public void recordSince(final long startNanos) {
+		this.record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	public long getTotalNanos() {
+		return this.totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return this.maxNanos.get();
+	}
+
+	public long getMeanNanos() {
+		long count = this.getCount();
+		return count == 0 ? 0 : this.getTotalNanos() / count;
+	}
+
+	/**
+	 * Gets the duration which the specified fraction of the recorded
+	 * durations are less than or equal to
+	 *
+	 * @param percentile
+	 *            the percentile (such as 0.99 for the 99th percentile)
+	 * @return the upper bound of the histogram bucket containing the
+	 *         percentile (at most the maximum duration); 0 if nothing was
+	 *         recorded
+	 */
+	public long getPercentileNanos(final double percentile) {
+		long count = 0;
+		long[] bucketCounts = new long[BUCKET_COUNT];
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			bucketCounts[i] = this.buckets.get(i);
+			count += bucketCounts[i];
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile * count));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += bucketCounts[i];
+
+			if (seen >= rank) {
+				return Math.min(getBucketUpperBound(i), this.getMaxNanos());
+			}
+		}
+
+		return this.getMaxNanos();
+	}
+
+	void reset() {
+		this.count.reset();
+		this.totalNanos.reset();
+		this.maxNanos.reset();
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			this.buckets.set(i, 0);
+		}
+	}
+
+	static int getBucket(final long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long getBucketUpperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = bucket % SUB_BUCKETS;
+		int shift = exponent - SUB_BUCKET_BITS;
+
+		long lowerBound = (1L << exponent) | ((long) subBucket << shift);
+		return lowerBound + (1L << shift) - 1;
+	}
+}
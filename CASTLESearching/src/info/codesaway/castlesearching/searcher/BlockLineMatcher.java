@@ -0,0 +1,130 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+import info.codesaway.castlesearching.indexer.BlockDocumentBuilder;
+
+/**
+ * Determines which lines of block documents match the query
+ *
+ * <p>
+ * A block document matches if the query matches the block as a whole, even
+ * if no single line matches (such as when each search term is on a different
+ * line). The lines of the block documents are indexed into an in-memory
+ * index, the same as the line layout indexes them, and the query is searched
+ * against those lines.
+ * </p>
+ *
+ * <p>
+ * Each matching line is scored as a line (so the lower priority of lines such
+ * as commented out lines applies to the line, rather than to the block).
+ * </p>
+ */
+@NonNullByDefault
+public final class BlockLineMatcher {
+	private BlockLineMatcher() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the matching lines for each block document
+	 *
+	 * @param analyzer
+	 *            the analyzer used to index the documents
+	 * @param query
+	 *            the query
+	 * @param blockDocuments
+	 *            the stored fields of the block documents
+	 * @return for each block document, the score of each line in the block
+	 *         (<code>NaN</code> if the line doesn't match)
+	 * @throws IOException
+	 */
+	public static float[][] match(final Analyzer analyzer, final Query query, final List<Document> blockDocuments)
+			throws IOException {
+		float[][] lineScores = new float[blockDocuments.size()][];
+
+		// The line documents for all the blocks
+		// (so the in-memory index is only created once)
+		List<Document> lineDocuments = new ArrayList<>();
+		// Index of the first line document for each block
+		int[] firstLineDocuments = new int[blockDocuments.size()];
+
+		for (int i = 0; i < blockDocuments.size(); i++) {
+			List<Document> blockLineDocuments = BlockDocumentBuilder.getLineDocuments(blockDocuments.get(i));
+
+			firstLineDocuments[i] = lineDocuments.size();
+			lineDocuments.addAll(blockLineDocuments);
+
+			lineScores[i] = new float[blockLineDocuments.size()];
+
+			for (int j = 0; j < lineScores[i].length; j++) {
+				lineScores[i][j] = Float.NaN;
+			}
+		}
+
+		if (lineDocuments.isEmpty()) {
+			return lineScores;
+		}
+
+		try (ByteBuffersDirectory directory = new ByteBuffersDirectory()) {
+			try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+				// Add as a single block, so the doc ids are in the same order
+				writer.addDocuments(lineDocuments);
+			}
+
+			try (DirectoryReader reader = DirectoryReader.open(directory)) {
+				IndexSearcher searcher = new IndexSearcher(reader);
+
+				// Don't cache queries for a throwaway index
+				searcher.setQueryCache(null);
+
+				TopDocs topDocs = searcher.search(query, lineDocuments.size());
+
+				for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+					int block = findBlock(firstLineDocuments, scoreDoc.doc);
+					lineScores[block][scoreDoc.doc - firstLineDocuments[block]] = scoreDoc.score;
+				}
+			}
+		}
+
+		return lineScores;
+	}
+
+	/**
+	 * Finds the block containing the line document
+	 */
+	private static int findBlock(final int[] firstLineDocuments, final int lineDocument) {
+		int low = 0;
+		int high = firstLineDocuments.length - 1;
+
+		// Last block whose first line document is at or before the line
+		// document
+		// (blocks without any lines have the same first line document as the
+		// next block)
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+
+			if (firstLineDocuments[middle] <= lineDocument) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+}
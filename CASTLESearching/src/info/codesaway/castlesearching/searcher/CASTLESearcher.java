@@ -1,22 +1,53 @@
 package info.codesaway.castlesearching.searcher;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class CASTLESearcher {
 	private final String name;
 	private final Path indexPath;
 	private final int hitLimit;
 
+	// Searchers searched by a federated searcher
+	// (empty for a searcher with its own index)
+	private final List<CASTLESearcher> searchers;
+
 	public CASTLESearcher(final String name, final Path indexPath, final int hitLimit) {
 		this.name = name;
 		this.indexPath = indexPath;
 		this.hitLimit = hitLimit;
+		this.searchers = Collections.emptyList();
+	}
+
+	/**
+	 * Creates a federated searcher, which searches the indexes of multiple
+	 * searchers as one index
+	 *
+	 * @param name
+	 *            the name
+	 * @param searchers
+	 *            the searchers to search
+	 * @param hitLimit
+	 *            the hit limit
+	 */
+	public CASTLESearcher(final String name, final List<CASTLESearcher> searchers, final int hitLimit) {
+		this.name = name;
+		this.indexPath = null;
+		this.hitLimit = hitLimit;
+		this.searchers = Collections.unmodifiableList(new ArrayList<>(searchers));
 	}
 
 	public String getName() {
 		return this.name;
 	}
 
+	/**
+	 *
+	 * @return the index path; <code>null</code> if this is a federated
+	 *         searcher
+	 */
 	public Path getIndexPath() {
 		return this.indexPath;
 	}
@@ -24,4 +55,17 @@ public class CASTLESearcher {
 	public int getHitLimit() {
 		return this.hitLimit;
 	}
+
+	public boolean isFederated() {
+		return !this.searchers.isEmpty();
+	}
+
+	/**
+	 *
+	 * @return the searchers searched by this federated searcher (empty if not
+	 *         federated)
+	 */
+	public List<CASTLESearcher> getSearchers() {
+		return this.searchers;
+	}
 }
@@ -0,0 +1,339 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.ExitableDirectoryReader.ExitingReaderException;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.TotalHits.Relation;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+
+/**
+ * Creates searchers which search the segments of the index in parallel
+ *
+ * <p>
+ * The segments are grouped into slices, which are searched using a shared,
+ * bounded executor. The number of threads and the size of the slices are
+ * read from the settings when each searcher is created (so changes are used
+ * once the searcher is refreshed).
+ * </p>
+ *
+ * <p>
+ * Note: {@link IndexSearcher#search(Query, Collector)} always uses a single
+ * thread, so use {@link #search(IndexSearcher, Query, int, ScoreDoc, int, SearchBudget)}
+ * to search the slices in parallel.
+ * </p>
+ */
+@NonNullByDefault
+public class ConcurrentSearcherFactory extends SearcherFactory {
+	@Nullable
+	private static ThreadPoolExecutor EXECUTOR;
+
+	@Override
+	public IndexSearcher newSearcher(final IndexReader reader, @Nullable final IndexReader previousReader) {
+		Executor executor = getExecutor(CASTLESearchingSettings.SEARCH_THREADS);
+
+		if (executor == null) {
+			return new IndexSearcher(reader);
+		}
+
+		int sliceMaxDocs = CASTLESearchingSettings.SEARCH_SLICE_MAX_DOCS;
+		int sliceMaxSegments = CASTLESearchingSettings.SEARCH_SLICE_MAX_SEGMENTS;
+
+		// Note: slices is called by the IndexSearcher constructor
+		// (so must only use the values captured from this method)
+		return new IndexSearcher(reader, executor) {
+			@Override
+			protected LeafSlice[] slices(final List<LeafReaderContext> leaves) {
+				return ConcurrentSearcherFactory.slices(leaves, sliceMaxDocs, sliceMaxSegments);
+			}
+		};
+	}
+
+	/**
+	 * Gets the executor used to search slices
+	 *
+	 * @param threadCount
+	 *            the number of threads
+	 * @return the executor; <code>null</code> if searching using a single
+	 *         thread
+	 */
+	@Nullable
+	private static synchronized Executor getExecutor(final int threadCount) {
+		if (threadCount <= 1) {
+			return null;
+		}
+
+		ThreadPoolExecutor executor = EXECUTOR;
+
+		if (executor == null || executor.getMaximumPoolSize() != threadCount) {
+			// Don't shutdown the old executor, since searchers which haven't
+			// been released may still use it
+			// (its threads time out once idle)
+			executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(),
+					new ThreadFactoryBuilder().setNameFormat("CASTLE Searcher %d").setDaemon(true).build());
+			executor.allowCoreThreadTimeOut(true);
+			EXECUTOR = executor;
+		}
+
+		return executor;
+	}
+
+	/**
+	 * Groups the leaves into slices
+	 *
+	 * <p>
+	 * Adjacent leaves are grouped, so the slices are in docID order. This
+	 * keeps the order of hits with the same score the same as searching
+	 * using a single thread (lower docID first), which
+	 * <code>searchAfter</code> relies on.
+	 * </p>
+	 *
+	 * @param leaves
+	 *            the leaves
+	 * @param sliceMaxDocs
+	 *            the maximum number of documents in a slice (a slice with a
+	 *            single larger leaf may have more)
+	 * @param sliceMaxSegments
+	 *            the maximum number of leaves in a slice
+	 * @return the slices
+	 */
+	public static IndexSearcher.LeafSlice[] slices(final List<LeafReaderContext> leaves, final int sliceMaxDocs,
+			final int sliceMaxSegments) {
+		List<IndexSearcher.LeafSlice> slices = new ArrayList<>();
+		List<LeafReaderContext> group = new ArrayList<>();
+		long groupDocs = 0;
+
+		for (LeafReaderContext leaf : leaves) {
+			int maxDoc = leaf.reader().maxDoc();
+
+			if (!group.isEmpty() && (groupDocs + maxDoc > sliceMaxDocs || group.size() >= sliceMaxSegments)) {
+				slices.add(new IndexSearcher.LeafSlice(group.toArray(new LeafReaderContext[0])));
+				group.clear();
+				groupDocs = 0;
+			}
+
+			group.add(leaf);
+			groupDocs += maxDoc;
+		}
+
+		if (!group.isEmpty()) {
+			slices.add(new IndexSearcher.LeafSlice(group.toArray(new LeafReaderContext[0])));
+		}
+
+		return slices.toArray(new IndexSearcher.LeafSlice[0]);
+	}
+
+	/**
+	 * Searches for the top hits, searching the slices of the searcher in
+	 * parallel (if the searcher has an executor)
+	 *
+	 * <p>
+	 * Waits for every slice to finish, even if the budget is exceeded, so the
+	 * hits found so far can be returned.
+	 * </p>
+	 *
+	 * <p>
+	 * The query is rewritten and its weight is created once, then each slice
+	 * scores only its own leaves (the same as
+	 * {@link IndexSearcher#search(Query, org.apache.lucene.search.CollectorManager)}).
+	 * </p>
+	 *
+	 * @param searcher
+	 *            the searcher to search
+	 * @param query
+	 *            the query
+	 * @param numHits
+	 *            the number of hits to return
+	 * @param after
+	 *            the last hit of the previous page (<code>null</code> for the
+	 *            first page)
+	 * @param totalHitsThreshold
+	 *            the number of hits to count exactly in each slice
+	 * @param budget
+	 *            stops the search once it's canceled or runs out of time
+	 * @return the top hits (in the same order as searching using a single
+	 *         thread)
+	 * @throws IOException
+	 */
+	public static TopDocs search(final IndexSearcher searcher, final Query query, final int numHits,
+			@Nullable final ScoreDoc after, final int totalHitsThreshold, final SearchBudget budget)
+			throws IOException {
+		IndexSearcher exitableSearcher = budget.wrap(searcher);
+
+		// Rewrite once, instead of in each slice
+		// (also allows timing the rewrite separately from scoring)
+		Query rewrittenQuery;
+		long rewriteStartTime = System.nanoTime();
+
+		try {
+			rewrittenQuery = exitableSearcher.rewrite(query);
+		} catch (ExitingReaderException e) {
+			return new TopDocs(new TotalHits(0, Relation.GREATER_THAN_OR_EQUAL_TO), new ScoreDoc[0]);
+		} finally {
+			CASTLEMetrics.SEARCH_REWRITE.recordSince(rewriteStartTime);
+		}
+
+		long scoreStartTime = System.nanoTime();
+
+		try {
+			return searchRewritten(searcher, exitableSearcher, rewrittenQuery, numHits, after, totalHitsThreshold,
+					budget);
+		} finally {
+			CASTLEMetrics.SEARCH_SCORE.recordSince(scoreStartTime);
+		}
+	}
+
+	private static TopDocs searchRewritten(final IndexSearcher searcher, final IndexSearcher exitableSearcher,
+			final Query rewrittenQuery, final int numHits, @Nullable final ScoreDoc after,
+			final int totalHitsThreshold, final SearchBudget budget) throws IOException {
+		IndexSearcher.LeafSlice[] slices = searcher.getSlices();
+		Executor executor = searcher.getExecutor();
+
+		// The leaves of the searcher being searched
+		// (the slices have the leaves of the unwrapped searcher, which are in
+		// the same order)
+		List<LeafReaderContext> leaves = exitableSearcher.getIndexReader().leaves();
+
+		boolean isSingleSlice = executor == null || slices.length <= 1;
+		TopScoreDocCollector[] collectors = new TopScoreDocCollector[isSingleSlice ? 1 : slices.length];
+
+		for (int i = 0; i < collectors.length; i++) {
+			collectors[i] = TopScoreDocCollector.create(numHits, after, totalHitsThreshold);
+		}
+
+		// Every slice uses the same settings, so they have the same score mode
+		ScoreMode scoreMode = collectors[0].scoreMode();
+		Weight weight;
+
+		try {
+			weight = exitableSearcher.createWeight(rewrittenQuery, scoreMode, 1);
+		} catch (ExitingReaderException e) {
+			return new TopDocs(new TotalHits(0, Relation.GREATER_THAN_OR_EQUAL_TO), new ScoreDoc[0]);
+		}
+
+		if (isSingleSlice) {
+			searchLeaves(leaves, weight, budget.wrap(collectors[0]));
+			return collectors[0].topDocs();
+		}
+
+		List<FutureTask<Void>> tasks = new ArrayList<>();
+
+		for (int i = 0; i < slices.length; i++) {
+			List<LeafReaderContext> sliceLeaves = new ArrayList<>(slices[i].leaves.length);
+
+			for (LeafReaderContext leaf : slices[i].leaves) {
+				sliceLeaves.add(leaves.get(leaf.ord));
+			}
+
+			Collector sliceCollector = budget.wrap(collectors[i]);
+			tasks.add(new FutureTask<>(() -> {
+				searchLeaves(sliceLeaves, weight, sliceCollector);
+				return null;
+			}));
+		}
+
+		// Search the first slice using the calling thread
+		for (int i = 1; i < tasks.size(); i++) {
+			executor.execute(tasks.get(i));
+		}
+
+		tasks.get(0).run();
+
+		for (FutureTask<Void> task : tasks) {
+			try {
+				task.get();
+			} catch (InterruptedException e) {
+				throw new ThreadInterruptedException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+
+				throw new RuntimeException(cause);
+			}
+		}
+
+		TopDocs[] topDocs = new TopDocs[collectors.length];
+
+		for (int i = 0; i < collectors.length; i++) {
+			topDocs[i] = collectors[i].topDocs();
+		}
+
+		// Slices are in docID order, so hits with the same score are still
+		// ordered by docID
+		@SuppressWarnings("null")
+		TopDocs result = TopDocs.merge(numHits, topDocs);
+		return result;
+	}
+
+	/**
+	 * Scores the leaves using the weight (the same as
+	 * <code>IndexSearcher.search(List, Weight, Collector)</code>, which is
+	 * protected)
+	 */
+	private static void searchLeaves(final List<LeafReaderContext> leaves, final Weight weight,
+			final Collector collector) throws IOException {
+		try {
+			for (LeafReaderContext leaf : leaves) {
+				LeafCollector leafCollector;
+
+				try {
+					leafCollector = collector.getLeafCollector(leaf);
+				} catch (CollectionTerminatedException e) {
+					// No more hits needed from this leaf
+					// (such as if the budget was exceeded)
+					continue;
+				}
+
+				BulkScorer scorer = weight.bulkScorer(leaf);
+
+				if (scorer != null) {
+					try {
+						scorer.score(leafCollector, leaf.reader().getLiveDocs());
+					} catch (CollectionTerminatedException e) {
+						// Collection was terminated early for this leaf
+					}
+				}
+			}
+		} catch (ExitingReaderException e) {
+			// Budget exceeded while enumerating terms (such as for a regex
+			// query)
+		}
+	}
+}
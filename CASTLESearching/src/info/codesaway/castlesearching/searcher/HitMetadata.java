@@ -0,0 +1,212 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import info.codesaway.castlesearching.indexer.CASTLEIndexer;
+
+/**
+ * Metadata for a search hit, read from doc values
+ *
+ * <p>
+ * Reading the doc values avoids loading (and decompressing) the stored fields
+ * for every hit. The content is loaded separately, only when it's shown.
+ * </p>
+ */
+@NonNullByDefault
+public class HitMetadata {
+	private final int doc;
+	private final String path;
+	private final String file;
+	private final String element;
+	private final String line;
+	private final String type;
+	private final String extension;
+	private final String project;
+
+	private HitMetadata(final int doc, final String path, final String file, final String element,
+			final String line, final String type, final String extension, final String project) {
+		this.doc = doc;
+		this.path = path;
+		this.file = file;
+		this.element = element;
+		this.line = line;
+		this.type = type;
+		this.extension = extension;
+		this.project = project;
+	}
+
+	/**
+	 * Reads the metadata for the hits
+	 *
+	 * <p>
+	 * The hits are read in docID order, one leaf at a time, so each doc values
+	 * iterator only moves forward.
+	 * </p>
+	 *
+	 * @param searcher
+	 *            the searcher which returned the hits
+	 * @param hits
+	 *            the hits
+	 * @return the metadata for each hit (in the same order as the hits); the
+	 *         entry is <code>null</code> if the document doesn't have the doc
+	 *         values (such as block documents or documents indexed by an older
+	 *         version)
+	 * @throws IOException
+	 */
+	public static @Nullable HitMetadata[] read(final IndexSearcher searcher, final ScoreDoc[] hits)
+			throws IOException {
+		HitMetadata[] metadata = new HitMetadata[hits.length];
+
+		Integer[] order = new Integer[hits.length];
+
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, Comparator.comparingInt(i -> hits[i].doc));
+
+		List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+
+		LeafReaderContext leaf = null;
+		LeafDocValues docValues = null;
+
+		for (int i : order) {
+			int doc = hits[i].doc;
+
+			if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+				leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+				docValues = new LeafDocValues(leaf.reader());
+			}
+
+			@SuppressWarnings("null")
+			HitMetadata hitMetadata = docValues.read(doc, doc - leaf.docBase);
+			metadata[i] = hitMetadata;
+		}
+
+		return metadata;
+	}
+
+	public int getDoc() {
+		return this.doc;
+	}
+
+	public String getPath() {
+		return this.path;
+	}
+
+	public String getFile() {
+		return this.file;
+	}
+
+	public String getElement() {
+		return this.element;
+	}
+
+	public String getLine() {
+		return this.line;
+	}
+
+	public String getType() {
+		return this.type;
+	}
+
+	public String getExtension() {
+		return this.extension;
+	}
+
+	public String getProject() {
+		return this.project;
+	}
+
+	/**
+	 * Doc values for one leaf
+	 */
+	private static class LeafDocValues {
+		private final SortedDocValues path;
+		private final SortedDocValues file;
+		private final SortedDocValues element;
+		private final NumericDocValues line;
+		private final SortedDocValues type;
+		private final SortedDocValues extension;
+		private final SortedDocValues project;
+
+		LeafDocValues(final LeafReader reader) throws IOException {
+			this.path = getSorted(reader, CASTLEIndexer.FULL_PATH_FIELD);
+			this.file = getSorted(reader, "file");
+			this.element = getSorted(reader, "element");
+			this.line = getNumeric(reader, "line");
+			this.type = getSorted(reader, "type");
+			this.extension = getSorted(reader, "ext");
+			this.project = getSorted(reader, "proj");
+		}
+
+		/**
+		 * Gets the sorted doc values for the field
+		 *
+		 * <p>
+		 * Empty if the field doesn't have sorted doc values in this leaf (such
+		 * as a leaf with only block documents, where the path is indexed
+		 * without doc values)
+		 * </p>
+		 */
+		private static SortedDocValues getSorted(final LeafReader reader, final String field) throws IOException {
+			FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+
+			if (fieldInfo == null || fieldInfo.getDocValuesType() != DocValuesType.SORTED) {
+				return DocValues.emptySorted();
+			}
+
+			return DocValues.getSorted(reader, field);
+		}
+
+		private static NumericDocValues getNumeric(final LeafReader reader, final String field) throws IOException {
+			FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+
+			if (fieldInfo == null || fieldInfo.getDocValuesType() != DocValuesType.NUMERIC) {
+				return DocValues.emptyNumeric();
+			}
+
+			return DocValues.getNumeric(reader, field);
+		}
+
+		@Nullable
+		HitMetadata read(final int doc, final int leafDoc) throws IOException {
+			// Every line document indexed with doc values has the path and
+			// line
+			if (!this.path.advanceExact(leafDoc) || !this.line.advanceExact(leafDoc)) {
+				return null;
+			}
+
+			return new HitMetadata(doc, getValue(this.path, leafDoc), getValue(this.file, leafDoc),
+					getValue(this.element, leafDoc), String.valueOf(this.line.longValue()),
+					getValue(this.type, leafDoc), getValue(this.extension, leafDoc),
+					getValue(this.project, leafDoc));
+		}
+
+		private static String getValue(final SortedDocValues docValues, final int leafDoc) throws IOException {
+			if (docValues.advanceExact(leafDoc)) {
+				@SuppressWarnings("null")
+				String value = docValues.binaryValue().utf8ToString();
+				return value;
+			}
+
+			return "";
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * IndexSearcher which stays acquired while the search results using it are
+ * still needed (such as to load the content for a result when it's shown)
+ *
+ * <p>
+ * The searcher is reference counted and is released back to the
+ * SearcherManager once every reference is released.
+ * </p>
+ *
+ * <p>
+ * A searcher can also search multiple indexes (such as to search all
+ * searchers), in which case each index's searcher is released back to its
+ * SearcherManager.
+ * </p>
+ */
+@NonNullByDefault
+public class PinnedSearcher {
+	private final List<SearcherManager> searcherManagers;
+	private final List<IndexSearcher> acquiredSearchers;
+	private final IndexSearcher searcher;
+
+	@Nullable
+	private final MultiReader multiReader;
+
+	// Name of the searcher for each index and the first docID in the index
+	// (empty if searching a single index)
+	private final List<String> searcherNames;
+	private final int[] docStarts;
+
+	private final AtomicInteger refCount = new AtomicInteger(1);
+
+	private PinnedSearcher(final SearcherManager searcherManager, final IndexSearcher searcher) {
+		this.searcherManagers = Collections.singletonList(searcherManager);
+		this.acquiredSearchers = Collections.singletonList(searcher);
+		this.searcher = searcher;
+		this.multiReader = null;
+		this.searcherNames = Collections.emptyList();
+		this.docStarts = new int[0];
+	}
+
+	private PinnedSearcher(final List<SearcherManager> searcherManagers, final List<IndexSearcher> acquiredSearchers,
+			final MultiReader multiReader, final List<String> searcherNames) {
+		this.searcherManagers = searcherManagers;
+		this.acquiredSearchers = acquiredSearchers;
+		this.multiReader = multiReader;
+		this.searcherNames = searcherNames;
+
+		this.docStarts = new int[acquiredSearchers.size()];
+		int docStart = 0;
+
+		for (int i = 0; i < acquiredSearchers.size(); i++) {
+			this.docStarts[i] = docStart;
+			docStart += acquiredSearchers.get(i).getIndexReader().maxDoc();
+		}
+
+		// Search the indexes in parallel
+		this.searcher = new ConcurrentSearcherFactory().newSearcher(multiReader, null);
+	}
+
+	/**
+	 * Acquires a searcher from the SearcherManager
+	 *
+	 * <p>
+	 * The returned searcher has one reference, which must be released
+	 * </p>
+	 *
+	 * @param searcherManager
+	 *            the SearcherManager
+	 * @return the pinned searcher
+	 * @throws IOException
+	 */
+	public static PinnedSearcher acquire(final SearcherManager searcherManager) throws IOException {
+		return new PinnedSearcher(searcherManager, searcherManager.acquire());
+	}
+
+	/**
+	 * Acquires a searcher from each SearcherManager and searches them as a
+	 * single index
+	 *
+	 * <p>
+	 * The returned searcher has one reference, which must be released
+	 * </p>
+	 *
+	 * @param searcherManagers
+	 *            the SearcherManagers
+	 * @param searcherNames
+	 *            the name of the searcher for each SearcherManager (used to
+	 *            label the hits)
+	 * @return the pinned searcher
+	 * @throws IOException
+	 */
+	public static PinnedSearcher acquire(final List<SearcherManager> searcherManagers,
+			final List<String> searcherNames) throws IOException {
+		List<IndexSearcher> acquiredSearchers = new ArrayList<>();
+
+		try {
+			for (SearcherManager searcherManager : searcherManagers) {
+				acquiredSearchers.add(searcherManager.acquire());
+			}
+
+			IndexReader[] readers = acquiredSearchers.stream()
+					.map(IndexSearcher::getIndexReader)
+					.toArray(IndexReader[]::new);
+
+			// Don't close the readers when the MultiReader is closed
+			// (they're released back to their SearcherManager)
+			MultiReader multiReader = new MultiReader(readers, false);
+
+			return new PinnedSearcher(new ArrayList<>(searcherManagers), acquiredSearchers, multiReader,
+					new ArrayList<>(searcherNames));
+		} catch (IOException | RuntimeException e) {
+			for (int i = 0; i < acquiredSearchers.size(); i++) {
+				searcherManagers.get(i).release(acquiredSearchers.get(i));
+			}
+
+			throw e;
+		}
+	}
+
+	public IndexSearcher getSearcher() {
+		return this.searcher;
+	}
+
+	/**
+	 * Adds a reference to the searcher
+	 *
+	 * @return <code>true</code> if added the reference; <code>false</code> if
+	 *         the searcher was already released
+	 */
+	public boolean incRef() {
+		while (true) {
+			int count = this.refCount.get();
+
+			if (count <= 0) {
+				return false;
+			}
+
+			if (this.refCount.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases a reference to the searcher
+	 *
+	 * <p>
+	 * Once every reference is released, the searcher is released back to the
+	 * SearcherManager
+	 * </p>
+	 */
+	public void release() {
+		int count = this.refCount.decrementAndGet();
+
+		if (count == 0) {
+			MultiReader multiReader = this.multiReader;
+
+			if (multiReader != null) {
+				try {
+					multiReader.close();
+				} catch (IOException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				}
+			}
+
+			for (int i = 0; i < this.acquiredSearchers.size(); i++) {
+				try {
+					this.searcherManagers.get(i).release(this.acquiredSearchers.get(i));
+				} catch (IOException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				}
+			}
+		} else if (count < 0) {
+			// Already released
+			this.refCount.incrementAndGet();
+		}
+	}
+
+	public boolean isReleased() {
+		return this.refCount.get() <= 0;
+	}
+
+	/**
+	 * Gets the name of the searcher whose index has the document
+	 *
+	 * @param docID
+	 *            the document id
+	 * @return the searcher name; empty if searching a single index
+	 */
+	public String getSearcherName(final int docID) {
+		if (this.searcherNames.isEmpty()) {
+			return "";
+		}
+
+		int index = Arrays.binarySearch(this.docStarts, docID);
+
+		if (index < 0) {
+			// Insertion point is after the index with the document
+			index = -index - 2;
+		} else {
+			// Skip empty indexes (which have the same first docID as the next
+			// index)
+			while (index + 1 < this.docStarts.length && this.docStarts[index + 1] == docID) {
+				index++;
+			}
+		}
+
+		@SuppressWarnings("null")
+		String searcherName = this.searcherNames.get(index);
+		return searcherName;
+	}
+
+	/**
+	 * Loads the stored fields for the document
+	 *
+	 * @param docID
+	 *            the document id
+	 * @param fieldsToLoad
+	 *            the fields to load
+	 * @return the document; <code>null</code> if the searcher was already
+	 *         released
+	 * @throws IOException
+	 */
+	@Nullable
+	public Document document(final int docID, final Set<String> fieldsToLoad) throws IOException {
+		if (!this.incRef()) {
+			return null;
+		}
+
+		try {
+			return this.searcher.doc(docID, fieldsToLoad);
+		} finally {
+			this.release();
+		}
+	}
+}
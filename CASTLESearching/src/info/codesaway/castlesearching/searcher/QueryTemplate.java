@@ -0,0 +1,284 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.apache.lucene.queryparser.flexible.standard.config.PointsConfig;
+import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler.Operator;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Query;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import info.codesaway.castlesearching.CASTLESearch;
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.LuceneStep;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+
+/**
+ * Analyzer, query parsers, and constant queries used to search
+ *
+ * <p>
+ * Creating the query analyzer reads the synonym files and builds the synonym
+ * maps, so it's cached instead of created for each search. The cache is
+ * cleared when the synonym files or settings change.
+ * </p>
+ */
+@NonNullByDefault
+public final class QueryTemplate {
+	public static final String[] CONTENT_AND_COMMENT_FIELDS = { "content", "comment" };
+
+	@Nullable
+	private static volatile QueryTemplate INSTANCE;
+
+	private final Analyzer analyzer;
+	private final Analyzer indexAnalyzer;
+
+	private final BoostQuery commentedOutQuery;
+	private final BoostQuery lowPriorityQuery;
+
+	// Query parsers aren't thread-safe, so each thread has its own
+	private final ThreadLocal<StandardQueryParser> standardQueryParsers;
+	private final ThreadLocal<MultiFieldQueryParser> multiFieldQueryParsers;
+
+	private QueryTemplate(final Analyzer analyzer, final Analyzer indexAnalyzer) throws QueryNodeException {
+		this.analyzer = analyzer;
+		this.indexAnalyzer = indexAnalyzer;
+		this.standardQueryParsers = ThreadLocal.withInitial(() -> createStandardQueryParser(analyzer));
+		this.multiFieldQueryParsers = ThreadLocal
+				.withInitial(() -> new MultiFieldQueryParser(CONTENT_AND_COMMENT_FIELDS, analyzer));
+
+		StandardQueryParser standardQueryParser = createStandardQueryParser(analyzer);
+
+		// Test queries / searches
+		// * var:test file:compare - get line testingFile assignment in
+		// CompareDirectories
+		// * FABM:MAM get FABMMbrAcctMaint
+		// * pending retirement -DBPendingRetirement (doesn't work when
+		// parse query using camel case)
+		// TODO: likely should give option, since most of the time want
+		// enabled, but sometimes don't
+
+		// Set commented out lines as lower priority
+		// (whereas Javadoc keeps the same priority)
+		String commentedOutQueryText = "*:*" + " AND NOT comment";
+		Query commentedOutQuery = standardQueryParser.parse(commentedOutQueryText, "type");
+		this.commentedOutQuery = new BoostQuery(commentedOutQuery, 0.5f);
+
+		// Mark as lower priority for search
+		// (acts as a "not in")
+		// https://stackoverflow.com/a/12109781
+		String lowPriorityQueryText = "*:*" + " AND NOT import" + " AND NOT empty" + " AND NOT \"close brace\""
+				+ " AND NOT symbols" + " AND NOT \"else line\"" + " AND NOT \"return null\""
+				+ " AND NOT \"return void\"";
+		Query lowPriorityQuery = standardQueryParser.parse(lowPriorityQueryText, "type");
+		this.lowPriorityQuery = new BoostQuery(lowPriorityQuery, 0.75f);
+	}
+
+	/**
+	 * Gets the cached query template, creating it if needed
+	 *
+	 * @return the query template
+	 * @throws IOException
+	 *             if cannot read the synonym files
+	 * @throws QueryNodeException
+	 */
+	public static QueryTemplate get() throws IOException, QueryNodeException {
+		QueryTemplate template = INSTANCE;
+
+		if (template != null) {
+			return template;
+		}
+
+		synchronized (QueryTemplate.class) {
+			template = INSTANCE;
+
+			if (template == null) {
+				// TODO: Handle abbreviation versus normal (such as esht for
+				// escheat)
+				// Reference: https://www.baeldung.com/lucene-analyzers
+				template = new QueryTemplate(CASTLESearching.createAnalyzer(LuceneStep.QUERY),
+						CASTLESearching.createAnalyzer(LuceneStep.INDEX));
+				INSTANCE = template;
+			}
+
+			return template;
+		}
+	}
+
+	/**
+	 * Creates a query template which isn't cached (such as when running
+	 * headless, where the synonym files aren't in the plugin's state location)
+	 *
+	 * @param analyzer
+	 *            the query analyzer
+	 * @param indexAnalyzer
+	 *            the index analyzer
+	 * @return the query template
+	 * @throws QueryNodeException
+	 */
+	public static QueryTemplate create(final Analyzer analyzer, final Analyzer indexAnalyzer)
+			throws QueryNodeException {
+		return new QueryTemplate(analyzer, indexAnalyzer);
+	}
+
+	/**
+	 * Clears the cached query template, so the next search creates it again
+	 *
+	 * <p>
+	 * Call when the synonym files or settings change
+	 * </p>
+	 */
+	public static void invalidate() {
+		// Don't close the analyzer, since a search may still be using it
+		// (it's garbage collected once no longer used)
+		INSTANCE = null;
+
+		// Cached searches were parsed using the old analyzer
+		ResultCache.clear();
+	}
+
+	private static StandardQueryParser createStandardQueryParser(final Analyzer analyzer) {
+		StandardQueryParser standardQueryParser = new StandardQueryParser(analyzer);
+
+		// TODO: how to support this using Classic parser, which doesn't support this
+
+		// Allow searching for numeric range on "line" field
+		// https://github.com/apache/lucene-solr/blob/master/lucene/queryparser/src/test/org/apache/lucene/queryparser/flexible/standard/TestPointQueryParser.java
+		// (each parser has its own map, since NumberFormat isn't thread-safe)
+		Map<String, PointsConfig> pointsConfigMap = new HashMap<>();
+		pointsConfigMap.put("line", new PointsConfig(NumberFormat.getIntegerInstance(Locale.ROOT), Integer.class));
+
+		standardQueryParser.setPointsConfigMap(pointsConfigMap);
+
+		return standardQueryParser;
+	}
+
+	public Analyzer getAnalyzer() {
+		return this.analyzer;
+	}
+
+	/**
+	 * Gets the analyzer used to index the documents (used to check which
+	 * lines of a block document match)
+	 */
+	public Analyzer getIndexAnalyzer() {
+		return this.indexAnalyzer;
+	}
+
+	/**
+	 * Gets the standard query parser for the current thread
+	 *
+	 * @param defaultOperator
+	 *            the default operator
+	 * @return the query parser
+	 */
+	@SuppressWarnings("null")
+	public StandardQueryParser getStandardQueryParser(final Operator defaultOperator) {
+		StandardQueryParser standardQueryParser = this.standardQueryParsers.get();
+		standardQueryParser.setDefaultOperator(defaultOperator);
+		return standardQueryParser;
+	}
+
+	/**
+	 * Gets the query parser which searches the content and comment fields,
+	 * for the current thread
+	 *
+	 * @param defaultOperator
+	 *            the default operator
+	 * @return the query parser
+	 */
+	@SuppressWarnings("null")
+	public MultiFieldQueryParser getMultiFieldQueryParser(final QueryParser.Operator defaultOperator) {
+		MultiFieldQueryParser multiFieldQueryParser = this.multiFieldQueryParsers.get();
+		multiFieldQueryParser.setDefaultOperator(defaultOperator);
+		return multiFieldQueryParser;
+	}
+
+	/**
+	 * Parses the search text
+	 *
+	 * @param search
+	 *            the search
+	 * @return the parsed query
+	 * @throws QueryNodeException
+	 * @throws ParseException
+	 */
+	public Query parseQuery(final CASTLESearch search) throws QueryNodeException, ParseException {
+		// StandardQueryTreeBuilder builder = new
+		// StandardQueryTreeBuilder();
+		// builder.set
+
+		long startTime = System.nanoTime();
+
+		Query query;
+		if (search.shouldIncludeComments()) {
+			MultiFieldQueryParser multiFieldQueryParser = this
+					.getMultiFieldQueryParser(search.getClassicDefaultOperator());
+
+			query = multiFieldQueryParser.parse(search.getText());
+		} else {
+			StandardQueryParser standardQueryParser = this.getStandardQueryParser(search.getDefaultOperator());
+
+			query = standardQueryParser.parse(search.getText(), "content");
+		}
+
+		CASTLEMetrics.SEARCH_PARSE.recordSince(startTime);
+
+		@SuppressWarnings("null")
+		Query result = query;
+		return result;
+	}
+
+	/**
+	 * Creates the query to search, which lowers the priority of lines such as
+	 * commented out lines
+	 *
+	 * @param search
+	 *            the search
+	 * @param query
+	 *            the parsed search text
+	 * @return the query to search
+	 */
+	public BooleanQuery createBooleanQuery(final CASTLESearch search, final Query query) {
+		// Commented out lines and lines such as imports have a lower priority
+		BooleanQuery.Builder builder = new BooleanQuery.Builder()
+				.add(new BoostQuery(query, 1f), BooleanClause.Occur.MUST)
+				.add(this.getCommentedOutQuery(), BooleanClause.Occur.SHOULD)
+				.add(this.getLowPriorityQuery(), BooleanClause.Occur.SHOULD);
+
+		if (search.getExtraQuery().isPresent()) {
+			builder.add(search.getExtraQuery().get(), BooleanClause.Occur.SHOULD);
+		}
+
+		@SuppressWarnings("null")
+		BooleanQuery result = builder.build();
+		return result;
+	}
+
+	/**
+	 * Query which lowers the priority of commented out lines
+	 */
+	public BoostQuery getCommentedOutQuery() {
+		return this.commentedOutQuery;
+	}
+
+	/**
+	 * Query which lowers the priority of lines such as imports and close
+	 * braces
+	 */
+	public BoostQuery getLowPriorityQuery() {
+		return this.lowPriorityQuery;
+	}
+}
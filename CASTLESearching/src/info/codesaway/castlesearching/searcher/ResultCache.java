@@ -0,0 +1,275 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager.RefreshListener;
+import org.apache.lucene.search.TopDocs;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import info.codesaway.castlesearching.CASTLESearch;
+
+/**
+ * Cache of recent searches, keyed by the search and the version of the index
+ * reader searched
+ *
+ * <p>
+ * Repeating a search (such as pressing ENTER again or switching back to a tab
+ * when using incremental search) reuses the parsed query and first page of
+ * hits, as long as the index didn't change. The entries for an index are
+ * removed when its searcher is refreshed.
+ * </p>
+ */
+@NonNullByDefault
+public final class ResultCache {
+	private static final int MAX_ENTRIES = 32;
+
+	// Least recently used entries are removed first
+	private static final Map<Key, CachedSearch> CACHE = new LinkedHashMap<Key, CachedSearch>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, CachedSearch> eldest) {
+			return this.size() > MAX_ENTRIES;
+		}
+	};
+
+	private ResultCache() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets the cached search
+	 *
+	 * @param search
+	 *            the search
+	 * @param searcher
+	 *            the searcher which will be searched
+	 * @return the cached search; <code>null</code> if the search isn't cached
+	 *         for the searcher's index reader
+	 */
+	@Nullable
+	public static CachedSearch get(final CASTLESearch search, final IndexSearcher searcher) {
+		Key key = createKey(search, searcher);
+
+		if (key == null) {
+			return null;
+		}
+
+		synchronized (CACHE) {
+			return CACHE.get(key);
+		}
+	}
+
+	/**
+	 * Finds a cached search whose hits can be refined for the search
+	 *
+	 * <p>
+	 * The cached search must be for the same index reader, have the same
+	 * options, and have text which the search's text extends (such as while
+	 * typing). Its hits must include every matching document and its query
+	 * must match a superset of the query's documents.
+	 * </p>
+	 *
+	 * @param search
+	 *            the search
+	 * @param searcher
+	 *            the searcher which will be searched
+	 * @param matchQuery
+	 *            the parsed search text
+	 * @return the cached search (the most recently used, if multiple);
+	 *         <code>null</code> if there isn't one
+	 * @see ResultRefiner
+	 */
+	@Nullable
+	public static CachedSearch findRefinable(final CASTLESearch search, final IndexSearcher searcher,
+			final Query matchQuery) {
+		Key key = createKey(search, searcher);
+
+		if (key == null) {
+			return null;
+		}
+
+		List<Map.Entry<Key, CachedSearch>> entries;
+
+		synchronized (CACHE) {
+			entries = new ArrayList<>(CACHE.entrySet());
+		}
+
+		// Check the most recently used first
+		for (int i = entries.size() - 1; i >= 0; i--) {
+			Key cachedKey = entries.get(i).getKey();
+			CachedSearch cachedSearch = entries.get(i).getValue();
+
+			if (cachedKey.readerVersion == key.readerVersion && isRefinable(cachedKey.search, search)
+					&& ResultRefiner.isExhaustive(cachedSearch.getFirstPage())
+					&& ResultRefiner.isSubset(cachedSearch.getMatchQuery(), matchQuery)) {
+				return cachedSearch;
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean isRefinable(final CASTLESearch previousSearch, final CASTLESearch search) {
+		return search.getText().startsWith(previousSearch.getText())
+				&& Objects.equals(previousSearch.getSearcher(), search.getSearcher())
+				&& Objects.equals(previousSearch.getExtraQuery(), search.getExtraQuery())
+				&& previousSearch.getDefaultOperator() == search.getDefaultOperator()
+				&& previousSearch.shouldIncludeComments() == search.shouldIncludeComments();
+	}
+
+	/**
+	 * Caches the search
+	 *
+	 * @param search
+	 *            the search
+	 * @param searcher
+	 *            the searcher which was searched
+	 * @param cachedSearch
+	 *            the queries and first page of hits
+	 */
+	public static void put(final CASTLESearch search, final IndexSearcher searcher, final CachedSearch cachedSearch) {
+		Key key = createKey(search, searcher);
+
+		if (key == null) {
+			return;
+		}
+
+		synchronized (CACHE) {
+			CACHE.put(key, cachedSearch);
+		}
+	}
+
+	/**
+	 * Removes the cached searches of the index
+	 *
+	 * @param indexPath
+	 *            the index path
+	 */
+	public static void remove(final Path indexPath) {
+		synchronized (CACHE) {
+			CACHE.keySet().removeIf(k -> indexPath.equals(k.search.getSearcher().getIndexPath()));
+		}
+	}
+
+	/**
+	 * Removes every cached search (such as when the query analyzer changes)
+	 */
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	/**
+	 * Creates a listener which removes the cached searches of the index when
+	 * its searcher is refreshed
+	 *
+	 * @param indexPath
+	 *            the index path
+	 * @return the listener to add to the index's SearcherManager
+	 */
+	public static RefreshListener createRefreshListener(final Path indexPath) {
+		return new RefreshListener() {
+			@Override
+			public void beforeRefresh() {
+			}
+
+			@Override
+			public void afterRefresh(final boolean didRefresh) {
+				if (didRefresh) {
+					remove(indexPath);
+				}
+			}
+		};
+	}
+
+	@Nullable
+	private static Key createKey(final CASTLESearch search, final IndexSearcher searcher) {
+		IndexReader reader = searcher.getIndexReader();
+
+		if (!(reader instanceof DirectoryReader)) {
+			// Only directory readers have a version
+			return null;
+		}
+
+		return new Key(search, ((DirectoryReader) reader).getVersion());
+	}
+
+	/**
+	 * Queries and first page of hits for a search
+	 */
+	public static final class CachedSearch {
+		private final Query query;
+		private final Query matchQuery;
+		private final TopDocs firstPage;
+
+		/**
+		 *
+		 * @param query
+		 *            the query searched
+		 * @param matchQuery
+		 *            the query used to determine the matching lines for block
+		 *            documents
+		 * @param firstPage
+		 *            the first page of hits
+		 */
+		public CachedSearch(final Query query, final Query matchQuery, final TopDocs firstPage) {
+			this.query = query;
+			this.matchQuery = matchQuery;
+			this.firstPage = firstPage;
+		}
+
+		public Query getQuery() {
+			return this.query;
+		}
+
+		public Query getMatchQuery() {
+			return this.matchQuery;
+		}
+
+		public TopDocs getFirstPage() {
+			return this.firstPage;
+		}
+	}
+
+	private static final class Key {
+		private final CASTLESearch search;
+		private final long readerVersion;
+
+		Key(final CASTLESearch search, final long readerVersion) {
+			this.search = search;
+			this.readerVersion = readerVersion;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.search, this.readerVersion);
+		}
+
+		@Override
+		public boolean equals(final @Nullable Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (this.getClass() != obj.getClass()) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.readerVersion == other.readerVersion && Objects.equals(this.search, other.search);
+		}
+	}
+}
@@ -0,0 +1,752 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.TotalHits.Relation;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import info.codesaway.castlesearching.CASTLESearchResultEntry;
+import info.codesaway.castlesearching.indexer.BlockDocumentBuilder;
+import info.codesaway.castlesearching.indexer.CASTLEIndexer;
+import info.codesaway.castlesearching.metrics.CASTLEMetrics;
+
+/**
+ * Loads the results for a search one page at a time
+ *
+ * <p>
+ * The first page is loaded when searching. Later pages are loaded using
+ * <code>searchAfter</code>, when the results are shown (such as when scrolling
+ * through the results). The pages are loaded from the same searcher, so the
+ * results stay consistent even if more files are indexed.
+ * </p>
+ *
+ * <p>
+ * Loading a page searches the index, so load pages in the background (such as
+ * using {@link info.codesaway.castlesearching.jobs.CASTLELoadResultsJob}). The
+ * results which are already loaded can be read while a page is loading.
+ * </p>
+ */
+@NonNullByDefault
+public class ResultPager {
+	/**
+	 * Number of hits to load in each page
+	 */
+	public static final int PAGE_SIZE = 500;
+
+	/**
+	 * Maximum number of block document lines to match each time hits are
+	 * loaded
+	 *
+	 * <p>
+	 * Matching the lines of a block document is much slower than loading a
+	 * line document, so the hits in a page after this many lines are loaded
+	 * when they're shown (without searching again).
+	 * </p>
+	 */
+	private static final int MAX_BLOCK_LINES_PER_LOAD = 1_000;
+
+	private static final String[] CONTENT_AND_COMMENT_FIELDS = { "content", "comment" };
+
+	private static final Set<String> CONTENT_FIELDS_TO_LOAD = new HashSet<>(
+			Arrays.asList(CONTENT_AND_COMMENT_FIELDS));
+
+	private final PinnedSearcher pinnedSearcher;
+	private final Query query;
+
+	/**
+	 * Analyzer used to index the documents (used to determine the matching
+	 * lines for block documents)
+	 */
+	private final Analyzer indexAnalyzer;
+
+	private final long totalHits;
+
+	// Note: the hit counts and results are guarded by this, while the state
+	// used to load hits is guarded by the load lock
+	// (so the loaded results can be read while loading more hits)
+	private final Object loadLock = new Object();
+
+	/**
+	 * Number of hits which can be loaded (the total hits, up to the hit limit)
+	 */
+	private int hitCount;
+
+	private int loadedHitCount;
+
+	private final List<CASTLESearchResultEntry> results = new ArrayList<>();
+
+	@Nullable
+	private ScoreDoc lastDocument;
+
+	/**
+	 * Hits from the last page searched which aren't loaded yet
+	 */
+	private ScoreDoc[] pendingHits = new ScoreDoc[0];
+
+	// Index of the next pending hit to load
+	private int pendingHitIndex;
+
+	// Result index of the last result loaded
+	private int resultIndex;
+
+	/**
+	 * Number of milliseconds loading a page may take (0 for no limit)
+	 */
+	private final long timeoutMillis;
+
+	/**
+	 * Whether the first page only has the hits found before the search timed
+	 * out
+	 */
+	private final boolean isPartial;
+
+	/**
+	 * Whether the hits are block documents (from the block index layout)
+	 */
+	private volatile boolean hasBlockDocuments;
+
+	private ResultPager(final PinnedSearcher pinnedSearcher, final Query query, final Analyzer indexAnalyzer,
+			final TopDocs firstPage, final int hitLimit, final long timeoutMillis) {
+		this.pinnedSearcher = pinnedSearcher;
+		this.query = query;
+		this.indexAnalyzer = indexAnalyzer;
+		this.totalHits = firstPage.totalHits.value;
+		this.timeoutMillis = timeoutMillis;
+		this.isPartial = firstPage.totalHits.relation != Relation.EQUAL_TO;
+
+		if (this.isPartial) {
+			// Later pages would skip hits which the search didn't find in
+			// time, so only show the first page
+			this.hitCount = Math.min(firstPage.scoreDocs.length, hitLimit);
+		} else {
+			this.hitCount = (int) Math.min(this.totalHits, hitLimit);
+		}
+	}
+
+	/**
+	 * Searches for the query and loads the first page of results
+	 *
+	 * @param pinnedSearcher
+	 *            the searcher to search (the pager releases the searcher when
+	 *            it's released)
+	 * @param query
+	 *            the query
+	 * @param indexAnalyzer
+	 *            the analyzer used to index the documents (used to determine
+	 *            the matching lines for block documents)
+	 * @param hitLimit
+	 *            the maximum number of hits to load
+	 * @param timeoutMillis
+	 *            the number of milliseconds loading each page may take (0 for
+	 *            no limit)
+	 * @return the pager
+	 * @throws IOException
+	 */
+	public static ResultPager search(final PinnedSearcher pinnedSearcher, final Query query,
+			final Analyzer indexAnalyzer, final int hitLimit, final long timeoutMillis) throws IOException {
+		TopDocs firstPage = searchFirstPage(pinnedSearcher.getSearcher(), query, hitLimit,
+				SearchBudget.ofMillis(timeoutMillis));
+
+		return create(pinnedSearcher, query, indexAnalyzer, hitLimit, firstPage, timeoutMillis);
+	}
+
+	/**
+	 * Searches for the first page of hits
+	 *
+	 * <p>
+	 * The total hits are always counted exactly (even though only the first
+	 * page of hits is returned).
+	 * </p>
+	 *
+	 * @param searcher
+	 *            the searcher to search
+	 * @param query
+	 *            the query
+	 * @param hitLimit
+	 *            the maximum number of hits to load
+	 * @param budget
+	 *            stops the search once it's canceled or runs out of time
+	 * @return the first page of hits (if the budget was exceeded, the hits
+	 *         found so far and a total hits relation of
+	 *         <code>GREATER_THAN_OR_EQUAL_TO</code>)
+	 * @throws IOException
+	 */
+	public static TopDocs searchFirstPage(final IndexSearcher searcher, final Query query, final int hitLimit,
+			final SearchBudget budget) throws IOException {
+		int numHits = getFirstPageSize(hitLimit);
+		TopDocs firstPage = ConcurrentSearcherFactory.search(searcher, query, numHits, null, Integer.MAX_VALUE,
+				budget);
+
+		if (budget.isExceeded()) {
+			// Partial results
+			// (the total hits is only the hits counted so far)
+			firstPage = new TopDocs(new TotalHits(firstPage.totalHits.value, Relation.GREATER_THAN_OR_EQUAL_TO),
+					firstPage.scoreDocs);
+		}
+
+		@SuppressWarnings("null")
+		TopDocs result = firstPage;
+		return result;
+	}
+
+	/**
+	 * Gets the number of hits in the first page
+	 *
+	 * @param hitLimit
+	 *            the maximum number of hits to load
+	 * @return the number of hits in the first page
+	 */
+	public static int getFirstPageSize(final int hitLimit) {
+		return Math.max(1, Math.min(PAGE_SIZE, hitLimit));
+	}
+
+	/**
+	 * Creates the pager using the first page of hits
+	 *
+	 * @param pinnedSearcher
+	 *            the searcher which returned the first page (the pager
+	 *            releases the searcher when it's released)
+	 * @param query
+	 *            the query
+	 * @param indexAnalyzer
+	 *            the analyzer used to index the documents (used to determine
+	 *            the matching lines for block documents)
+	 * @param hitLimit
+	 *            the maximum number of hits to load
+	 * @param firstPage
+	 *            the first page of hits (from
+	 *            {@link #searchFirstPage(IndexSearcher, Query, int, SearchBudget)})
+	 * @param timeoutMillis
+	 *            the number of milliseconds loading each later page may take
+	 *            (0 for no limit)
+	 * @return the pager
+	 * @throws IOException
+	 */
+	public static ResultPager create(final PinnedSearcher pinnedSearcher, final Query query,
+			final Analyzer indexAnalyzer, final int hitLimit, final TopDocs firstPage, final long timeoutMillis)
+			throws IOException {
+		ResultPager pager = new ResultPager(pinnedSearcher, query, indexAnalyzer, firstPage, hitLimit,
+				timeoutMillis);
+		pager.addHits(pinnedSearcher.getSearcher(), firstPage.scoreDocs);
+
+		return pager;
+	}
+
+	/**
+	 * Gets the total number of hits for the query (including any hits past the
+	 * hit limit)
+	 *
+	 * <p>
+	 * For block documents, this is the number of matching blocks (see
+	 * {@link #hasBlockDocuments()})
+	 * </p>
+	 */
+	public long getTotalHits() {
+		return this.totalHits;
+	}
+
+	/**
+	 * Gets the number of hits which can be loaded (the total hits, up to the
+	 * hit limit)
+	 */
+	public synchronized int getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Indicates whether the hits are block documents (from the block index
+	 * layout), so the hit counts are the number of matching blocks rather than
+	 * the number of matching lines
+	 */
+	public boolean hasBlockDocuments() {
+		return this.hasBlockDocuments;
+	}
+
+	/**
+	 * Indicates whether the search timed out, so the results only include the
+	 * hits found so far (and the total hits is a lower bound)
+	 */
+	public boolean isPartial() {
+		return this.isPartial;
+	}
+
+	/**
+	 * Gets the number of results
+	 *
+	 * <p>
+	 * Hits which aren't loaded yet count as one result each (a block document
+	 * may have any number of results once it's loaded, including none)
+	 * </p>
+	 */
+	public synchronized int getResultCount() {
+		return this.results.size() + (this.hitCount - this.loadedHitCount);
+	}
+
+	/**
+	 * Gets the result at the specified index, loading more pages if needed
+	 *
+	 * <p>
+	 * Loading a page searches the index, so don't call from the UI thread
+	 * (use {@link #getLoadedResult(int)} instead)
+	 * </p>
+	 *
+	 * @param index
+	 *            the index (starts with 0)
+	 * @return the result; <code>null</code> if there is no result at the index
+	 */
+	@Nullable
+	public CASTLESearchResultEntry getResult(final int index) {
+		synchronized (this.loadLock) {
+			int hitsToLoad;
+
+			while ((hitsToLoad = this.getHitsToLoad(index)) > 0) {
+				// Load the rest of the last page searched, before searching
+				// for the next page
+				boolean isLoaded = this.pendingHitIndex < this.pendingHits.length ? this.loadPendingHits()
+						: this.loadHits(hitsToLoad);
+
+				if (!isLoaded) {
+					break;
+				}
+			}
+		}
+
+		return this.getLoadedResult(index);
+	}
+
+	/**
+	 * Gets the result at the specified index, if it's already loaded
+	 *
+	 * @param index
+	 *            the index (starts with 0)
+	 * @return the result; <code>null</code> if the result isn't loaded yet
+	 *         (or there is no result at the index)
+	 */
+	@Nullable
+	public synchronized CASTLESearchResultEntry getLoadedResult(final int index) {
+		if (index < 0 || index >= this.results.size()) {
+			return null;
+		}
+
+		return this.results.get(index);
+	}
+
+	/**
+	 * Gets the number of hits to load to reach the result at the specified
+	 * index
+	 *
+	 * @return the number of hits; 0 if the result is already loaded or there
+	 *         are no more hits to load
+	 */
+	private synchronized int getHitsToLoad(final int index) {
+		if (index < this.results.size() || this.loadedHitCount >= this.hitCount) {
+			return 0;
+		}
+
+		// Load enough pages to reach the index
+		// (in a single search, such as if scrolled to the end)
+		int neededHits = index - this.results.size() + 1;
+		int pageHits = (neededHits + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+
+		return Math.min(pageHits, this.hitCount - this.loadedHitCount);
+	}
+
+	/**
+	 * Stops loading hits (such as if the searcher was released)
+	 */
+	private synchronized void stopLoading() {
+		this.hitCount = this.loadedHitCount;
+	}
+
+	/**
+	 * Removes the results at the specified indexes
+	 *
+	 * @param indexes
+	 *            the indexes (starts with 0)
+	 */
+	public synchronized void remove(final int[] indexes) {
+		int[] sortedIndexes = indexes.clone();
+		Arrays.sort(sortedIndexes);
+
+		// Remove in reverse order, so removing a result doesn't change the
+		// indexes of the results left to remove
+		for (int i = sortedIndexes.length - 1; i >= 0; i--) {
+			int index = sortedIndexes[i];
+
+			if (index >= 0 && index < this.results.size()) {
+				this.results.remove(index);
+			}
+		}
+	}
+
+	/**
+	 * Releases the searcher
+	 *
+	 * <p>
+	 * Pages which aren't loaded yet can no longer be loaded
+	 * </p>
+	 */
+	public void release() {
+		this.pinnedSearcher.release();
+	}
+
+	/**
+	 *
+	 * @param numHits
+	 *            the number of hits to load
+	 * @return <code>true</code> if loaded the hits; <code>false</code> if no
+	 *         more hits can be loaded
+	 */
+	private boolean loadHits(final int numHits) {
+		if (!this.pinnedSearcher.incRef()) {
+			// Searcher was already released, so cannot load any more hits
+			this.stopLoading();
+			return false;
+		}
+
+		try {
+			IndexSearcher searcher = this.pinnedSearcher.getSearcher();
+			SearchBudget budget = SearchBudget.ofMillis(this.timeoutMillis);
+
+			// Don't need to count the total hits (already counted by the first
+			// page)
+			TopDocs hits = ConcurrentSearcherFactory.search(searcher, this.query, numHits, this.lastDocument, numHits,
+					budget);
+
+			// If the page timed out, it may be missing hits, so stop loading
+			// pages
+			if (hits.scoreDocs.length == 0 || budget.isExceeded()) {
+				this.stopLoading();
+				return false;
+			}
+
+			this.addHits(searcher, hits.scoreDocs);
+			return true;
+		} catch (IOException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+			this.stopLoading();
+			return false;
+		} finally {
+			this.pinnedSearcher.release();
+		}
+	}
+
+	/**
+	 * Loads the hits which weren't loaded from the last page searched
+	 *
+	 * @return <code>true</code> if loaded the hits; <code>false</code> if no
+	 *         more hits can be loaded
+	 */
+	private boolean loadPendingHits() {
+		if (!this.pinnedSearcher.incRef()) {
+			// Searcher was already released, so cannot load any more hits
+			this.stopLoading();
+			return false;
+		}
+
+		try {
+			this.addHits(this.pinnedSearcher.getSearcher());
+			return true;
+		} catch (IOException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+			this.stopLoading();
+			return false;
+		} finally {
+			this.pinnedSearcher.release();
+		}
+	}
+
+	private void addHits(final IndexSearcher searcher, final ScoreDoc[] scoreDocs) throws IOException {
+		if (scoreDocs.length > 0) {
+			this.lastDocument = scoreDocs[scoreDocs.length - 1];
+		}
+
+		this.pendingHits = scoreDocs;
+		this.pendingHitIndex = 0;
+
+		this.addHits(searcher);
+	}
+
+	/**
+	 * Loads the pending hits (up to {@link #MAX_BLOCK_LINES_PER_LOAD} lines of
+	 * block documents)
+	 */
+	private void addHits(final IndexSearcher searcher) throws IOException {
+		long startTime = System.nanoTime();
+
+		try {
+			this.loadHits(searcher);
+		} finally {
+			CASTLEMetrics.SEARCH_FETCH.recordSince(startTime);
+		}
+	}
+
+	private void loadHits(final IndexSearcher searcher) throws IOException {
+		@SuppressWarnings("null")
+		ScoreDoc[] pendingHits = Arrays.copyOfRange(this.pendingHits, this.pendingHitIndex,
+				this.pendingHits.length);
+
+		// Read the fields shown in the results from doc values
+		// (the content is loaded when it's shown)
+		HitMetadata[] hitMetadata = HitMetadata.read(searcher, pendingHits);
+
+		// Documents without doc values (such as block documents or documents
+		// indexed by an older version)
+		Document[] storedDocuments = new Document[pendingHits.length];
+		List<Document> blockDocuments = new ArrayList<>();
+		int blockLineCount = 0;
+
+		// Number of pending hits to load
+		int loadCount = 0;
+
+		while (loadCount < pendingHits.length && blockLineCount < MAX_BLOCK_LINES_PER_LOAD) {
+			int i = loadCount++;
+
+			if (hitMetadata[i] == null) {
+				Document d = searcher.doc(pendingHits[i].doc);
+				storedDocuments[i] = d;
+
+				if (isBlockDocument(d)) {
+					blockDocuments.add(d);
+					blockLineCount += BlockDocumentBuilder.getLineCount(d);
+				}
+			}
+		}
+
+		@SuppressWarnings("null")
+		ScoreDoc[] scoreDocs = Arrays.copyOf(pendingHits, loadCount);
+
+		this.pendingHitIndex += loadCount;
+
+		if (!blockDocuments.isEmpty()) {
+			this.hasBlockDocuments = true;
+		}
+
+		// Check which lines of the block documents match
+		float[][] blockLineScores = blockDocuments.isEmpty() ? new float[0][]
+				: BlockLineMatcher.match(this.indexAnalyzer, this.query, blockDocuments);
+		int blockIndex = 0;
+
+		List<PageResult> pageResults = new ArrayList<>();
+
+		for (int i = 0; i < scoreDocs.length; i++) {
+			int doc = scoreDocs[i].doc;
+			HitMetadata metadata = hitMetadata[i];
+
+			if (metadata != null) {
+				PinnedSearcher pinnedSearcher = this.pinnedSearcher;
+
+				pageResults.add(new PageResult(doc, Float.NaN,
+						resultIndex -> new CASTLESearchResultEntry(resultIndex, metadata.getFile(),
+								metadata.getElement(), metadata.getLine(), () -> loadContent(pinnedSearcher, doc),
+								metadata.getType(), metadata.getPath(), metadata.getExtension())));
+				continue;
+			}
+
+			Document d = storedDocuments[i];
+
+			if (isBlockDocument(d)) {
+				// Block document (from the block index layout)
+				this.addBlockResults(pageResults, doc, d, blockLineScores[blockIndex++]);
+				continue;
+			}
+
+			String path = d.get(CASTLEIndexer.FULL_PATH_FIELD);
+			String file = d.get("file");
+			String element = d.get("element");
+			String line = d.get("line");
+			String type = d.get("type");
+			String content = getContent(d);
+			String extension = d.get("ext");
+
+			String nonNullElement = element != null ? element : "";
+			String nonNullType = type != null ? type : "";
+
+			pageResults.add(new PageResult(doc, Float.NaN, resultIndex -> new CASTLESearchResultEntry(resultIndex,
+					file, nonNullElement, line, content, nonNullType, path, extension)));
+		}
+
+		sortBlockResults(pageResults);
+
+		List<CASTLESearchResultEntry> entries = new ArrayList<>(pageResults.size());
+
+		for (PageResult pageResult : pageResults) {
+			this.resultIndex++;
+			entries.add(this.labelWithSearcher(pageResult.doc, pageResult.entryFactory.apply(this.resultIndex)));
+		}
+
+		synchronized (this) {
+			this.loadedHitCount += loadCount;
+			this.results.addAll(entries);
+		}
+	}
+
+	private static boolean isBlockDocument(final Document d) {
+		return d.getField(BlockDocumentBuilder.START_LINE_FIELD) != null;
+	}
+
+	/**
+	 * Sorts the results from block documents by the score of their line
+	 *
+	 * <p>
+	 * Block documents are ranked by the score of the block, so within the
+	 * page, the lines are ranked by their own score (such as so commented out
+	 * lines are shown after the other lines). Results from line documents keep
+	 * their position.
+	 * </p>
+	 */
+	private static void sortBlockResults(final List<PageResult> pageResults) {
+		List<Integer> blockResultIndexes = new ArrayList<>();
+		List<PageResult> blockResults = new ArrayList<>();
+
+		for (int i = 0; i < pageResults.size(); i++) {
+			PageResult pageResult = pageResults.get(i);
+
+			if (!Float.isNaN(pageResult.score)) {
+				blockResultIndexes.add(i);
+				blockResults.add(pageResult);
+			}
+		}
+
+		// Stable sort, so lines with the same score stay in order
+		blockResults.sort(Comparator.comparingDouble((final PageResult r) -> r.score).reversed());
+
+		for (int i = 0; i < blockResults.size(); i++) {
+			pageResults.set(blockResultIndexes.get(i), blockResults.get(i));
+		}
+	}
+
+	private CASTLESearchResultEntry labelWithSearcher(final int doc, final CASTLESearchResultEntry entry) {
+		// Label the result with its searcher (if searching multiple indexes)
+		entry.setSearcherName(this.pinnedSearcher.getSearcherName(doc));
+		return entry;
+	}
+
+	/**
+	 * Gets the content to show for the document (the content followed by any
+	 * comment)
+	 */
+	private static String getContent(final Document d) {
+		String content = d.get("content");
+
+		if (content != null) {
+			content = content.trim();
+		} else {
+			content = "";
+		}
+
+		String comment = d.get("comment");
+
+		if (comment != null && !comment.isEmpty()) {
+			// Show comment text after the content
+			// (so can focus attention on the content first)
+			content = content + " " + comment;
+		}
+
+		return content;
+	}
+
+	private static String loadContent(final PinnedSearcher pinnedSearcher, final int doc) {
+		long startTime = System.nanoTime();
+
+		try {
+			Document d = pinnedSearcher.document(doc, CONTENT_FIELDS_TO_LOAD);
+
+			// If the searcher was already released, the content cannot be
+			// loaded
+			return d != null ? getContent(d) : "";
+		} catch (IOException e) {
+			return "";
+		} finally {
+			CASTLEMetrics.SEARCH_FETCH.recordSince(startTime);
+		}
+	}
+
+	/**
+	 * Adds a result for each matching line in the block document
+	 *
+	 * <p>
+	 * The block document matched, but it may not have any matching lines
+	 * (such as when each search term is on a different line), so only lines
+	 * which match the query are added.
+	 * </p>
+	 *
+	 * @param lineScores
+	 *            the score of each line in the block (<code>NaN</code> if the
+	 *            line doesn't match)
+	 */
+	private void addBlockResults(final List<PageResult> pageResults, final int doc, final Document d,
+			final float[] lineScores) {
+		int startLine = BlockDocumentBuilder.getStartLine(d);
+		String path = d.get(CASTLEIndexer.FULL_PATH_FIELD);
+		String file = d.get("file");
+		String extension = d.get("ext");
+
+		String[] contents = d.getValues("content");
+		String[] comments = d.getValues("comment");
+		String[] types = BlockDocumentBuilder.getLineValues(d, "type", lineScores.length);
+		String[] elements = BlockDocumentBuilder.getLineValues(d, "element", lineScores.length);
+
+		for (int lineIndex = 0; lineIndex < lineScores.length; lineIndex++) {
+			if (Float.isNaN(lineScores[lineIndex])) {
+				continue;
+			}
+
+			String content = lineIndex < contents.length ? contents[lineIndex].trim() : "";
+			String comment = lineIndex < comments.length ? comments[lineIndex] : "";
+
+			if (!comment.isEmpty()) {
+				// Show comment text after the content
+				// (so can focus attention on the content first)
+				content = content + " " + comment;
+			}
+
+			String lineContent = content;
+			String element = elements[lineIndex];
+			String type = types[lineIndex];
+			String line = String.valueOf(startLine + lineIndex);
+
+			pageResults.add(new PageResult(doc, lineScores[lineIndex], resultIndex -> new CASTLESearchResultEntry(
+					resultIndex, file, element, line, lineContent, type, path, extension)));
+		}
+	}
+
+	/**
+	 * Result for a hit in the page, which is created once the results in the
+	 * page are in order
+	 */
+	private static final class PageResult {
+		private final int doc;
+
+		/**
+		 * Score of the line, for results from block documents (otherwise,
+		 * <code>NaN</code>)
+		 */
+		private final float score;
+
+		private final IntFunction<CASTLESearchResultEntry> entryFactory;
+
+		PageResult(final int doc, final float score, final IntFunction<CASTLESearchResultEntry> entryFactory) {
+			this.doc = doc;
+			this.score = score;
+			this.entryFactory = entryFactory;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.TotalHits.Relation;
+import org.apache.lucene.search.Weight;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Refines the hits of a previous search, instead of searching the entire index
+ *
+ * <p>
+ * Used while typing, when the new query can only match documents which the
+ * previous query matched (such as typing another word when the default
+ * operator is AND). The previous hits must include every matching document,
+ * so only a previous search whose total hits fit in its first page (at most
+ * {@link ResultPager#PAGE_SIZE}) is refined.
+ * </p>
+ *
+ * <p>
+ * Note: a query for a longer term (such as "foob" after "foo") isn't refined,
+ * since the index contains whole terms, so the documents matching "foob" don't
+ * necessarily match "foo".
+ * </p>
+ */
+@NonNullByDefault
+public final class ResultRefiner {
+	private ResultRefiner() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Indicates whether the hits include every matching document
+	 *
+	 * @param hits
+	 *            the hits
+	 * @return <code>true</code> if the total hits are exact and every hit was
+	 *         returned
+	 */
+	public static boolean isExhaustive(final TopDocs hits) {
+		return hits.totalHits.relation == Relation.EQUAL_TO && hits.totalHits.value <= hits.scoreDocs.length;
+	}
+
+	/**
+	 * Indicates whether every document matching the query also matches the
+	 * previous query
+	 *
+	 * <p>
+	 * This is the case when the query requires every clause the previous query
+	 * required and excludes every clause the previous query excluded
+	 * </p>
+	 *
+	 * @param previousQuery
+	 *            the previous query
+	 * @param query
+	 *            the query
+	 * @return <code>true</code> if the query matches a subset of the previous
+	 *         query's documents
+	 */
+	public static boolean isSubset(final Query previousQuery, final Query query) {
+		if (previousQuery.equals(query)) {
+			return true;
+		}
+
+		Set<Query> previousRequired = new HashSet<>();
+		Set<Query> previousProhibited = new HashSet<>();
+		addClauses(previousQuery, previousRequired, previousProhibited);
+
+		if (previousRequired.isEmpty()) {
+			// Query without required clauses (shouldn't occur)
+			return false;
+		}
+
+		Set<Query> required = new HashSet<>();
+		Set<Query> prohibited = new HashSet<>();
+		addClauses(query, required, prohibited);
+
+		return required.containsAll(previousRequired) && prohibited.containsAll(previousProhibited);
+	}
+
+	/**
+	 * Adds the clauses which determine whether a document matches the query
+	 */
+	private static void addClauses(final Query query, final Set<Query> required, final Set<Query> prohibited) {
+		// Boost affects the score, but not which documents match
+		Query unboostedQuery = query;
+
+		while (unboostedQuery instanceof BoostQuery) {
+			unboostedQuery = ((BoostQuery) unboostedQuery).getQuery();
+		}
+
+		if (!(unboostedQuery instanceof BooleanQuery)) {
+			required.add(unboostedQuery);
+			return;
+		}
+
+		BooleanQuery booleanQuery = (BooleanQuery) unboostedQuery;
+		List<Query> requiredClauses = new ArrayList<>();
+		List<Query> prohibitedClauses = new ArrayList<>();
+		boolean hasShouldClauses = false;
+
+		for (BooleanClause clause : booleanQuery) {
+			switch (clause.getOccur()) {
+			case MUST:
+			case FILTER:
+				requiredClauses.add(clause.getQuery());
+				break;
+			case MUST_NOT:
+				prohibitedClauses.add(clause.getQuery());
+				break;
+			case SHOULD:
+				hasShouldClauses = true;
+				break;
+			}
+		}
+
+		if (booleanQuery.getMinimumNumberShouldMatch() > 0 || (hasShouldClauses && requiredClauses.isEmpty())) {
+			// SHOULD clauses determine which documents match
+			// (such as when the default operator is OR), so treat as a single
+			// clause
+			required.add(booleanQuery);
+			return;
+		}
+
+		for (Query requiredClause : requiredClauses) {
+			addClauses(requiredClause, required, prohibited);
+		}
+
+		prohibited.addAll(prohibitedClauses);
+	}
+
+	/**
+	 * Scores the previous hits using the query
+	 *
+	 * <p>
+	 * The previous hits must include every document matching the query (see
+	 * {@link #isExhaustive(TopDocs)} and {@link #isSubset(Query, Query)}).
+	 * </p>
+	 *
+	 * @param searcher
+	 *            the searcher which returned the previous hits
+	 * @param previousHits
+	 *            the previous hits
+	 * @param query
+	 *            the query to search
+	 * @param hitLimit
+	 *            the maximum number of hits to load
+	 * @return the first page of hits for the query (with the exact total hits,
+	 *         like {@link ResultPager#searchFirstPage(IndexSearcher, Query, int, SearchBudget)})
+	 * @throws IOException
+	 */
+	public static TopDocs refine(final IndexSearcher searcher, final TopDocs previousHits, final Query query,
+			final int hitLimit) throws IOException {
+		ScoreDoc[] candidates = previousHits.scoreDocs.clone();
+
+		// Check the candidates in docID order, so the iterators only move
+		// forward
+		Arrays.sort(candidates, Comparator.comparingInt(sd -> sd.doc));
+
+		Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE, 1);
+		List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+
+		List<ScoreDoc> hits = new ArrayList<>();
+
+		LeafReaderContext leaf = null;
+		Scorer scorer = null;
+
+		for (ScoreDoc candidate : candidates) {
+			int doc = candidate.doc;
+
+			if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+				leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+				scorer = weight.scorer(leaf);
+			}
+
+			if (scorer == null) {
+				// No documents in the leaf match
+				continue;
+			}
+
+			int target = doc - leaf.docBase;
+			DocIdSetIterator iterator = scorer.iterator();
+
+			if (iterator.docID() < target) {
+				iterator.advance(target);
+			}
+
+			if (iterator.docID() == target) {
+				hits.add(new ScoreDoc(doc, scorer.score()));
+			}
+		}
+
+		// Same order as when searching (highest score first, then by docID)
+		hits.sort(Comparator.comparing((final ScoreDoc sd) -> sd.score).reversed()
+				.thenComparingInt(sd -> sd.doc));
+
+		int numHits = Math.min(hits.size(), ResultPager.getFirstPageSize(hitLimit));
+		ScoreDoc[] scoreDocs = hits.subList(0, numHits).toArray(new ScoreDoc[0]);
+
+		return new TopDocs(new TotalHits(hits.size(), Relation.EQUAL_TO), scoreDocs);
+	}
+}
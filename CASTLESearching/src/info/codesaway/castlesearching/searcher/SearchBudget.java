@@ -0,0 +1,184 @@
+package info.codesaway.castlesearching.searcher;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Stops a search once it's canceled or runs out of time
+ *
+ * <p>
+ * The budget is checked while collecting hits and while enumerating the terms
+ * of queries such as wildcard and regex queries. Once exceeded, the search
+ * stops and the hits collected so far are returned.
+ * </p>
+ */
+@NonNullByDefault
+public class SearchBudget implements QueryTimeout {
+	/**
+	 * Budget which is never exceeded
+	 */
+	public static final SearchBudget UNLIMITED = new SearchBudget(0, () -> false);
+
+	// Number of hits collected between checking the budget
+	// (checking the time for every hit would slow down collecting)
+	private static final int CHECK_INTERVAL = 256;
+
+	private final long deadline;
+	private final BooleanSupplier isCanceled;
+
+	private volatile boolean isExceeded;
+
+	/**
+	 *
+	 * @param timeoutMillis
+	 *            the number of milliseconds the search may take (0 for no
+	 *            limit)
+	 * @param isCanceled
+	 *            indicates whether the search was canceled
+	 */
+	public SearchBudget(final long timeoutMillis, final BooleanSupplier isCanceled) {
+		this.deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000 : 0;
+		this.isCanceled = isCanceled;
+	}
+
+	/**
+	 * Creates a budget which is only limited by time
+	 *
+	 * @param timeoutMillis
+	 *            the number of milliseconds the search may take (0 for no
+	 *            limit)
+	 * @return the budget
+	 */
+	public static SearchBudget ofMillis(final long timeoutMillis) {
+		return timeoutMillis > 0 ? new SearchBudget(timeoutMillis, () -> false) : UNLIMITED;
+	}
+
+	@Override
+	public boolean shouldExit() {
+		if (this.isExceeded) {
+			return true;
+		}
+
+		if ((this.deadline != 0 && System.nanoTime() - this.deadline > 0) || this.isCanceled.getAsBoolean()) {
+			this.isExceeded = true;
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean isTimeoutEnabled() {
+		return this != UNLIMITED;
+	}
+
+	/**
+	 * Indicates whether the search was stopped, since it was canceled or ran
+	 * out of time
+	 *
+	 * @return <code>true</code> if the search returned partial results
+	 */
+	public boolean isExceeded() {
+		return this.isExceeded;
+	}
+
+	/**
+	 * Wraps the searcher, so enumerating terms (such as for wildcard and regex
+	 * queries) stops once the budget is exceeded
+	 *
+	 * <p>
+	 * The returned searcher has the same documents (and docIDs) as the
+	 * searcher
+	 * </p>
+	 *
+	 * @param searcher
+	 *            the searcher
+	 * @return the searcher to search
+	 * @throws IOException
+	 */
+	public IndexSearcher wrap(final IndexSearcher searcher) throws IOException {
+		IndexReader reader = searcher.getIndexReader();
+
+		if (!this.isTimeoutEnabled()) {
+			return searcher;
+		}
+
+		IndexReader exitableReader;
+
+		if (reader instanceof DirectoryReader) {
+			exitableReader = ExitableDirectoryReader.wrap((DirectoryReader) reader, this);
+		} else if (reader instanceof MultiReader) {
+			// Searching multiple indexes, so wrap each leaf
+			// (the MultiReader is never closed, so it doesn't add a reference
+			// to the leaves, the same as the wrapped DirectoryReader)
+			IndexReader[] leaves = reader.leaves()
+					.stream()
+					.map(l -> new ExitableDirectoryReader.ExitableFilterAtomicReader(l.reader(), this))
+					.toArray(IndexReader[]::new);
+
+			exitableReader = new MultiReader(leaves, true);
+		} else {
+			return searcher;
+		}
+
+		IndexSearcher exitableSearcher = new IndexSearcher(exitableReader);
+		exitableSearcher.setSimilarity(searcher.getSimilarity());
+		exitableSearcher.setQueryCache(searcher.getQueryCache());
+		exitableSearcher.setQueryCachingPolicy(searcher.getQueryCachingPolicy());
+
+		return exitableSearcher;
+	}
+
+	/**
+	 * Wraps the collector, so collecting stops once the budget is exceeded
+	 *
+	 * @param collector
+	 *            the collector
+	 * @return the collector to search with
+	 */
+	public Collector wrap(final Collector collector) {
+		if (!this.isTimeoutEnabled()) {
+			return collector;
+		}
+
+		return new FilterCollector(collector) {
+			@Override
+			public LeafCollector getLeafCollector(final LeafReaderContext context) throws IOException {
+				if (SearchBudget.this.shouldExit()) {
+					// Skip the remaining leaves
+					throw new CollectionTerminatedException();
+				}
+
+				return new FilterLeafCollector(super.getLeafCollector(context)) {
+					private int count;
+
+					@Override
+					public void collect(final int doc) throws IOException {
+						if (++this.count % CHECK_INTERVAL == 0 && SearchBudget.this.shouldExit()) {
+							// Stop collecting the leaf
+							// (the remaining leaves are skipped by
+							// getLeafCollector)
+							throw new CollectionTerminatedException();
+						}
+
+						super.collect(doc);
+					}
+				};
+			}
+		};
+	}
+}
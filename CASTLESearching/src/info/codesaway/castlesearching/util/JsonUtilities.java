@@ -0,0 +1,69 @@
+package info.codesaway.castlesearching.util;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+@NonNullByDefault
+public class JsonUtilities {
+	/**
+	 * Appends the JSON string for the value (including the quotes)
+	 *
+	 * @param json
+	 *            the JSON being built
+	 * @param value
+	 *            the value
+	 */
+	public static void appendString(final StringBuilder json, final String value) {
+		json.append('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				} else {
+					json.append(c);
+				}
+			}
+		}
+
+		json.append('"');
+	}
+
+	/**
+	 * Appends the name of a field in a JSON object (including the comma
+	 * before it, if it's not the first field)
+	 *
+	 * @param json
+	 *            the JSON being built (the object's opening brace, followed by
+	 *            any previous fields)
+	 * @param name
+	 *            the field name
+	 */
+	public static void appendFieldName(final StringBuilder json, final String name) {
+		char last = json.charAt(json.length() - 1);
+
+		if (last != '{') {
+			json.append(',');
+		}
+
+		appendString(json, name);
+		json.append(':');
+	}
+}
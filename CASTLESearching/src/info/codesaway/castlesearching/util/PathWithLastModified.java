@@ -13,16 +13,30 @@ public class PathWithLastModified implements PathWithTerm {
 	private final String pathname;
 
 	private final long lastModified;
+	private final long size;
 	private final Term term;
 
-	@SuppressWarnings("null")
 	public PathWithLastModified(final Path path) {
+		this(path, path.toFile().lastModified(), path.toFile().length());
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param lastModified
+	 *            the last modified, in milliseconds since the epoch
+	 * @param size
+	 *            the file size, in bytes
+	 */
+	@SuppressWarnings("null")
+	public PathWithLastModified(final Path path, final long lastModified, final long size) {
 		this.path = path;
 		this.file = path.toFile();
 		this.pathname = path.toString();
 
 		// Data used when indexing
-		this.lastModified = this.file.lastModified();
+		this.lastModified = lastModified;
+		this.size = size;
 		this.term = PathWithTerm.getTerm(this.pathname);
 	}
 
@@ -44,6 +58,10 @@ public class PathWithLastModified implements PathWithTerm {
 		return this.lastModified;
 	}
 
+	public long getSize() {
+		return this.size;
+	}
+
 	@Override
 	public Term getTerm() {
 		return this.term;
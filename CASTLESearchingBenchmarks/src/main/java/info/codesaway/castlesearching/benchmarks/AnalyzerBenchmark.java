@@ -0,0 +1,82 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.LuceneStep;
+
+/**
+ * Benchmarks analyzing the lines of a Java file, using the analyzer used
+ * when indexing and the analyzer used when searching
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class AnalyzerBenchmark {
+	@Param({ "INDEX", "QUERY" })
+	private LuceneStep step;
+
+	private Path configDirectory;
+	private Analyzer analyzer;
+	private String[] lines;
+
+	@Setup
+	public void setup() throws IOException {
+		BenchmarkFixtures.loadSettings();
+
+		// Without synonym files (the synonyms depend on the user)
+		this.configDirectory = Files.createTempDirectory("CASTLEAnalyzerBenchmark");
+		this.analyzer = CASTLESearching.createAnalyzer(this.step, this.configDirectory);
+
+		String java = BenchmarkFixtures.generateJavaFile(new Random(BenchmarkFixtures.SEED), "AnalyzerBenchmark",
+				50);
+
+		this.lines = java.split("\r\n");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.analyzer.close();
+		BenchmarkFixtures.delete(this.configDirectory);
+	}
+
+	@Benchmark
+	public void analyze(final Blackhole blackhole) throws IOException {
+		for (String line : this.lines) {
+			try (TokenStream tokenStream = this.analyzer.tokenStream("content", line)) {
+				CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+				tokenStream.reset();
+
+				while (tokenStream.incrementToken()) {
+					blackhole.consume(term.length());
+				}
+
+				tokenStream.end();
+			}
+		}
+	}
+}
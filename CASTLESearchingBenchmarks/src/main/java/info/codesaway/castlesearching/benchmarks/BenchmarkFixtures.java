@@ -0,0 +1,290 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+
+/**
+ * Synthetic files used by the benchmarks
+ *
+ * <p>
+ * The files are generated using a fixed seed, so each run benchmarks the same
+ * content (and the numbers can be compared across releases).
+ * </p>
+ */
+public final class BenchmarkFixtures {
+	/**
+	 * Seed used to generate the files
+	 */
+	public static final long SEED = 20200525;
+
+	private static final String[] WORDS = { "widget", "factory", "search", "result", "index", "document",
+			"line", "query", "parser", "castle", "workspace", "manifest", "project", "element", "comment",
+			"searcher", "analyzer", "token", "block", "layout", "settings", "cache", "budget", "hit", "page",
+			"reader", "writer", "entry", "path", "file" };
+
+	private static final String[] TYPES = { "String", "int", "long", "boolean", "List<String>",
+			"Map<String, Integer>", "Optional<Path>", "byte[]" };
+
+	private static boolean isSettingsLoaded;
+
+	private BenchmarkFixtures() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Loads the default settings (the same settings used when there's no
+	 * settings.xml)
+	 *
+	 * <p>
+	 * Only loaded once, since every benchmark uses the same settings.
+	 * </p>
+	 */
+	public static synchronized void loadSettings() {
+		if (isSettingsLoaded) {
+			return;
+		}
+
+		try {
+			CASTLESearchingSettings.loadIndexSettings(null);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		isSettingsLoaded = true;
+	}
+
+	/**
+	 * Generates the content of a Java file
+	 *
+	 * @param random
+	 *            the random used to choose the names and statements
+	 * @param className
+	 *            the class name
+	 * @param methodCount
+	 *            the number of methods
+	 * @return the file's content
+	 */
+	public static String generateJavaFile(final Random random, final String className, final int methodCount) {
+		StringBuilder java = new StringBuilder();
+
+		java.append("package info.codesaway.").append(word(random)).append(";\r\n\r\n");
+		java.append("import java.util.List;\r\n");
+		java.append("import java.util.Map;\r\n");
+		java.append("import java.util.Optional;\r\n\r\n");
+
+		java.append("/**\r\n");
+		java.append(" * ").append(sentence(random, 8)).append("\r\n");
+		java.append(" *\r\n");
+		java.append(" * <p>\r\n");
+		java.append(" * Created ").append(date(random)).append("\r\n");
+		java.append(" * </p>\r\n");
+		java.append(" */\r\n");
+		java.append("public class ").append(className).append(" {\r\n");
+
+		for (int i = 0; i < 4; i++) {
+			java.append("\tprivate final ").append(type(random)).append(' ').append(camelCase(random, 2))
+					.append(i).append(";\r\n");
+		}
+
+		java.append("\r\n");
+
+		for (int i = 0; i < methodCount; i++) {
+			String methodName = camelCase(random, 3) + i;
+
+			java.append("\t/**\r\n");
+			java.append("\t * ").append(sentence(random, 6)).append("\r\n");
+			java.append("\t */\r\n");
+			java.append("\tpublic ").append(type(random)).append(' ').append(methodName).append("(final ")
+					.append(type(random)).append(' ').append(camelCase(random, 1)).append(") {\r\n");
+
+			int statementCount = 3 + random.nextInt(8);
+
+			for (int j = 0; j < statementCount; j++) {
+				java.append("\t\t");
+
+				switch (random.nextInt(7)) {
+				case 0:
+					java.append("// ").append(sentence(random, 5)).append("\r\n");
+					break;
+				case 1:
+					java.append("if (").append(camelCase(random, 2)).append(" == null) {\r\n");
+					java.append("\t\t\treturn ").append(camelCase(random, 1)).append(";\r\n");
+					java.append("\t\t}\r\n");
+					break;
+				case 2:
+					java.append("String ").append(camelCase(random, 2)).append(" = \"").append(sentence(random, 3))
+							.append("\";\r\n");
+					break;
+				case 3:
+					java.append("/* ").append(sentence(random, 4)).append(" */\r\n");
+					break;
+				case 4:
+					java.append("for (String ").append(word(random)).append(" : ").append(camelCase(random, 2))
+							.append(") {\r\n");
+					java.append("\t\t\t").append(camelCase(random, 2)).append(".add(").append(word(random))
+							.append(");\r\n");
+					java.append("\t\t}\r\n");
+					break;
+				case 5:
+					java.append(camelCase(random, 2)).append(".").append(camelCase(random, 2)).append("(")
+							.append(camelCase(random, 1)).append(", ").append(random.nextInt(1000))
+							.append("); // ").append(sentence(random, 3)).append("\r\n");
+					break;
+				default:
+					java.append("return ").append(camelCase(random, 2)).append(";\r\n");
+				}
+			}
+
+			java.append("\t}\r\n\r\n");
+		}
+
+		java.append("}\r\n");
+
+		return java.toString();
+	}
+
+	/**
+	 * Generates the content of an XML file
+	 *
+	 * @param random
+	 *            the random used to choose the names and values
+	 * @param elementCount
+	 *            the number of elements
+	 * @return the file's content
+	 */
+	public static String generateXmlFile(final Random random, final int elementCount) {
+		StringBuilder xml = new StringBuilder();
+
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n");
+		xml.append("<!-- ").append(sentence(random, 6)).append(" (").append(date(random)).append(") -->\r\n");
+		String root = word(random) + "s";
+		xml.append("<").append(root).append(">\r\n");
+
+		for (int i = 0; i < elementCount; i++) {
+			String element = word(random);
+
+			xml.append("\t<").append(element).append(" id=\"").append(i).append("\" name=\"")
+					.append(camelCase(random, 2)).append("\">\r\n");
+			xml.append("\t\t<value>").append(sentence(random, 4)).append("</value>\r\n");
+			xml.append("\t</").append(element).append(">\r\n");
+		}
+
+		xml.append("</").append(root).append(">\r\n");
+
+		return xml.toString();
+	}
+
+	/**
+	 * Creates a workspace with Java files, in the specified directory
+	 *
+	 * @param directory
+	 *            the workspace directory
+	 * @param projectCount
+	 *            the number of projects
+	 * @param filesPerProject
+	 *            the number of Java files in each project
+	 * @throws IOException
+	 */
+	public static void createWorkspace(final Path directory, final int projectCount, final int filesPerProject)
+			throws IOException {
+		Random random = new Random(SEED);
+
+		// Use the same last modified, so the files are indexed in the same
+		// order each run
+		FileTime lastModified = FileTime.fromMillis(1_590_364_800_000L);
+
+		for (int p = 0; p < projectCount; p++) {
+			Path sourceDirectory = directory.resolve("project" + p).resolve("src");
+			Files.createDirectories(sourceDirectory);
+
+			for (int f = 0; f < filesPerProject; f++) {
+				String className = pascalCase(random, 2) + f;
+				Path file = sourceDirectory.resolve(className + ".java");
+
+				Files.write(file, generateJavaFile(random, className, 5 + random.nextInt(20))
+						.getBytes(StandardCharsets.ISO_8859_1));
+				Files.setLastModifiedTime(file, lastModified);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the directory and its contents
+	 */
+	public static void delete(final Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static String word(final Random random) {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+
+	private static String type(final Random random) {
+		return TYPES[random.nextInt(TYPES.length)];
+	}
+
+	private static String sentence(final Random random, final int wordCount) {
+		StringBuilder sentence = new StringBuilder();
+
+		for (int i = 0; i < wordCount; i++) {
+			if (i > 0) {
+				sentence.append(' ');
+			}
+
+			sentence.append(word(random));
+		}
+
+		return sentence.toString();
+	}
+
+	private static String camelCase(final Random random, final int wordCount) {
+		String pascalCase = pascalCase(random, wordCount);
+		return Character.toLowerCase(pascalCase.charAt(0)) + pascalCase.substring(1);
+	}
+
+	private static String pascalCase(final Random random, final int wordCount) {
+		StringBuilder name = new StringBuilder();
+
+		for (int i = 0; i < wordCount; i++) {
+			String word = word(random);
+			name.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+		}
+
+		return name.toString();
+	}
+
+	private static String date(final Random random) {
+		int month = 1 + random.nextInt(12);
+		int day = 1 + random.nextInt(28);
+		int year = 2000 + random.nextInt(21);
+
+		return random.nextBoolean() ? month + "/" + day + "/" + year
+				: String.format("%d-%02d-%02d", year, month, day);
+	}
+}
@@ -0,0 +1,59 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import info.codesaway.castlesearching.util.DateUtilities;
+import info.codesaway.util.regex.Matcher;
+
+/**
+ * Benchmarks finding and parsing the date on each line (most lines don't
+ * have a date)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class DateExtractionBenchmark {
+	private String[] lines;
+
+	@Setup
+	public void setup() {
+		String java = BenchmarkFixtures.generateJavaFile(new Random(BenchmarkFixtures.SEED),
+				"DateExtractionBenchmark", 50);
+		String xml = BenchmarkFixtures.generateXmlFile(new Random(BenchmarkFixtures.SEED), 100);
+
+		this.lines = (java + xml).split("\r\n");
+	}
+
+	/**
+	 * Extracts the dates the same way as when indexing each line
+	 */
+	@Benchmark
+	public void extractDates(final Blackhole blackhole) {
+		for (String line : this.lines) {
+			Matcher dateMatcher = DateUtilities.DATE_MATCHER.get().reset(line);
+
+			if (dateMatcher.find()) {
+				String date = dateMatcher.group();
+				boolean isLocalDate = dateMatcher.matched("localDate");
+
+				blackhole.consume(DateUtilities.parseLocalDate(date, isLocalDate));
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableRangeMap;
+import com.google.common.collect.RangeMap;
+
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.IndexLayout;
+import info.codesaway.castlesearching.LuceneStep;
+import info.codesaway.castlesearching.indexer.FileDocumentBuilder;
+import info.codesaway.castlesearching.indexer.LineReader;
+import info.codesaway.castlesearching.indexer.java.JavaElementRanges;
+import info.codesaway.castlesearching.util.PathWithTerm;
+
+/**
+ * Benchmarks creating the documents for a file (the work done for each file
+ * when indexing, other than reading the file and analyzing the documents),
+ * and adding the documents to an in-memory index (the same as
+ * <code>CASTLEIndexer.addDocument</code>, other than reading the file)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class DocumentBuilderBenchmark {
+	@Param({ "java", "xml" })
+	private String extension;
+
+	@Param({ "LINE", "BLOCK" })
+	private IndexLayout layout;
+
+	private IndexLayout originalLayout;
+
+	private Path path;
+	private byte[] bytes;
+	private RangeMap<Integer, String> javaElements;
+
+	private Path configDirectory;
+	private IndexWriter writer;
+	private Term term;
+
+	@Setup
+	public void setup() throws IOException {
+		BenchmarkFixtures.loadSettings();
+		this.originalLayout = CASTLESearchingSettings.INDEX_LAYOUT;
+		CASTLESearchingSettings.INDEX_LAYOUT = this.layout;
+
+		Random random = new Random(BenchmarkFixtures.SEED);
+		String content = this.extension.equals("java")
+				? BenchmarkFixtures.generateJavaFile(random, "DocumentBuilderBenchmark", 50)
+				: BenchmarkFixtures.generateXmlFile(random, 200);
+
+		// The file isn't read, so doesn't need to exist
+		this.path = Paths.get("workspace", "project", "src", "DocumentBuilderBenchmark." + this.extension)
+				.toAbsolutePath();
+		this.bytes = content.getBytes(StandardCharsets.ISO_8859_1);
+
+		this.javaElements = this.extension.equals("java")
+				? JavaElementRanges.parse(content.toCharArray())
+				: ImmutableRangeMap.of();
+
+		// Without synonym files (the synonyms depend on the user)
+		this.configDirectory = Files.createTempDirectory("CASTLEDocumentBuilderBenchmark");
+		this.writer = new IndexWriter(new ByteBuffersDirectory(),
+				new IndexWriterConfig(CASTLESearching.createAnalyzer(LuceneStep.INDEX, this.configDirectory)));
+		this.term = PathWithTerm.getTerm(this.path.toString());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.writer.close();
+		this.writer.getDirectory().close();
+		BenchmarkFixtures.delete(this.configDirectory);
+		CASTLESearchingSettings.INDEX_LAYOUT = this.originalLayout;
+	}
+
+	@Benchmark
+	public List<Document> build() throws IOException {
+		// Detecting the charset is part of indexing each file
+		Charset charset = LineReader.detectCharset(this.bytes, () -> LineReader.DEFAULT_CHARSET);
+
+		return FileDocumentBuilder.build(this.path, "project", 1_590_364_800_000L, this.bytes, charset,
+				this.javaElements);
+	}
+
+	/**
+	 * Creates the documents and replaces the file's documents in the index
+	 * (the same as reindexing a modified file)
+	 */
+	@Benchmark
+	public long addDocument() throws IOException {
+		return this.writer.updateDocuments(this.term, this.build());
+	}
+}
@@ -0,0 +1,114 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+
+import info.codesaway.castlesearching.indexer.Indexer;
+import info.codesaway.castlesearching.indexer.Indexers;
+import info.codesaway.castlesearching.indexer.LineIndexer;
+
+/**
+ * Golden check for the markup, SQL, and properties indexers
+ *
+ * <p>
+ * Indexes each line of <i>type</i>-lines.txt using the indexer for the type
+ * and compares the fields added to each line's document with
+ * <i>type</i>-lines.golden (the same as {@link JavaLineGolden} for Java
+ * lines). The inputs cover comments and strings which span lines, such as
+ * comment starts within CDATA sections or SQL string literals.
+ * </p>
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar info.codesaway.castlesearching.benchmarks.IndexerGolden
+ * java -cp target/benchmarks.jar info.codesaway.castlesearching.benchmarks.IndexerGolden --write &lt;type&gt; &lt;file&gt;
+ * </pre>
+ *
+ * <p>
+ * Only write a golden file when the indexer is meant to change.
+ * </p>
+ */
+public final class IndexerGolden {
+	private static final List<String> TYPES = Arrays.asList("markup", "sql", "properties");
+
+	private IndexerGolden() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws IOException {
+		BenchmarkFixtures.loadSettings();
+
+		if (args.length == 3 && args[0].equals("--write")) {
+			String type = args[1];
+			Files.write(Paths.get(args[2]), index(type, JavaLineGolden.readLines(getInputResource(type))),
+					StandardCharsets.UTF_8);
+			return;
+		}
+
+		verify();
+		System.out.println("Markup, SQL, and properties indexing matches the golden files");
+	}
+
+	/**
+	 * Verifies the indexing of each golden input matches its golden file
+	 *
+	 * @throws IllegalStateException
+	 *             if the fields for any line changed
+	 */
+	public static void verify() {
+		for (String type : TYPES) {
+			verify(type);
+		}
+	}
+
+	private static void verify(final String type) {
+		List<String> input = JavaLineGolden.readLines(getInputResource(type));
+		List<String> expected = JavaLineGolden.readLines(getGoldenResource(type));
+		List<String> actual = index(type, input);
+
+		for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+			String expectedLine = i < expected.size() ? expected.get(i) : "";
+			String actualLine = i < actual.size() ? actual.get(i) : "";
+
+			if (!expectedLine.equals(actualLine)) {
+				throw new IllegalStateException(String.format(
+						"Indexing of %s lines changed on line %d%n  Expected: %s%n  Actual:   %s", type, i + 1,
+						expectedLine, actualLine));
+			}
+		}
+	}
+
+	/**
+	 * Indexes the lines using the indexer for the type (the state carries over
+	 * to the next line, the same as when indexing a file)
+	 *
+	 * @return the fields added for each line (one entry per line)
+	 */
+	public static List<String> index(final String type, final List<String> lines) {
+		Indexer indexer = Indexers.getIndexer(type, "");
+		LineIndexer lineIndexer = indexer.newLineIndexer();
+		List<String> result = new ArrayList<>();
+
+		for (String line : lines) {
+			Document document = new Document();
+			lineIndexer.indexLine(line, document);
+			result.add(JavaLineGolden.getFields(document));
+		}
+
+		return result;
+	}
+
+	private static String getInputResource(final String type) {
+		return "/golden/" + type + "-lines.txt";
+	}
+
+	private static String getGoldenResource(final String type) {
+		return "/golden/" + type + "-lines.golden";
+	}
+}
@@ -0,0 +1,67 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.RangeMap;
+
+import info.codesaway.castlesearching.indexer.FileDocumentBuilder;
+import info.codesaway.castlesearching.indexer.java.JavaElementRanges;
+
+/**
+ * Benchmarks finding the Java element (such as the method) for each line of a
+ * Java file
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class JavaElementsBenchmark {
+	private char[] source;
+	private byte[] bytes;
+	private long contentHash;
+
+	@Setup
+	public void setup() {
+		String content = BenchmarkFixtures.generateJavaFile(new Random(BenchmarkFixtures.SEED),
+				"JavaElementsBenchmark", 50);
+
+		this.source = content.toCharArray();
+		this.bytes = content.getBytes(StandardCharsets.ISO_8859_1);
+		this.contentHash = FileDocumentBuilder.getContentHash(this.bytes);
+
+		// Cache the elements for the file
+		JavaElementRanges.getJavaElements(this.bytes, StandardCharsets.UTF_8, this.contentHash);
+	}
+
+	/**
+	 * Parses the file (the same as indexing a file whose content changed)
+	 */
+	@Benchmark
+	public RangeMap<Integer, String> parse() {
+		return JavaElementRanges.parse(this.source);
+	}
+
+	/**
+	 * Gets the cached elements (the same as reindexing a file whose content
+	 * didn't change)
+	 */
+	@Benchmark
+	public RangeMap<Integer, String> cached() {
+		return JavaElementRanges.getJavaElements(this.bytes, StandardCharsets.UTF_8, this.contentHash);
+	}
+}
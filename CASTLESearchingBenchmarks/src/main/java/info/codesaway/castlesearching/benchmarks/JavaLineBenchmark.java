@@ -0,0 +1,138 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.CommentType;
+import info.codesaway.castlesearching.indexer.java.CASTLEJavaIndexer;
+import info.codesaway.castlesearching.indexer.java.JavaCommentScanner;
+import info.codesaway.castlesearching.indexer.java.JavaIndexerRequest;
+import info.codesaway.castlesearching.indexer.java.JavaIndexerReturn;
+import info.codesaway.castlesearching.linetype.LineType;
+import info.codesaway.castlesearching.linetype.LineTypeClassifier;
+
+/**
+ * Benchmarks classifying the lines of a Java file (line types and comments)
+ *
+ * <p>
+ * Each invocation processes every line of the same generated Java file.
+ * </p>
+ *
+ * <p>
+ * The setup runs the {@link JavaLineGolden golden check}, so a change which
+ * alters the classification fails instead of being benchmarked.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class JavaLineBenchmark {
+	private String[] lines;
+	private String[] trimmedLines;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.loadSettings();
+		JavaLineGolden.verify();
+
+		String java = BenchmarkFixtures.generateJavaFile(new Random(BenchmarkFixtures.SEED), "JavaLineBenchmark",
+				50);
+
+		this.lines = java.split("\r\n");
+		this.trimmedLines = Arrays.stream(this.lines).map(String::trim).toArray(String[]::new);
+	}
+
+	/**
+	 * Indexes each line (the comment state carries over to the next line, the
+	 * same as when indexing a file)
+	 */
+	@Benchmark
+	public void indexJavaLine(final Blackhole blackhole) {
+		CommentType commentType = CommentType.NONE;
+		String previousLineType = "";
+		String previousLine = "";
+
+		for (String line : this.lines) {
+			Document document = new Document();
+
+			JavaIndexerReturn javaIndexerReturn = CASTLEJavaIndexer
+					.indexJavaLine(new JavaIndexerRequest(line, document, commentType, previousLineType, previousLine));
+
+			commentType = javaIndexerReturn.getCommentType();
+			previousLineType = javaIndexerReturn.getPreviousLineType();
+			previousLine = javaIndexerReturn.getPreviousLine();
+
+			blackhole.consume(document);
+		}
+	}
+
+	/**
+	 * Finds the configured line type for each line using the trie
+	 */
+	@Benchmark
+	public void lineTypeClassifier(final Blackhole blackhole) {
+		LineTypeClassifier classifier = CASTLESearchingSettings.getJavaLineTypeClassifier();
+
+		for (String trimmedLine : this.trimmedLines) {
+			blackhole.consume(classifier.classify(trimmedLine));
+		}
+	}
+
+	/**
+	 * Finds the configured line type for each line by testing each line type
+	 * in order (how the line types were checked before the trie)
+	 */
+	@Benchmark
+	public void lineTypeLinear(final Blackhole blackhole) {
+		List<LineType> lineTypes = CASTLESearchingSettings.getJavaLineTypeClassifier().getLineTypes();
+
+		for (String trimmedLine : this.trimmedLines) {
+			LineType match = null;
+
+			for (LineType lineType : lineTypes) {
+				if (lineType.test(trimmedLine)) {
+					match = lineType;
+					break;
+				}
+			}
+
+			blackhole.consume(match);
+		}
+	}
+
+	/**
+	 * Splits each line into its content and comments (the comment state
+	 * carries over to the next line)
+	 */
+	@Benchmark
+	public void scanComments(final Blackhole blackhole) {
+		JavaCommentScanner scanner = new JavaCommentScanner();
+		CommentType commentType = CommentType.NONE;
+
+		for (String trimmedLine : this.trimmedLines) {
+			commentType = scanner.scan(trimmedLine, commentType);
+
+			blackhole.consume(scanner.getContent());
+			blackhole.consume(scanner.getComment());
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+
+import info.codesaway.castlesearching.CommentType;
+import info.codesaway.castlesearching.indexer.java.CASTLEJavaIndexer;
+import info.codesaway.castlesearching.indexer.java.JavaIndexerRequest;
+import info.codesaway.castlesearching.indexer.java.JavaIndexerReturn;
+
+/**
+ * Golden check for the Java line classification
+ *
+ * <p>
+ * Classifies each line of java-lines.txt and compares the fields added to
+ * each line's document (such as the type, content, and comment) with
+ * java-lines.golden. This way, optimizations to the classification can be
+ * checked to not change the indexed documents.
+ * </p>
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar info.codesaway.castlesearching.benchmarks.JavaLineGolden
+ * java -cp target/benchmarks.jar info.codesaway.castlesearching.benchmarks.JavaLineGolden --write &lt;file&gt;
+ * </pre>
+ *
+ * <p>
+ * Only write the golden file when the classification is meant to change.
+ * </p>
+ */
+public final class JavaLineGolden {
+	private static final String INPUT_RESOURCE = "/golden/java-lines.txt";
+	private static final String GOLDEN_RESOURCE = "/golden/java-lines.golden";
+
+	private JavaLineGolden() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws IOException {
+		BenchmarkFixtures.loadSettings();
+
+		if (args.length == 2 && args[0].equals("--write")) {
+			Files.write(Paths.get(args[1]), classify(readLines(INPUT_RESOURCE)), StandardCharsets.UTF_8);
+			return;
+		}
+
+		verify();
+		System.out.println("Java line classification matches the golden file");
+	}
+
+	/**
+	 * Verifies the classification of the golden input matches the golden file
+	 *
+	 * @throws IllegalStateException
+	 *             if the classification of any line changed
+	 */
+	public static void verify() {
+		BenchmarkFixtures.loadSettings();
+
+		List<String> input = readLines(INPUT_RESOURCE);
+		List<String> expected = readLines(GOLDEN_RESOURCE);
+		List<String> actual = classify(input);
+
+		for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+			String expectedLine = i < expected.size() ? expected.get(i) : "";
+			String actualLine = i < actual.size() ? actual.get(i) : "";
+
+			if (!expectedLine.equals(actualLine)) {
+				throw new IllegalStateException(String.format(
+						"Java line classification changed on line %d%n  Expected: %s%n  Actual:   %s", i + 1,
+						expectedLine, actualLine));
+			}
+		}
+	}
+
+	/**
+	 * Classifies the lines (the comment state carries over to the next line,
+	 * the same as when indexing a file)
+	 *
+	 * @return the fields added for each line (one entry per line)
+	 */
+	public static List<String> classify(final List<String> lines) {
+		List<String> result = new ArrayList<>();
+
+		CommentType commentType = CommentType.NONE;
+		String previousLineType = "";
+		String previousLine = "";
+
+		for (String line : lines) {
+			Document document = new Document();
+
+			JavaIndexerReturn javaIndexerReturn = CASTLEJavaIndexer
+					.indexJavaLine(new JavaIndexerRequest(line, document, commentType, previousLineType, previousLine));
+
+			commentType = javaIndexerReturn.getCommentType();
+			previousLineType = javaIndexerReturn.getPreviousLineType();
+			previousLine = javaIndexerReturn.getPreviousLine();
+
+			result.add(getFields(document));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the fields added to the line's document, in the order they were
+	 * added (such as "content=... | type=...")
+	 */
+	static String getFields(final Document document) {
+		StringBuilder fields = new StringBuilder();
+
+		for (IndexableField field : document.getFields()) {
+			if (fields.length() > 0) {
+				fields.append(" | ");
+			}
+
+			fields.append(field.name()).append('=').append(field.stringValue());
+		}
+
+		return fields.toString();
+	}
+
+	static List<String> readLines(final String resource) {
+		InputStream inputStream = JavaLineGolden.class.getResourceAsStream(resource);
+
+		if (inputStream == null) {
+			throw new IllegalStateException("Missing resource " + resource);
+		}
+
+		List<String> lines = new ArrayList<>();
+
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return lines;
+	}
+}
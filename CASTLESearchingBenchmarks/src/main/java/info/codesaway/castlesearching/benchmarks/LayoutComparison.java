@@ -0,0 +1,203 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler.Operator;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+
+import info.codesaway.castlesearching.CASTLESearch;
+import info.codesaway.castlesearching.CASTLESearchResultEntry;
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.IndexLayout;
+import info.codesaway.castlesearching.LuceneStep;
+import info.codesaway.castlesearching.headless.HeadlessIndexer;
+import info.codesaway.castlesearching.headless.IndexStats;
+import info.codesaway.castlesearching.searcher.CASTLESearcher;
+import info.codesaway.castlesearching.searcher.ConcurrentSearcherFactory;
+import info.codesaway.castlesearching.searcher.PinnedSearcher;
+import info.codesaway.castlesearching.searcher.QueryTemplate;
+import info.codesaway.castlesearching.searcher.ResultPager;
+import info.codesaway.castlesearching.searcher.SearchBudget;
+
+/**
+ * Compares the line and block index layouts over the same fixture
+ *
+ * <p>
+ * For each layout, indexes the generated workspace with the headless indexer
+ * and reports the index size, the indexing throughput (documents and files
+ * per second), and the search latency (the same search as
+ * {@link SearchBenchmark}).
+ * </p>
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar info.codesaway.castlesearching.benchmarks.LayoutComparison
+ * </pre>
+ *
+ * <p>
+ * The indexing throughput is the best of several runs, since each run
+ * rebuilds the whole index (so the first run also warms up the JVM).
+ * </p>
+ */
+public final class LayoutComparison {
+	private static final int PROJECT_COUNT = 4;
+	private static final int FILES_PER_PROJECT = 250;
+
+	private static final int INDEX_RUNS = 3;
+
+	private static final int SEARCH_WARMUP_ITERATIONS = 20;
+	private static final int SEARCH_ITERATIONS = 50;
+
+	/**
+	 * The view's large hit limit (used when pressing CTRL)
+	 */
+	private static final int HIT_LIMIT = 1000;
+
+	/**
+	 * The number of results shown in the table (only these results load their
+	 * content)
+	 */
+	private static final int SHOWN_RESULTS = 50;
+
+	private static final String[] QUERIES = { "widget factory", "\"search result\"", "pars*", "/get[a-z]+/" };
+
+	private LayoutComparison() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws IOException, QueryNodeException, ParseException {
+		BenchmarkFixtures.loadSettings();
+
+		Path directory = Files.createTempDirectory("CASTLELayoutComparison");
+		IndexLayout originalLayout = CASTLESearchingSettings.INDEX_LAYOUT;
+
+		try {
+			Path workspace = directory.resolve("workspace");
+			BenchmarkFixtures.createWorkspace(workspace, PROJECT_COUNT, FILES_PER_PROJECT);
+
+			System.out.printf(Locale.ROOT, "Fixture: %d projects, %d Java files%n%n", PROJECT_COUNT,
+					PROJECT_COUNT * FILES_PER_PROJECT);
+
+			for (IndexLayout layout : IndexLayout.values()) {
+				CASTLESearchingSettings.INDEX_LAYOUT = layout;
+				compare(layout, workspace, directory);
+			}
+		} finally {
+			CASTLESearchingSettings.INDEX_LAYOUT = originalLayout;
+			BenchmarkFixtures.delete(directory);
+		}
+	}
+
+	private static void compare(final IndexLayout layout, final Path workspace, final Path directory)
+			throws IOException, QueryNodeException, ParseException {
+		Path indexPath = directory.resolve("WorkspaceIndex" + layout);
+
+		IndexStats best = null;
+
+		for (int i = 0; i < INDEX_RUNS; i++) {
+			IndexStats stats = new HeadlessIndexer(workspace, indexPath, directory,
+					Runtime.getRuntime().availableProcessors()).index(true);
+
+			if (best == null || stats.getElapsedNanos() < best.getElapsedNanos()) {
+				best = stats;
+			}
+		}
+
+		double elapsedSeconds = best.getElapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+
+		System.out.printf(Locale.ROOT, "%s layout%n", layout);
+		System.out.printf(Locale.ROOT, "  Index size:  %.2f MB%n", getSize(indexPath) / (1024.0 * 1024.0));
+		System.out.printf(Locale.ROOT, "  Indexing:    %d documents in %.2f s (%.0f docs/s, %.1f files/s)%n",
+				best.getDocumentCount(), elapsedSeconds, best.getDocumentCount() / elapsedSeconds,
+				best.getFilesPerSecond());
+
+		QueryTemplate queryTemplate = QueryTemplate.create(
+				CASTLESearching.createAnalyzer(LuceneStep.QUERY, directory),
+				CASTLESearching.createAnalyzer(LuceneStep.INDEX, directory));
+		CASTLESearcher searcher = new CASTLESearcher("Benchmark", indexPath, HIT_LIMIT);
+
+		try (SearcherManager searcherManager = new SearcherManager(FSDirectory.open(indexPath),
+				new ConcurrentSearcherFactory())) {
+			for (String text : QUERIES) {
+				for (int i = 0; i < SEARCH_WARMUP_ITERATIONS; i++) {
+					search(searcherManager, queryTemplate, searcher, text);
+				}
+
+				long[] latencies = new long[SEARCH_ITERATIONS];
+				long totalHits = 0;
+
+				for (int i = 0; i < SEARCH_ITERATIONS; i++) {
+					long startTime = System.nanoTime();
+					totalHits = search(searcherManager, queryTemplate, searcher, text);
+					latencies[i] = System.nanoTime() - startTime;
+				}
+
+				Arrays.sort(latencies);
+
+				// Block layout hits are the matching blocks, not the matching
+				// lines
+				System.out.printf(Locale.ROOT, "  Search %-17s %6d %s; median %8.1f us; p90 %8.1f us%n",
+						text + ":", totalHits, layout == IndexLayout.BLOCK ? "blocks" : "lines", latencies[SEARCH_ITERATIONS / 2] / 1000.0,
+						latencies[SEARCH_ITERATIONS * 9 / 10] / 1000.0);
+			}
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Searches the same way as {@link SearchBenchmark#search}
+	 *
+	 * @return the total hits
+	 */
+	private static long search(final SearcherManager searcherManager, final QueryTemplate queryTemplate,
+			final CASTLESearcher searcher, final String text)
+			throws IOException, QueryNodeException, ParseException {
+		CASTLESearch search = new CASTLESearch(text, 0, false, HIT_LIMIT, Optional.empty(), searcher,
+				Operator.AND, false);
+
+		Query query = queryTemplate.parseQuery(search);
+		BooleanQuery booleanQuery = queryTemplate.createBooleanQuery(search, query);
+
+		PinnedSearcher pinnedSearcher = PinnedSearcher.acquire(searcherManager);
+		TopDocs firstPage = ResultPager.searchFirstPage(pinnedSearcher.getSearcher(), booleanQuery, HIT_LIMIT,
+				SearchBudget.UNLIMITED);
+		ResultPager pager = ResultPager.create(pinnedSearcher, booleanQuery, queryTemplate.getIndexAnalyzer(),
+				HIT_LIMIT, firstPage, 0);
+
+		try {
+			int shownResults = Math.min(pager.getResultCount(), SHOWN_RESULTS);
+
+			for (int i = 0; i < shownResults; i++) {
+				CASTLESearchResultEntry entry = pager.getResult(i);
+
+				if (entry != null) {
+					entry.getContent();
+				}
+			}
+
+			return pager.getTotalHits();
+		} finally {
+			pager.release();
+		}
+	}
+
+	private static long getSize(final Path indexPath) throws IOException {
+		try (Stream<Path> files = Files.list(indexPath)) {
+			return files.mapToLong(p -> p.toFile().length()).sum();
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package info.codesaway.castlesearching.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler.Operator;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import info.codesaway.castlesearching.CASTLESearch;
+import info.codesaway.castlesearching.CASTLESearchResultEntry;
+import info.codesaway.castlesearching.CASTLESearching;
+import info.codesaway.castlesearching.CASTLESearchingSettings;
+import info.codesaway.castlesearching.IndexLayout;
+import info.codesaway.castlesearching.LuceneStep;
+import info.codesaway.castlesearching.headless.HeadlessIndexer;
+import info.codesaway.castlesearching.searcher.CASTLESearcher;
+import info.codesaway.castlesearching.searcher.ConcurrentSearcherFactory;
+import info.codesaway.castlesearching.searcher.PinnedSearcher;
+import info.codesaway.castlesearching.searcher.QueryTemplate;
+import info.codesaway.castlesearching.searcher.ResultPager;
+import info.codesaway.castlesearching.searcher.SearchBudget;
+
+/**
+ * Benchmarks searching a fixture index, the same way as searching from the
+ * view (parse the query, search for the first page of hits, and load the
+ * results shown in the table)
+ *
+ * <p>
+ * The fixture index is created from generated Java files when the benchmark
+ * starts. The fixture is large enough that the index has multiple slices, so
+ * searching using multiple threads searches the slices in parallel.
+ * </p>
+ *
+ * <p>
+ * The hit limits are the view's large and mega hit limits (CTRL + ENTER and
+ * CTRL + SHIFT + ENTER).
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+	/**
+	 * Number of threads used to index the fixture
+	 *
+	 * <p>
+	 * Each indexing thread writes its own segments, so uses a fixed number of
+	 * threads (rather than the number of cores), so the fixture index has the
+	 * same segments on each machine.
+	 * </p>
+	 */
+	private static final int INDEX_THREADS = 4;
+
+	/**
+	 * The number of results shown in the table (only these results load their
+	 * content)
+	 */
+	private static final int SHOWN_RESULTS = 50;
+
+	@Param({ "widget factory", "\"search result\"", "pars*", "/get[a-z]+/" })
+	private String text;
+
+	@Param({ "LINE", "BLOCK" })
+	private IndexLayout layout;
+
+	@Param({ "1", "4" })
+	private int threads;
+
+	@Param({ "1000", "100000" })
+	private int hitLimit;
+
+	private IndexLayout originalLayout;
+	private int originalThreads;
+
+	private Path directory;
+	private SearcherManager searcherManager;
+	private QueryTemplate queryTemplate;
+	private CASTLESearcher searcher;
+
+	@Setup
+	public void setup() throws IOException, QueryNodeException {
+		BenchmarkFixtures.loadSettings();
+
+		// Only change the settings which are benchmark parameters
+		// (the other settings are the defaults)
+		this.originalLayout = CASTLESearchingSettings.INDEX_LAYOUT;
+		this.originalThreads = CASTLESearchingSettings.SEARCH_THREADS;
+		CASTLESearchingSettings.INDEX_LAYOUT = this.layout;
+		CASTLESearchingSettings.SEARCH_THREADS = this.threads;
+
+		this.directory = Files.createTempDirectory("CASTLESearchBenchmark");
+
+		Path workspace = this.directory.resolve("workspace");
+		Path indexPath = this.directory.resolve("WorkspaceIndex");
+
+		BenchmarkFixtures.createWorkspace(workspace, 8, 250);
+
+		new HeadlessIndexer(workspace, indexPath, this.directory, INDEX_THREADS).index(true);
+
+		this.searcherManager = new SearcherManager(FSDirectory.open(indexPath), new ConcurrentSearcherFactory());
+		this.queryTemplate = QueryTemplate.create(CASTLESearching.createAnalyzer(LuceneStep.QUERY, this.directory),
+				CASTLESearching.createAnalyzer(LuceneStep.INDEX, this.directory));
+		this.searcher = new CASTLESearcher("Benchmark", indexPath, this.hitLimit);
+
+		IndexSearcher indexSearcher = this.searcherManager.acquire();
+
+		try {
+			int sliceCount = ConcurrentSearcherFactory.slices(indexSearcher.getIndexReader().leaves(),
+					CASTLESearchingSettings.SEARCH_SLICE_MAX_DOCS,
+					CASTLESearchingSettings.SEARCH_SLICE_MAX_SEGMENTS).length;
+
+			System.out.printf("%nFixture index has %d slices%n", sliceCount);
+		} finally {
+			this.searcherManager.release(indexSearcher);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.searcherManager.close();
+		BenchmarkFixtures.delete(this.directory);
+
+		CASTLESearchingSettings.INDEX_LAYOUT = this.originalLayout;
+		CASTLESearchingSettings.SEARCH_THREADS = this.originalThreads;
+	}
+
+	@Benchmark
+	public void search(final Blackhole blackhole) throws IOException, QueryNodeException, ParseException {
+		this.search(blackhole, SHOWN_RESULTS);
+	}
+
+	/**
+	 * Searches and loads every result, up to the hit limit (such as when
+	 * copying the results into a report)
+	 */
+	@Benchmark
+	public void searchAll(final Blackhole blackhole) throws IOException, QueryNodeException, ParseException {
+		this.search(blackhole, Integer.MAX_VALUE);
+	}
+
+	private void search(final Blackhole blackhole, final int resultsToLoad)
+			throws IOException, QueryNodeException, ParseException {
+		CASTLESearch search = new CASTLESearch(this.text, 0, false, this.hitLimit, Optional.empty(), this.searcher,
+				Operator.AND, false);
+
+		Query query = this.queryTemplate.parseQuery(search);
+		BooleanQuery booleanQuery = this.queryTemplate.createBooleanQuery(search, query);
+
+		PinnedSearcher pinnedSearcher = PinnedSearcher.acquire(this.searcherManager);
+		TopDocs firstPage = ResultPager.searchFirstPage(pinnedSearcher.getSearcher(), booleanQuery, this.hitLimit,
+				SearchBudget.UNLIMITED);
+		ResultPager pager = ResultPager.create(pinnedSearcher, booleanQuery, this.queryTemplate.getIndexAnalyzer(),
+				this.hitLimit, firstPage, 0);
+
+		try {
+			blackhole.consume(pager.getTotalHits());
+
+			// The result count changes as hits are loaded (a block document
+			// has a result for each matching line)
+			for (int i = 0; i < Math.min(pager.getResultCount(), resultsToLoad); i++) {
+				CASTLESearchResultEntry entry = pager.getResult(i);
+
+				if (entry != null) {
+					blackhole.consume(entry.getContent());
+				}
+			}
+		} finally {
+			pager.release();
+		}
+	}
+}